@@ -0,0 +1,72 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AdaptiveBenchmark: adaptive testing over 100k calibrated questions. Picking the
+ * next question (what happens after every answer), a whole simulated attempt, and
+ * building the bank's information index (once per quiz).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdaptiveBenchmark {
+
+    private static final int POOL_SIZE = 100_000;
+
+    private List<ItemStatistics.QuestionStats> stats;
+    private AdaptiveItemBank bank;
+    private Random random;
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        stats = new ArrayList<>(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            double difficulty = 0.05 + 0.9 * random.nextDouble();
+            double discrimination = 0.15 + 0.45 * random.nextDouble();
+            stats.add(new ItemStatistics.QuestionStats(100, difficulty, discrimination, new long[4], 0));
+        }
+        bank = AdaptiveItemBank.calibrate(POOL_SIZE, stats, 1_000);
+    }
+
+    // The first question of a fresh attempt
+    @Benchmark
+    public int selectFirstQuestion() {
+        return new AdaptiveTest(bank, AdaptiveTest.DEFAULT_TARGET_ERROR, AdaptiveTest.DEFAULT_MAX_QUESTIONS, seed++).nextQuestion();
+    }
+
+    // A student of random ability taking the test until it stops
+    @Benchmark
+    public double simulateAttempt() {
+        double ability = random.nextGaussian();
+        AdaptiveTest test = new AdaptiveTest(bank, AdaptiveTest.DEFAULT_TARGET_ERROR, AdaptiveTest.DEFAULT_MAX_QUESTIONS, seed++);
+        for (int question = test.nextQuestion(); question >= 0; question = test.nextQuestion()) {
+            test.answer(random.nextDouble() < bank.probabilityCorrect(question, ability));
+        }
+        return test.getAbility();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public AdaptiveItemBank calibrateBank() {
+        return AdaptiveItemBank.calibrate(POOL_SIZE, stats, 1_000);
+    }
+}
@@ -0,0 +1,78 @@
+package main;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.swing.JButton;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DashboardBenchmark: QuizApp.refreshQuizesDisplay() without a window.
+ * Builds the same QuizGridPanel as QuizApp over a QuizRepository and refreshes
+ * and lays it out; also an insert and a delete, which have their own paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class DashboardBenchmark {
+
+    @Param({"100", "100000"})
+    int quizCount;
+
+    private QuizRepository quizes;
+    private QuizGridPanel grid;
+    private Function<Quiz, QuizButton> cardFactory;
+
+    @Setup
+    public void setUp() {
+        quizes = new QuizRepository();
+        LoadGenerator.addGeneratedQuizes(quizes, quizCount, 5);
+        AttemptStore attempts = new AttemptStore();
+        ItemStatistics statistics = new ItemStatistics(quizes, attempts);
+        Leaderboard leaderboard = new Leaderboard(quizes, attempts);
+        AttemptJournal journal = new AttemptJournal();
+        cardFactory = q -> new QuizButton(q, null, quiz -> { }, attempts, journal, statistics, leaderboard);
+        grid = new QuizGridPanel(quizes.view(), cardFactory,
+                new JButton("+ Add New Quiz"), 280, 230, 25);
+        grid.setSize(1100, 750);
+        grid.doLayout();
+    }
+
+    // What refreshQuizesDisplay() does: re-bind every visible card
+    @Benchmark
+    public QuizGridPanel refresh() {
+        grid.refresh();
+        grid.doLayout();
+        return grid;
+    }
+
+    // One new card, as the grid makes them when the window grows
+    @Benchmark
+    public QuizButton buildCard() {
+        return cardFactory.apply(quizes.get(0));
+    }
+
+    // Adding a quiz at the end and deleting it again (the cheaper paths used by QuizApp)
+    @Benchmark
+    public QuizGridPanel insertAndDelete() {
+        Quiz quiz = new Quiz("Benchmark Quiz", quizes.newQuizId());
+        quizes.add(quiz);
+        grid.quizInserted(quizes.positionOf(quiz));
+        grid.doLayout();
+        grid.quizRemoved(quizes.removeById(quiz.getQuizId()));
+        grid.doLayout();
+        return grid;
+    }
+}
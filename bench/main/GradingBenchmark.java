@@ -0,0 +1,98 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GradingBenchmark: scoring one attempt the way QuizTakingDialog.submitQuiz does,
+ * drawing (and scoring) an attempt from a big question pool with QuestionDraw,
+ * and scoring many attempts at once with BatchGrader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GradingBenchmark {
+
+    @Param({"20", "200"})
+    int questionCount;
+
+    private static final int BATCH_ATTEMPTS = 100_000;
+    private static final int POOL_SIZE = 100_000;
+
+    private List<Question> questions;
+    private int[] answers;
+    private BatchGrader.AnswerKey key;
+    private BatchGrader.AnswerSheet sheet;
+    private int[] scores;
+    private List<Question> pool;
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> options = Arrays.asList("A", "B", "C", "D");
+        questions = new ArrayList<>(questionCount);
+        for (int i = 0; i < questionCount; i++) {
+            questions.add(new Question("Question " + i, options, random.nextInt(4)));
+        }
+        answers = randomAnswers(random);
+
+        Quiz quiz = new Quiz("Benchmark Quiz", 1, questions);
+        key = BatchGrader.AnswerKey.of(quiz);
+        sheet = new BatchGrader.AnswerSheet(questionCount, BATCH_ATTEMPTS);
+        for (int i = 0; i < BATCH_ATTEMPTS; i++) {
+            sheet.addAttempt(randomAnswers(random));
+        }
+        scores = new int[BATCH_ATTEMPTS];
+
+        pool = new ArrayList<>(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            pool.add(new Question("Pool question " + i, options, random.nextInt(4)));
+        }
+    }
+
+    private int[] randomAnswers(Random random) {
+        int[] chosen = new int[questionCount];
+        for (int i = 0; i < chosen.length; i++) {
+            chosen[i] = random.nextInt(10) == 0 ? QuizGrader.NO_ANSWER : random.nextInt(4);
+        }
+        return chosen;
+    }
+
+    // One attempt, as in QuizTakingDialog.submitQuiz
+    @Benchmark
+    public int scoreOneAttempt() {
+        return QuizGrader.score(questions, answers);
+    }
+
+    // Drawing 'questionCount' of 100k questions with shuffled options, then grading the answers
+    @Benchmark
+    public int drawAndScoreFromPool() {
+        QuestionDraw draw = QuestionDraw.of(pool, questionCount, true, seed++);
+        return draw.score(draw.toOriginalAnswers(answers));
+    }
+
+    // 100k attempts through the columnar batch grader
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public BatchGrader.Result gradeBatch() {
+        return BatchGrader.grade(key, sheet, scores);
+    }
+}
@@ -0,0 +1,71 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JournalBenchmark: what a click costs the dialog when it is journaled (a pick and
+ * a move to the next question), with many attempts in progress at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournalBenchmark {
+
+    @Param({"1000", "10000"})
+    int activeAttempts;
+
+    private Path directory;
+    private AttemptJournal journal;
+    private long[] ids;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        journal = new AttemptJournal(directory);
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            questions.add(new Question("Question " + i, List.of("A", "B", "C", "D"), i % 4));
+        }
+        Quiz quiz = new Quiz("Benchmark", 1, questions);
+        ids = new long[activeAttempts];
+        for (int i = 0; i < activeAttempts; i++) {
+            ids[i] = journal.begin("user" + i, quiz, i, 0);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.deleteIfExists(directory.resolve("attempt-journal.log"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void answerAndMove() {
+        int attempt = next++ % activeAttempts;
+        int question = next % 20;
+        journal.answer(ids[attempt], question, next & 3);
+        journal.moveTo(ids[attempt], (question + 1) % 20);
+    }
+}
@@ -0,0 +1,99 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ModelBenchmark: building, copying and (de)serializing quizzes.
+ * Covers what QuizAddDialog, QuizStore and QuestionBankFile do with a Quiz.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+    @Param({"10", "1000"})
+    int questionCount;
+
+    private List<String> options;
+    private Quiz quiz;
+    private byte[] logRecord;
+    private byte[] bankBody;
+
+    @Setup
+    public void setUp() {
+        options = Arrays.asList("First option", "Second option", "Third option", "Fourth option");
+        quiz = buildQuiz();
+        logRecord = QuizStore.encodeQuiz(quiz);
+        bankBody = QuestionBankFile.encodeQuestions(quiz.getQuestions());
+    }
+
+    private Quiz buildQuiz() {
+        Quiz built = new Quiz("Benchmark Quiz", 1);
+        for (int i = 0; i < questionCount; i++) {
+            built.addQuestion(new Question("What is question number " + i + "?", options, i % 4));
+        }
+        return built;
+    }
+
+    // Adding questions one by one, like QuestionEditorDialog
+    @Benchmark
+    public Quiz constructQuiz() {
+        return buildQuiz();
+    }
+
+    // Quiz(name, id, questions) copies the question list
+    @Benchmark
+    public Quiz copyQuiz() {
+        return new Quiz(quiz.getQuizName(), quiz.getQuizId(), quiz.getQuestions());
+    }
+
+    // Copying every question as well (what an edit-a-copy feature would do)
+    @Benchmark
+    public Quiz deepCopyQuiz() {
+        List<Question> copies = new ArrayList<>(quiz.getNumOfQuestions());
+        for (Question question : quiz.getQuestions()) {
+            copies.add(new Question(question.getQuestionText(), question.getOptions(), question.getCorrectAnswerIndex()));
+        }
+        return new Quiz(quiz.getQuizName(), quiz.getQuizId(), copies);
+    }
+
+    // The record QuizStore appends to quizzes.log
+    @Benchmark
+    public byte[] encodeLogRecord() {
+        return QuizStore.encodeQuiz(quiz);
+    }
+
+    @Benchmark
+    public Quiz decodeLogRecord() {
+        return QuizStore.decodeQuiz(ByteBuffer.wrap(logRecord));
+    }
+
+    // The question block of a quiz in a .bank file
+    @Benchmark
+    public byte[] encodeBankBody() {
+        return QuestionBankFile.encodeQuestions(quiz.getQuestions());
+    }
+
+    @Benchmark
+    public List<Question> decodeBankBody() {
+        return QuestionBankFile.decodeQuestions(ByteBuffer.wrap(bankBody), questionCount);
+    }
+}
@@ -0,0 +1,66 @@
+package main;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PipelineBenchmark: a task streaming quizzes to the EDT, the way the catalog is
+ * loaded. Reports the whole run (publishing, every hand-over and the outcome) and,
+ * through the result, how many batches the EDT had to process.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Djava.awt.headless=true")
+public class PipelineBenchmark {
+
+    @Param({"10000", "100000"})
+    int chunks;
+
+    private final TaskPipeline pipeline = new TaskPipeline("benchmark-task", 2);
+
+    @Benchmark
+    public int streamToEdt() throws Exception {
+        CompletableFuture<Integer> batches = new CompletableFuture<>();
+        pipeline.submit(new TaskPipeline.Task<Void, Integer>() {
+            private int processed; // EDT only
+            private int batchCount;
+
+            @Override
+            protected Void call() {
+                for (int i = 0; i < chunks; i++) {
+                    publish(i);
+                }
+                return null;
+            }
+
+            @Override
+            protected void process(List<Integer> published) {
+                processed += published.size();
+                batchCount++;
+            }
+
+            @Override
+            protected void succeeded(Void result) {
+                if (processed != chunks) {
+                    batches.completeExceptionally(new IllegalStateException(processed + " of " + chunks + " chunks"));
+                }
+                batches.complete(batchCount);
+            }
+        });
+        return batches.get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,53 @@
+package main;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * TimerWheelBenchmark: arming and cancelling one deadline (a session that ends in
+ * time) while many other sessions' deadlines are pending.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerWheelBenchmark {
+
+    @Param({"1000", "100000"})
+    int pendingSessions;
+
+    private TimerWheel wheel;
+    private long delay;
+
+    @Setup
+    public void setUp() {
+        wheel = new TimerWheel("benchmark-wheel", TimerWheel.DEFAULT_TICK_MILLIS);
+        for (int i = 0; i < pendingSessions; i++) {
+            wheel.schedule(() -> { }, 1 + i % 3_600, TimeUnit.SECONDS); // Spread over an hour
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        wheel.close();
+    }
+
+    @Benchmark
+    public boolean armAndCancel() {
+        delay = delay % 3_600_000 + 997;
+        return wheel.schedule(() -> { }, delay, TimeUnit.MILLISECONDS).cancel();
+    }
+}
@@ -0,0 +1,313 @@
+package main;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * AdaptiveItemBank: the questions of a quiz as items of an IRT model, ready for
+ * adaptive testing (see AdaptiveTest).
+ *
+ * Every question gets a two-parameter logistic model: the chance that a student of
+ * ability theta answers it right is 1 / (1 + exp(-1.7 a (theta - b))), with 'a' how
+ * sharply it separates weak from strong students and 'b' how hard it is. Both are
+ * estimated from the item analysis (ItemStatistics) once a question has been asked
+ * MIN_CALIBRATION_ATTEMPTS times, in ordinary attempts or, failing that, in adaptive
+ * ones (against the ability those ended on); questions with less data are
+ * "uncalibrated".
+ *
+ * The best question to ask next is the one with the most Fisher information at the
+ * current ability estimate. Looking at 100k questions for every step would take
+ * milliseconds, so the ability scale is cut into buckets and each bucket keeps its
+ * CANDIDATES_PER_BUCKET most informative calibrated questions, best first. Picking a
+ * question then means walking one short list and skipping what was already asked:
+ * microseconds, whatever the size of the quiz.
+ *
+ * Banks are built on first use and kept per quiz until its questions change in
+ * number or it has had a good deal more attempts.
+ */
+public final class AdaptiveItemBank {
+
+    // Makes the logistic curve follow the normal ogive the estimates come from
+    static final double SCALE = 1.7;
+
+    // Ability scale covered, in standard deviations of the students
+    static final double MIN_ABILITY = -4;
+    static final double MAX_ABILITY = 4;
+    private static final double BUCKET_WIDTH = 0.25;
+    private static final int BUCKET_COUNT = (int) Math.round((MAX_ABILITY - MIN_ABILITY) / BUCKET_WIDTH) + 1;
+
+    static final int CANDIDATES_PER_BUCKET = 128;
+
+    // Answers a question needs before its own parameters are trusted
+    static final int MIN_CALIBRATION_ATTEMPTS = 30;
+
+    // What an uncalibrated question is taken to be: average difficulty and discrimination
+    static final float DEFAULT_DISCRIMINATION = 1f;
+    static final float DEFAULT_DIFFICULTY = 0f;
+
+    // Rebuilt once the quiz has this many times the attempts it was calibrated with
+    private static final double RECALIBRATION_GROWTH = 1.25;
+
+    private static final Map<Quiz, AdaptiveItemBank> banks = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final float[] discrimination; // 'a' per question
+    private final float[] difficulty;     // 'b' per question
+    private final boolean[] calibrated;
+    private final int[] uncalibrated;     // Indexes of the uncalibrated questions
+    private final int candidatesPerBucket;
+    private final int[] candidates;       // Bucket k: [k * candidatesPerBucket, (k + 1) * candidatesPerBucket)
+    private final long attemptCount;      // Attempts of the quiz when this bank was built
+
+    private AdaptiveItemBank(float[] discrimination, float[] difficulty, boolean[] calibrated, long attemptCount) {
+        this.discrimination = discrimination;
+        this.difficulty = difficulty;
+        this.calibrated = calibrated;
+        this.attemptCount = attemptCount;
+
+        int calibratedCount = 0;
+        for (boolean isCalibrated : calibrated) {
+            if (isCalibrated) {
+                calibratedCount++;
+            }
+        }
+        uncalibrated = new int[calibrated.length - calibratedCount];
+        int next = 0;
+        for (int i = 0; i < calibrated.length; i++) {
+            if (!calibrated[i]) {
+                uncalibrated[next++] = i;
+            }
+        }
+
+        candidatesPerBucket = Math.min(CANDIDATES_PER_BUCKET, calibratedCount);
+        candidates = new int[BUCKET_COUNT * candidatesPerBucket];
+        // Buckets don't depend on each other
+        IntStream.range(0, BUCKET_COUNT).parallel().forEach(this::rankBucket);
+    }
+
+    // The bank of 'quiz', calibrated from 'statistics' (null = everything uncalibrated)
+    public static AdaptiveItemBank of(Quiz quiz, ItemStatistics statistics) {
+        long attempts = statistics != null ? statistics.getAttemptCount(quiz.getQuizId()) : 0;
+        AdaptiveItemBank bank = banks.get(quiz);
+        if (bank != null && bank.size() == quiz.getNumOfQuestions()
+                && attempts < Math.max(bank.attemptCount * RECALIBRATION_GROWTH, bank.attemptCount + MIN_CALIBRATION_ATTEMPTS)) {
+            return bank;
+        }
+        bank = calibrate(quiz.getNumOfQuestions(),
+                statistics != null ? statistics.getQuestionStats(quiz.getQuizId()) : Collections.emptyList(), attempts);
+        banks.put(quiz, bank);
+        return bank;
+    }
+
+    // A bank of 'size' questions calibrated from their item analysis (which may be shorter)
+    static AdaptiveItemBank calibrate(int size, List<ItemStatistics.QuestionStats> stats, long attemptCount) {
+        float[] a = new float[size];
+        float[] b = new float[size];
+        boolean[] calibrated = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            ItemStatistics.QuestionStats questionStats = i < stats.size() ? stats.get(i) : null;
+            a[i] = DEFAULT_DISCRIMINATION;
+            b[i] = DEFAULT_DIFFICULTY;
+            if (questionStats == null) {
+                continue;
+            }
+            if (questionStats.getAttemptCount() >= MIN_CALIBRATION_ATTEMPTS && questionStats.getDiscrimination() > 0) {
+                // Against the rest score, which is taken to be on the ability scale already
+                estimate(a, b, i, questionStats.getDifficulty(), questionStats.getDiscrimination(), 0, 1);
+                calibrated[i] = true;
+            } else if (questionStats.getAdaptiveAttemptCount() >= MIN_CALIBRATION_ATTEMPTS
+                    && questionStats.getAbilityCorrelation() > 0 && questionStats.getAbilityDeviation() > 0) {
+                // Against the abilities of the students it was asked to, so it comes out
+                // on their mean and spread and is shifted and stretched back
+                estimate(a, b, i, questionStats.getAdaptiveDifficulty(), questionStats.getAbilityCorrelation(),
+                        questionStats.getMeanAbility(), questionStats.getAbilityDeviation());
+                calibrated[i] = true;
+            }
+            // Otherwise not enough data, or the question doesn't measure anything (NaN fails the tests)
+        }
+        return new AdaptiveItemBank(a, b, calibrated, attemptCount);
+    }
+
+    /**
+     * Classical statistics to IRT parameters (Lord): the point-biserial becomes a
+     * biserial correlation r, then a = r / sqrt(1 - r^2) and b = z / r, with z the
+     * normal deviate that leaves share p of the students above it. Those hold for
+     * students of mean 0 and deviation 1, so for other students (mean, deviation)
+     * they are moved back onto the ability scale.
+     */
+    private static void estimate(float[] a, float[] b, int i, double difficulty, double pointBiserial,
+                                  double mean, double deviation) {
+        double p = Math.min(0.98, Math.max(0.02, difficulty));
+        double z = Math.log(p / (1 - p)) / SCALE; // ~ inverse normal of p
+        double density = Math.exp(-z * z / 2) / Math.sqrt(2 * Math.PI);
+        double r = Math.min(0.95, Math.max(0.05, pointBiserial * Math.sqrt(p * (1 - p)) / density));
+        a[i] = (float) Math.min(3, Math.max(0.2, r / Math.sqrt(1 - r * r) / deviation));
+        b[i] = (float) Math.min(MAX_ABILITY, Math.max(MIN_ABILITY, mean - deviation * z / r));
+    }
+
+    // Keeps the most informative calibrated questions at the bucket's ability, best first
+    private void rankBucket(int bucket) {
+        double ability = abilityOfBucket(bucket);
+        int start = bucket * candidatesPerBucket;
+        // Min-heap of the best so far (worst on top) over candidates[start, start + filled)
+        double[] heapInformation = new double[candidatesPerBucket];
+        int filled = 0;
+        for (int item = 0; item < calibrated.length && candidatesPerBucket > 0; item++) {
+            if (!calibrated[item]) {
+                continue;
+            }
+            double itemInformation = information(item, ability);
+            if (filled < candidatesPerBucket) {
+                int slot = filled++;
+                while (slot > 0 && heapInformation[(slot - 1) / 2] > itemInformation) {
+                    heapInformation[slot] = heapInformation[(slot - 1) / 2];
+                    candidates[start + slot] = candidates[start + (slot - 1) / 2];
+                    slot = (slot - 1) / 2;
+                }
+                heapInformation[slot] = itemInformation;
+                candidates[start + slot] = item;
+            } else if (itemInformation > heapInformation[0]) {
+                siftDown(heapInformation, start, filled, itemInformation, item);
+            }
+        }
+        // Heap order to best first: take the worst off the top into the back, repeatedly
+        for (int end = filled - 1; end > 0; end--) {
+            double lastInformation = heapInformation[end];
+            int lastItem = candidates[start + end];
+            heapInformation[end] = heapInformation[0];
+            candidates[start + end] = candidates[start];
+            siftDown(heapInformation, start, end, lastInformation, lastItem);
+        }
+    }
+
+    // Puts (information, item) on top of the heap of 'size' and lets it sink into place
+    private void siftDown(double[] heapInformation, int start, int size, double itemInformation, int item) {
+        int slot = 0;
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heapInformation[child + 1] < heapInformation[child]) {
+                child++;
+            }
+            if (heapInformation[child] >= itemInformation) {
+                break;
+            }
+            heapInformation[slot] = heapInformation[child];
+            candidates[start + slot] = candidates[start + child];
+            slot = child;
+        }
+        heapInformation[slot] = itemInformation;
+        candidates[start + slot] = item;
+    }
+
+    private static double abilityOfBucket(int bucket) {
+        return MIN_ABILITY + bucket * BUCKET_WIDTH;
+    }
+
+    private static int bucketOf(double ability) {
+        int bucket = (int) Math.round((ability - MIN_ABILITY) / BUCKET_WIDTH);
+        return Math.max(0, Math.min(BUCKET_COUNT - 1, bucket));
+    }
+
+    // --- The model ---
+
+    public int size() {
+        return calibrated.length;
+    }
+
+    public boolean isCalibrated(int item) {
+        return calibrated[item];
+    }
+
+    public double getDiscrimination(int item) {
+        return discrimination[item];
+    }
+
+    public double getDifficulty(int item) {
+        return difficulty[item];
+    }
+
+    // Chance that a student of 'ability' answers question 'item' correctly
+    public double probabilityCorrect(int item, double ability) {
+        return 1 / (1 + Math.exp(-SCALE * discrimination[item] * (ability - difficulty[item])));
+    }
+
+    // How much an answer to 'item' tells about a student of 'ability'
+    public double information(int item, double ability) {
+        double p = probabilityCorrect(item, ability);
+        double slope = SCALE * discrimination[item];
+        return slope * slope * p * (1 - p);
+    }
+
+    /**
+     * The question to ask a student of (estimated) 'ability' who was already asked
+     * the questions in 'asked'; -1 if every question was asked. Calibrated questions
+     * come first; an uncalibrated one ('seed' picks which) is asked when the best
+     * calibrated question would tell less than half of what an average question
+     * would, e.g. for a quiz nobody has taken yet. Their answers go into the item
+     * analysis with the ability the test ends on, so after MIN_CALIBRATION_ATTEMPTS
+     * of them a question is calibrated even if the quiz is only taken adaptively.
+     */
+    public int select(double ability, BitSet asked, long seed) {
+        int best = -1;
+        double bestInformation = -1;
+        // The first few not yet asked of the nearest bucket; exact information decides
+        int start = bucketOf(ability) * candidatesPerBucket;
+        int looked = 0;
+        for (int i = start; i < start + candidatesPerBucket && looked < 8; i++) {
+            int item = candidates[i];
+            if (!asked.get(item)) {
+                looked++;
+                double itemInformation = information(item, ability);
+                if (itemInformation > bestInformation) {
+                    best = item;
+                    bestInformation = itemInformation;
+                }
+            }
+        }
+        if (uncalibrated.length > 0) {
+            double p = 1 / (1 + Math.exp(-SCALE * DEFAULT_DISCRIMINATION * (ability - DEFAULT_DIFFICULTY)));
+            double uncalibratedInformation = SCALE * DEFAULT_DISCRIMINATION * SCALE * DEFAULT_DISCRIMINATION * p * (1 - p);
+            if (uncalibratedInformation / 2 > bestInformation) {
+                int item = pickUncalibrated(asked, seed);
+                if (item >= 0) {
+                    return item;
+                }
+            }
+        }
+        return best >= 0 ? best : bestNotAsked(ability, asked);
+    }
+
+    // A random uncalibrated question not asked yet, or -1
+    private int pickUncalibrated(BitSet asked, long seed) {
+        int count = uncalibrated.length;
+        int offset = (int) Math.floorMod(seed, (long) count);
+        // A test asks few questions, so a random spot is nearly always free
+        for (int i = 0; i < count; i++) {
+            int item = uncalibrated[(offset + i) % count];
+            if (!asked.get(item)) {
+                return item;
+            }
+        }
+        return -1;
+    }
+
+    // Every candidate of the bucket was asked already (long tests): look at all of them
+    private int bestNotAsked(double ability, BitSet asked) {
+        int best = -1;
+        double bestInformation = -1;
+        for (int item = asked.nextClearBit(0); item < size(); item = asked.nextClearBit(item + 1)) {
+            double itemInformation = information(item, ability);
+            if (itemInformation > bestInformation) {
+                best = item;
+                bestInformation = itemInformation;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,155 @@
+package main;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/**
+ * AdaptiveTest: one adaptive attempt. Every next question is the one that tells the
+ * most about the student at the current ability estimate (see AdaptiveItemBank),
+ * and the test stops as soon as the ability is known well enough.
+ *
+ * The ability is estimated the Bayesian way (expected a posteriori): a normal prior
+ * over a fixed grid of abilities, multiplied by the chance of each answer given at
+ * every grid point. An answer costs one pass over the grid, and the estimate and its
+ * standard error are the mean and spread of the result.
+ *
+ * The test ends when the standard error is at most the target (after at least
+ * MIN_QUESTIONS), after the maximum number of questions, or when the quiz runs out.
+ * Skipped questions count as wrong. Not thread-safe: it belongs to one dialog.
+ */
+public final class AdaptiveTest {
+
+    // 0.3 is a reliability of about 0.91 on the student scale
+    public static final double DEFAULT_TARGET_ERROR = 0.3;
+    public static final int DEFAULT_MAX_QUESTIONS = 30;
+    static final int MIN_QUESTIONS = 5;
+
+    private static final int GRID_POINTS = 81;
+
+    private final AdaptiveItemBank bank;
+    private final double targetError;
+    private final int maxQuestions;
+    private final SplittableRandom random;
+
+    private final double[] grid = new double[GRID_POINTS];
+    private final double[] posterior = new double[GRID_POINTS];
+    private double ability;
+    private double standardError;
+
+    private final BitSet asked = new BitSet();
+    private int[] askedOrder = new int[16];
+    private int askedCount;
+    private int current = -1; // Question waiting for its answer
+    private boolean finished;
+
+    public AdaptiveTest(AdaptiveItemBank bank, double targetError, int maxQuestions, long seed) {
+        this.bank = bank;
+        this.targetError = targetError;
+        this.maxQuestions = Math.max(1, Math.min(maxQuestions, bank.size()));
+        this.random = new SplittableRandom(seed);
+        double step = (AdaptiveItemBank.MAX_ABILITY - AdaptiveItemBank.MIN_ABILITY) / (GRID_POINTS - 1);
+        for (int i = 0; i < GRID_POINTS; i++) {
+            grid[i] = AdaptiveItemBank.MIN_ABILITY + i * step;
+            posterior[i] = Math.exp(-grid[i] * grid[i] / 2); // Standard normal prior
+        }
+        summarize();
+        finished = bank.size() == 0;
+    }
+
+    // The test for one attempt of 'quiz', following its settings
+    public static AdaptiveTest of(Quiz quiz, ItemStatistics statistics, long seed) {
+        int maxQuestions = quiz.getQuestionsPerAttempt() > 0 ? quiz.getQuestionsPerAttempt() : DEFAULT_MAX_QUESTIONS;
+        return new AdaptiveTest(AdaptiveItemBank.of(quiz, statistics), DEFAULT_TARGET_ERROR, maxQuestions, seed);
+    }
+
+    /**
+     * The question to ask now (its index in the quiz), or -1 once the test is over.
+     * Asking again before answer() gives the same question.
+     */
+    public int nextQuestion() {
+        if (current < 0 && !finished) {
+            current = bank.select(ability, asked, random.nextLong());
+            if (current < 0) {
+                finished = true;
+            }
+        }
+        return current;
+    }
+
+    // Takes in the answer to the current question and decides whether to go on
+    public void answer(boolean correct) {
+        if (current < 0) {
+            throw new IllegalStateException("No question is waiting for an answer");
+        }
+        for (int i = 0; i < GRID_POINTS; i++) {
+            double p = bank.probabilityCorrect(current, grid[i]);
+            posterior[i] *= correct ? p : 1 - p;
+        }
+        summarize();
+
+        asked.set(current);
+        if (askedCount == askedOrder.length) {
+            askedOrder = Arrays.copyOf(askedOrder, askedCount * 2);
+        }
+        askedOrder[askedCount++] = current;
+        current = -1;
+        finished = askedCount >= maxQuestions || askedCount == bank.size()
+                || (askedCount >= MIN_QUESTIONS && standardError <= targetError);
+    }
+
+    /**
+     * Takes in an answer given earlier to question 'questionIndex' of the quiz, as if
+     * it had been picked now: a resumed attempt (see AttemptJournal) goes on with the
+     * questions it really had, even if the bank was recalibrated since.
+     */
+    public void replay(int questionIndex, boolean correct) {
+        current = questionIndex;
+        answer(correct);
+    }
+
+    // Mean and spread of the posterior; also rescales it so the products don't underflow
+    private void summarize() {
+        double total = 0;
+        double sum = 0;
+        for (int i = 0; i < GRID_POINTS; i++) {
+            total += posterior[i];
+            sum += posterior[i] * grid[i];
+        }
+        ability = sum / total;
+        double squares = 0;
+        for (int i = 0; i < GRID_POINTS; i++) {
+            posterior[i] /= total;
+            double deviation = grid[i] - ability;
+            squares += posterior[i] * deviation * deviation;
+        }
+        standardError = Math.sqrt(squares);
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    // Current ability estimate, on the scale where the average student is 0
+    public double getAbility() {
+        return ability;
+    }
+
+    public double getStandardError() {
+        return standardError;
+    }
+
+    // The test never asks more than this
+    public int getMaxQuestions() {
+        return maxQuestions;
+    }
+
+    public int getAskedCount() {
+        return askedCount;
+    }
+
+    // The answered questions' indexes in the quiz, in the order they were asked
+    public int[] getAskedQuestions() {
+        return Arrays.copyOf(askedOrder, askedCount);
+    }
+}
@@ -0,0 +1,478 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * AppendLog: an append-only file of small records.
+ *
+ * Every record is written as [payload length][type][payload][CRC32], so a record
+ * that was only half written when the program died is noticed and cut off
+ * when the log is opened again.
+ *
+ * Writes are "group committed": callers only put their record in a queue and get
+ * a future back. One writer thread takes everything that is queued, writes it
+ * with a single call and then does one fsync for the whole group.
+ *
+ * The log can be read while it is being written (read()), and a commit listener
+ * can compact it by rewriting it without the records that are no longer needed.
+ *
+ * Only one process at a time may have a log open: the file is locked, and a second
+ * copy of the app (say "--server" next to the dashboard) fails to open it instead of
+ * writing over the first one's records. Reading maps the file in windows of
+ * MAP_WINDOW_BYTES, as a single mapping can't be bigger than 2 GB.
+ */
+public class AppendLog implements Closeable {
+
+    // Called for every good record while reading the log back
+    public interface RecordHandler {
+        void onRecord(byte type, ByteBuffer payload);
+    }
+
+    // Called on the writer thread after each group was written and synced
+    public interface CommitListener {
+        void afterCommit(AppendLog log) throws IOException;
+    }
+
+    // Decides which records rewrite() keeps
+    public interface RecordFilter {
+        boolean keep(byte type, ByteBuffer payload);
+    }
+
+    private static final int HEADER_SIZE = 5;  // int length + byte type
+    private static final int TRAILER_SIZE = 4; // int CRC32
+    private static final long MAP_WINDOW_BYTES = 64L * 1024 * 1024;
+
+    private final Path file;
+    private volatile FileChannel channel; // Replaced by rewrite(), on the writer thread
+    private final boolean syncOnCommit;
+    private final CommitListener commitListener;
+    private final Thread writerThread;
+
+    // Records waiting for the writer thread (guarded by 'this')
+    private List<PendingRecord> pending = new ArrayList<>();
+    private boolean closed = false;
+
+    private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(64 * 1024);
+    private volatile long size;
+    // Read side held while the file is read, write side to replace the channel (rewrite())
+    private final ReadWriteLock channelLock = new ReentrantReadWriteLock();
+
+    private static final class PendingRecord {
+        final byte type;
+        final byte[] payload;  // null for a mark (see mark()), which writes nothing
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        long end;              // Size of the log just after this record
+
+        PendingRecord(byte type, byte[] payload) {
+            this.type = type;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Opens (or creates) the log. 'syncOnCommit' decides whether every group is
+     * forced to disk; 'commitListener' may be null.
+     */
+    public AppendLog(Path file, String threadName, boolean syncOnCommit, CommitListener commitListener) throws IOException {
+        this.file = file;
+        this.syncOnCommit = syncOnCommit;
+        this.commitListener = commitListener;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        lockOrClose(channel, file);
+        this.size = channel.size();
+        channel.position(size); // New records go after the existing ones
+
+        writerThread = new Thread(this::writerLoop, threadName);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    // Locks the whole file for this process (released when 'channel' is closed), or closes it and fails
+    private static void lockOrClose(FileChannel channel, Path file) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null; // Already open in this process
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException(file + " is in use by another running copy of the app. Close that one first.");
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Current size of the log in bytes (what has been written so far)
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Reads every good record from the start of the log. A damaged or half-written
+     * record ends the log: it and everything after it is cut off.
+     * Returns the number of records read.
+     */
+    public synchronized int replay(RecordHandler handler) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize == 0) {
+            return 0;
+        }
+        int[] count = {0};
+        long goodEnd = readRecords(channel, fileSize, (type, payload) -> {
+            count[0]++;
+            handler.onRecord(type, payload);
+        });
+        if (goodEnd < fileSize) {
+            // Torn write at the end: drop it so new records follow the last good one.
+            channel.truncate(goodEnd);
+            channel.force(true);
+        }
+        size = goodEnd;
+        channel.position(goodEnd);
+        return count[0];
+    }
+
+    /**
+     * Reads every good record in the first 'end' bytes of the log (an end returned by
+     * mark()), while the log goes on being written. Does not change the log.
+     */
+    public void read(long end, RecordHandler handler) throws IOException {
+        if (end == 0) {
+            return;
+        }
+        channelLock.readLock().lock(); // rewrite() waits, so 'end' stays where it is
+        try {
+            readRecords(channel, end, handler);
+        } finally {
+            channelLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hands every good record among the first 'end' bytes of 'channel' to 'handler',
+     * mapping MAP_WINDOW_BYTES at a time. Returns the offset just after the last good
+     * record: 'end' unless the file is damaged or was torn there.
+     */
+    static long readRecords(FileChannel channel, long end, RecordHandler handler) throws IOException {
+        long position = 0;
+        while (position < end) {
+            long windowSize = Math.min(MAP_WINDOW_BYTES, end - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+            int goodEnd = readRecords(window, handler);
+            if (goodEnd == 0 && windowSize < end - position && windowSize >= HEADER_SIZE) {
+                // A record bigger than the window: map just that one
+                int length = window.getInt(0);
+                long recordSize = HEADER_SIZE + (long) length + TRAILER_SIZE;
+                if (length >= 0 && recordSize <= end - position) {
+                    goodEnd = readRecords(channel.map(FileChannel.MapMode.READ_ONLY, position, recordSize), handler);
+                }
+            }
+            if (goodEnd == 0) {
+                break; // Damaged or torn
+            }
+            position += goodEnd; // A record cut by the end of the window is read again with the next one
+        }
+        return position;
+    }
+
+    // Size of a record with a payload of 'payloadLength' bytes, as it is in the file
+    static int recordSize(int payloadLength) {
+        return HEADER_SIZE + payloadLength + TRAILER_SIZE;
+    }
+
+    /**
+     * Walks the records in 'buffer' from its position to its limit and hands each good one
+     * to 'handler'. Returns the offset just after the last good record.
+     * The payload buffers are only valid during the call, so handlers copy what they keep.
+     */
+    static int readRecords(ByteBuffer buffer, RecordHandler handler) {
+        CRC32 crc = new CRC32();
+        int position = buffer.position();
+        int limit = buffer.limit();
+        while (position + HEADER_SIZE + TRAILER_SIZE <= limit) {
+            int length = buffer.getInt(position);
+            if (length < 0 || position + HEADER_SIZE + length + TRAILER_SIZE > limit) {
+                break;
+            }
+            ByteBuffer body = buffer.duplicate();
+            body.position(position + 4).limit(position + HEADER_SIZE + length);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(position + HEADER_SIZE + length)) {
+                break;
+            }
+            byte type = buffer.get(position + 4);
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(position + HEADER_SIZE).limit(position + HEADER_SIZE + length);
+            handler.onRecord(type, payload.slice());
+            position += HEADER_SIZE + length + TRAILER_SIZE;
+        }
+        return position;
+    }
+
+    /**
+     * Queues a record. The future completes once the record is on disk
+     * (or at least written, if this log does not sync on every commit).
+     */
+    public CompletableFuture<Void> append(byte type, byte[] payload) {
+        PendingRecord record = new PendingRecord(type, payload);
+        synchronized (this) {
+            if (closed) {
+                record.done.completeExceptionally(new IOException("Log is closed: " + file));
+                return record.done;
+            }
+            pending.add(record);
+            notifyAll();
+        }
+        return record.done;
+    }
+
+    /**
+     * Completes with the size of the log once everything appended before this call is
+     * written: read() up to that size sees all of it and nothing appended later.
+     */
+    public CompletableFuture<Long> mark() {
+        PendingRecord mark = new PendingRecord((byte) 0, null);
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.completedFuture(size);
+            }
+            pending.add(mark);
+            notifyAll();
+        }
+        return mark.done.thenApply(written -> mark.end);
+    }
+
+    /**
+     * Writes the log again with only the records 'filter' keeps, under a temporary
+     * name that then replaces the log in one step: a crash leaves either the old or
+     * the new log, never half of one. Only call this from a CommitListener, so it
+     * runs on the writer thread.
+     */
+    public void rewrite(RecordFilter filter) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temporaryFile);
+        // Written, locked and kept open: once moved over the log it is the log's new channel
+        FileChannel out = FileChannel.open(temporaryFile, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            lockOrClose(out, temporaryFile);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+            CRC32 crc = new CRC32();
+            IOException[] failure = {null};
+            readRecords(channel, size, (type, payload) -> {
+                if (failure[0] != null || !filter.keep(type, payload.duplicate())) {
+                    return;
+                }
+                try {
+                    if (buffer.remaining() < recordSize(payload.remaining())) {
+                        writeFully(out, buffer);
+                    }
+                    if (buffer.remaining() < recordSize(payload.remaining())) {
+                        writeFully(out, putRecord(ByteBuffer.allocate(recordSize(payload.remaining())), crc, type, payload));
+                    } else {
+                        putRecord(buffer, crc, type, payload);
+                    }
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            writeFully(out, buffer);
+            out.force(true);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+        channelLock.writeLock().lock();
+        try {
+            try {
+                Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                out.close();
+                Files.deleteIfExists(temporaryFile);
+                throw e; // The old log is still there and still ours
+            }
+            FileChannel oldChannel = channel;
+            channel = out; // Its position is already at the end
+            size = out.size();
+            oldChannel.close();
+        } finally {
+            channelLock.writeLock().unlock();
+        }
+    }
+
+    // Writes what is in 'buffer' (from 0 to its position) and empties it
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Puts one record into 'buffer' ('payload' from its position to its limit) and returns 'buffer'
+    private static ByteBuffer putRecord(ByteBuffer buffer, CRC32 crc, byte type, ByteBuffer payload) {
+        crc.reset();
+        crc.update(type);
+        crc.update(payload.duplicate());
+        buffer.putInt(payload.remaining());
+        buffer.put(type);
+        buffer.put(payload.duplicate());
+        buffer.putInt((int) crc.getValue());
+        return buffer;
+    }
+
+    // Throws away everything in the log (used after its contents were saved somewhere else).
+    // Only call this from a CommitListener, so it runs on the writer thread.
+    public void truncate() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+        size = 0;
+    }
+
+    // Forces what was written so far to disk
+    public void sync() throws IOException {
+        channelLock.readLock().lock();
+        try {
+            channel.force(false);
+        } finally {
+            channelLock.readLock().unlock();
+        }
+    }
+
+    private void writerLoop() {
+        while (true) {
+            List<PendingRecord> group;
+            synchronized (this) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return; // Closed and nothing left to write
+                }
+                group = pending;
+                pending = new ArrayList<>();
+            }
+            writeGroup(group);
+        }
+    }
+
+    // Never throws: a failed group fails its futures and the writer goes on with the next one
+    private void writeGroup(List<PendingRecord> group) {
+        long groupStart = size;
+        try {
+            CRC32 crc = new CRC32();
+            long end = groupStart;
+            for (PendingRecord record : group) {
+                if (record.payload == null) {
+                    record.end = end; // A mark
+                    continue;
+                }
+                int recordSize = recordSize(record.payload.length);
+                if (writeBuffer.remaining() < recordSize) {
+                    flushWriteBuffer();
+                    if (writeBuffer.capacity() < recordSize) {
+                        writeBuffer = ByteBuffer.allocateDirect(recordSize);
+                    }
+                }
+                putRecord(writeBuffer, crc, record.type, ByteBuffer.wrap(record.payload));
+                end += recordSize;
+                record.end = end;
+            }
+            flushWriteBuffer();
+            if (syncOnCommit) {
+                channel.force(false); // One fsync for the whole group
+            }
+        } catch (Throwable e) { // Even an OutOfMemoryError for a huge record must not stop the writer
+            for (PendingRecord record : group) {
+                record.done.completeExceptionally(e);
+            }
+            dropPartialGroup(groupStart);
+            return;
+        }
+        for (PendingRecord record : group) {
+            record.done.complete(null);
+        }
+        if (commitListener != null) {
+            try {
+                commitListener.afterCommit(this);
+            } catch (Throwable e) {
+                // The group itself is safe; the listener can try again after the next one
+                Metrics.log.log(Level.WARNING, "Commit listener of " + file + " failed", e);
+            }
+        }
+    }
+
+    // Forgets whatever part of a failed group got written or buffered, so the next
+    // group does not follow half a record (replay would cut the log off there)
+    private void dropPartialGroup(long groupStart) {
+        writeBuffer.clear();
+        try {
+            channel.truncate(groupStart);
+            channel.position(groupStart);
+            size = groupStart;
+        } catch (IOException e) {
+            Metrics.log.log(Level.WARNING, "Could not cut a failed write off " + file, e);
+        }
+    }
+
+    private void flushWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            size += channel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    // Writes everything still queued, syncs and closes the file
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.force(true);
+        channel.close();
+    }
+}
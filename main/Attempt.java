@@ -0,0 +1,119 @@
+package main;
+
+/**
+ * Attempt: one finished try of a quiz by one user.
+ * Immutable, so it can be shared between threads without locking.
+ */
+public final class Attempt {
+
+    private final String user;
+    private final int quizId;
+    private final int[] questionIndexes; // Which questions of the quiz were asked (null = all, in order)
+    private final byte[] answers; // Chosen option per question, QuizGrader.NO_ANSWER if skipped
+    private final int score;
+    private final long timestamp; // When it was submitted (System.currentTimeMillis())
+    private final double ability; // Estimate of an adaptive attempt (see AdaptiveTest), NaN otherwise
+    private final double standardError;
+
+    public Attempt(String user, int quizId, int[] answers, int score, long timestamp) {
+        this(user, quizId, null, answers, score, timestamp);
+    }
+
+    // An attempt of some questions of the quiz: answers[i] belongs to question questionIndexes[i]
+    public Attempt(String user, int quizId, int[] questionIndexes, int[] answers, int score, long timestamp) {
+        this(user, quizId, questionIndexes, answers, score, Double.NaN, Double.NaN, timestamp);
+    }
+
+    // An adaptive attempt, with the ability estimate it ended on
+    public Attempt(String user, int quizId, int[] questionIndexes, int[] answers, int score,
+                   double ability, double standardError, long timestamp) {
+        this.user = user;
+        this.quizId = quizId;
+        this.questionIndexes = questionIndexes != null ? questionIndexes.clone() : null;
+        this.answers = new byte[answers.length];
+        for (int i = 0; i < answers.length; i++) {
+            this.answers[i] = (byte) answers[i];
+        }
+        this.score = score;
+        this.timestamp = timestamp;
+        this.ability = ability;
+        this.standardError = standardError;
+    }
+
+    // Used when reading attempts back from disk ('answers' is not copied)
+    Attempt(String user, int quizId, int[] questionIndexes, byte[] answers, int score,
+            double ability, double standardError, long timestamp) {
+        this.user = user;
+        this.quizId = quizId;
+        this.questionIndexes = questionIndexes;
+        this.answers = answers;
+        this.score = score;
+        this.ability = ability;
+        this.standardError = standardError;
+        this.timestamp = timestamp;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public int getQuizId() {
+        return quizId;
+    }
+
+    public int getQuestionCount() {
+        return answers.length;
+    }
+
+    // Answer number 'i' of this attempt (to question getQuestionIndex(i) of the quiz)
+    public int getAnswer(int i) {
+        return answers[i];
+    }
+
+    // The quiz question that answer number 'i' belongs to
+    public int getQuestionIndex(int i) {
+        return questionIndexes != null ? questionIndexes[i] : i;
+    }
+
+    // True if only some questions of the quiz were asked, or in another order
+    public boolean isDrawn() {
+        return questionIndexes != null;
+    }
+
+    // True if the questions were picked one by one to suit the user (score is then not comparable)
+    public boolean isAdaptive() {
+        return !Double.isNaN(ability);
+    }
+
+    public double getAbility() {
+        return ability;
+    }
+
+    public double getStandardError() {
+        return standardError;
+    }
+
+    int[] getQuestionIndexes() {
+        return questionIndexes;
+    }
+
+    public int[] getAnswers() {
+        int[] copy = new int[answers.length];
+        for (int i = 0; i < answers.length; i++) {
+            copy[i] = answers[i];
+        }
+        return copy;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    byte[] getPackedAnswers() {
+        return answers;
+    }
+}
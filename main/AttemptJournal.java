@@ -0,0 +1,437 @@
+package main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * AttemptJournal: a write-ahead journal of the attempts that are still being
+ * taken, so an attempt survives a crash or a closed dialog and can be resumed
+ * where it was left (see QuizTakingDialog).
+ *
+ * Every pick and every move to another question is one tiny record in an
+ * AppendLog. Writing only queues the record (well under a microsecond); the log's
+ * writer thread writes whatever is queued in one go, so many attempts at once
+ * share the writes. The log is not synced for every group but at most once every
+ * SYNC_INTERVAL_MILLIS: if the app dies, everything it had queued is in the file,
+ * and only a power cut can lose the last moments. A group that is left unsynced
+ * arms a sync on the TimerWheel for when the interval is up, so the last clicks
+ * before a pause reach the disk too.
+ *
+ * When an attempt is submitted it is ended in the journal. Once no attempt is in
+ * progress the file is emptied, and when it is opened with a lot of dead records
+ * it is rewritten with only the live ones. Attempts left for more than
+ * MAX_AGE_DAYS are dropped.
+ */
+public class AttemptJournal implements Closeable {
+
+    private static final byte BEGIN = 1;           // id, user, quiz, seed, pool size, attempt size, flags, deadline, start time
+    private static final byte ANSWER = 2;          // id, position in the attempt, option on screen
+    private static final byte MOVE = 3;            // id, question on screen
+    private static final byte ADAPTIVE_ANSWER = 4; // id, question of the quiz, option
+    private static final byte END = 5;             // id
+
+    private static final int SHUFFLED = 1;
+    private static final int ADAPTIVE = 2;
+
+    private static final long SYNC_INTERVAL_MILLIS = 1_000;
+    private static final long COMPACT_BYTES = 1 << 20; // Rewritten on open when bigger than this
+    private static final long MAX_AGE_DAYS = 30;
+
+    // An unfinished attempt as the journal last saw it (a copy; does not change)
+    public static final class InProgress {
+        private final long id;
+        private final String user;
+        private final int quizId;
+        private final long seed;
+        private final int poolSize;
+        private final int attemptSize;
+        private final int flags;
+        private final long deadlineMillis;
+        private final long startedMillis;
+        private final int[] answers;
+        private final int currentQuestionIndex;
+        private final int[] askedQuestions;
+
+        private InProgress(Entry entry) {
+            this.id = entry.id;
+            this.user = entry.user;
+            this.quizId = entry.quizId;
+            this.seed = entry.seed;
+            this.poolSize = entry.poolSize;
+            this.attemptSize = entry.attemptSize;
+            this.flags = entry.flags;
+            this.deadlineMillis = entry.deadlineMillis;
+            this.startedMillis = entry.startedMillis;
+            this.answers = Arrays.copyOf(entry.answers, entry.answerCount);
+            this.currentQuestionIndex = entry.currentQuestionIndex;
+            this.askedQuestions = Arrays.copyOf(entry.askedQuestions, (flags & ADAPTIVE) != 0 ? entry.answerCount : 0);
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public int getQuizId() {
+            return quizId;
+        }
+
+        // The attempt's random seed: the same seed gives the same QuestionDraw (or adaptive test) again
+        public long getSeed() {
+            return seed;
+        }
+
+        public boolean isAdaptive() {
+            return (flags & ADAPTIVE) != 0;
+        }
+
+        // Picks so far: the position on screen per question of the draw, or for an
+        // adaptive attempt the option per question asked (see getAskedQuestions())
+        public int[] getAnswers() {
+            return answers.clone();
+        }
+
+        public int getCurrentQuestionIndex() {
+            return currentQuestionIndex;
+        }
+
+        // Adaptive attempts: the questions of the quiz answered so far, in order
+        public int[] getAskedQuestions() {
+            return askedQuestions.clone();
+        }
+
+        // When time is up (System.currentTimeMillis()), 0 = no limit
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        public long getStartedMillis() {
+            return startedMillis;
+        }
+
+        // False if the quiz changed since, so the same seed would not give the same questions
+        public boolean matches(Quiz quiz) {
+            return quiz.getQuizId() == quizId && quiz.getNumOfQuestions() == poolSize
+                && quiz.isAdaptive() == isAdaptive() && quiz.isShuffleOptions() == ((flags & SHUFFLED) != 0)
+                && (isAdaptive() || quiz.getQuestionsInAttempt() == attemptSize);
+        }
+    }
+
+    // What is known about one live attempt (guarded by the object)
+    private static final class Entry {
+        final long id;
+        final String user;
+        final int quizId;
+        final long seed;
+        final int poolSize;
+        final int attemptSize;
+        final int flags;
+        final long deadlineMillis;
+        final long startedMillis;
+        int[] answers;
+        int answerCount;       // Used part of answers (and of askedQuestions)
+        int[] askedQuestions;  // Adaptive only
+        int currentQuestionIndex;
+
+        Entry(long id, String user, int quizId, long seed, int poolSize, int attemptSize, int flags,
+              long deadlineMillis, long startedMillis) {
+            this.id = id;
+            this.user = user;
+            this.quizId = quizId;
+            this.seed = seed;
+            this.poolSize = poolSize;
+            this.attemptSize = attemptSize;
+            this.flags = flags;
+            this.deadlineMillis = deadlineMillis;
+            this.startedMillis = startedMillis;
+            boolean adaptive = (flags & ADAPTIVE) != 0;
+            this.answers = new int[adaptive ? 8 : attemptSize];
+            this.answerCount = adaptive ? 0 : attemptSize;
+            this.askedQuestions = new int[adaptive ? 8 : 0];
+            Arrays.fill(answers, QuizGrader.NO_ANSWER);
+        }
+
+        void answer(int position, int answer) {
+            if (position >= 0 && position < answerCount && (flags & ADAPTIVE) == 0) {
+                answers[position] = answer;
+            }
+        }
+
+        void adaptiveAnswer(int questionIndex, int answer) {
+            if (answerCount == answers.length) {
+                answers = Arrays.copyOf(answers, answerCount * 2);
+                askedQuestions = Arrays.copyOf(askedQuestions, answerCount * 2);
+            }
+            askedQuestions[answerCount] = questionIndex;
+            answers[answerCount++] = answer;
+            currentQuestionIndex = answerCount;
+        }
+    }
+
+    private final AppendLog log; // null = nothing is kept on disk
+    private final ConcurrentHashMap<Long, Entry> live = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private volatile long lastSyncMillis;
+    private final AtomicBoolean syncArmed = new AtomicBoolean(); // A deferred sync is on its way
+    private volatile TimerWheel.Timeout deferredSync;
+
+    // A journal that keeps nothing on disk (attempts survive a closed dialog, not a crash)
+    public AttemptJournal() {
+        this.log = null;
+    }
+
+    // Opens (or creates) the journal in 'directory' and reads back the unfinished attempts
+    public AttemptJournal(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve("attempt-journal.log");
+        AppendLog replayed = new AppendLog(file, "attempt-journal-writer", false, null);
+        try {
+            replayed.replay(this::applyRecord);
+        } finally {
+            replayed.close();
+        }
+        long oldest = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_AGE_DAYS);
+        live.values().removeIf(entry -> entry.startedMillis < oldest);
+        if (Files.size(file) > COMPACT_BYTES) {
+            rewrite(file);
+        }
+        this.log = new AppendLog(file, "attempt-journal-writer", false, this::afterCommit);
+    }
+
+    // --- Writing (any thread; the map is always updated before the record is queued) ---
+
+    /**
+     * Starts journaling a new attempt of 'quiz' by 'user' and returns its id. Any
+     * unfinished attempt of the same user and quiz is ended: there is one at a time.
+     */
+    public long begin(String user, Quiz quiz, long seed, long deadlineMillis) {
+        InProgress older = findUnfinished(user, quiz.getQuizId());
+        if (older != null) {
+            end(older.getId());
+        }
+        int flags = (quiz.isShuffleOptions() ? SHUFFLED : 0) | (quiz.isAdaptive() ? ADAPTIVE : 0);
+        Entry entry = new Entry(nextId.getAndIncrement(), user, quiz.getQuizId(), seed, quiz.getNumOfQuestions(),
+            quiz.isAdaptive() ? 0 : quiz.getQuestionsInAttempt(), flags, deadlineMillis, System.currentTimeMillis());
+        live.put(entry.id, entry);
+        append(BEGIN, encodeBegin(entry));
+        return entry.id;
+    }
+
+    // The option at 'answer' on screen was picked for question 'position' of the attempt
+    public void answer(long id, int position, int answer) {
+        Entry entry = live.get(id);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            entry.answer(position, answer);
+        }
+        append(ANSWER, ByteBuffer.allocate(13).putLong(id).putInt(position).put((byte) answer).array());
+    }
+
+    // Question 'currentQuestionIndex' of the attempt is now on screen
+    public void moveTo(long id, int currentQuestionIndex) {
+        Entry entry = live.get(id);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            entry.currentQuestionIndex = currentQuestionIndex;
+        }
+        append(MOVE, ByteBuffer.allocate(12).putLong(id).putInt(currentQuestionIndex).array());
+    }
+
+    // An adaptive attempt answered question 'questionIndex' of the quiz with option 'answer'
+    public void adaptiveAnswer(long id, int questionIndex, int answer) {
+        Entry entry = live.get(id);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            entry.adaptiveAnswer(questionIndex, answer);
+        }
+        append(ADAPTIVE_ANSWER, ByteBuffer.allocate(13).putLong(id).putInt(questionIndex).put((byte) answer).array());
+    }
+
+    // The attempt was submitted (or given up): nothing to resume any more
+    public void end(long id) {
+        if (live.remove(id) != null) {
+            append(END, ByteBuffer.allocate(8).putLong(id).array());
+        }
+    }
+
+    private void append(byte type, byte[] payload) {
+        if (log != null) {
+            log.append(type, payload); // Not waited for: a click must not wait for the disk
+        }
+    }
+
+    // --- Reading ---
+
+    // The attempt 'user' left unfinished on the quiz, or null
+    public InProgress findUnfinished(String user, int quizId) {
+        for (Entry entry : live.values()) {
+            if (entry.quizId == quizId && entry.user.equals(user)) {
+                synchronized (entry) {
+                    return new InProgress(entry);
+                }
+            }
+        }
+        return null;
+    }
+
+    public int getUnfinishedCount() {
+        return live.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        TimerWheel.Timeout pendingSync = deferredSync;
+        if (pendingSync != null) {
+            pendingSync.cancel(); // Closing syncs anyway
+        }
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    // --- The log ---
+
+    // On the writer thread after every group: a sync now and then, and a fresh file when nothing is live
+    private void afterCommit(AppendLog appendLog) throws IOException {
+        if (live.isEmpty() && appendLog.size() > 0) {
+            appendLog.truncate(); // Everything written belongs to attempts that are over
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long sinceSync = now - lastSyncMillis;
+        if (sinceSync >= SYNC_INTERVAL_MILLIS) {
+            appendLog.sync();
+            lastSyncMillis = now;
+        } else if (syncArmed.compareAndSet(false, true)) {
+            // No later group may come to sync this one. The wheel's thread must not wait
+            // for the disk, so it hands the sync to the pipeline.
+            deferredSync = TimerWheel.shared().schedule(() -> TaskPipeline.shared().execute(this::syncDeferred),
+                SYNC_INTERVAL_MILLIS - sinceSync, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Syncs what the groups since the last sync left behind (on the pipeline)
+    private void syncDeferred() {
+        syncArmed.set(false); // Before syncing: a group written meanwhile may not be covered
+        try {
+            log.sync();
+            lastSyncMillis = System.currentTimeMillis();
+        } catch (ClosedChannelException e) {
+            // Closed meanwhile, which synced it
+        } catch (IOException e) {
+            Metrics.log.log(Level.WARNING, "Could not sync the attempt journal", e);
+        }
+    }
+
+    private void applyRecord(byte type, ByteBuffer payload) {
+        if (type == BEGIN) {
+            Entry entry = decodeBegin(payload);
+            live.put(entry.id, entry);
+            nextId.accumulateAndGet(entry.id + 1, Math::max);
+            return;
+        }
+        Entry entry = live.get(payload.getLong());
+        if (entry == null) {
+            return;
+        }
+        if (type == ANSWER) {
+            entry.answer(payload.getInt(), payload.get());
+        } else if (type == MOVE) {
+            entry.currentQuestionIndex = payload.getInt();
+        } else if (type == ADAPTIVE_ANSWER) {
+            entry.adaptiveAnswer(payload.getInt(), payload.get());
+        } else if (type == END) {
+            live.remove(entry.id);
+        }
+    }
+
+    // Replaces 'file' with one that only holds the live attempts
+    private void rewrite(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+        AppendLog rewritten = new AppendLog(temporary, "attempt-journal-compactor", true, null);
+        try {
+            for (Entry entry : live.values()) {
+                rewritten.append(BEGIN, encodeBegin(entry));
+                boolean adaptive = (entry.flags & ADAPTIVE) != 0;
+                for (int i = 0; i < entry.answerCount; i++) {
+                    if (adaptive) {
+                        rewritten.append(ADAPTIVE_ANSWER, ByteBuffer.allocate(13).putLong(entry.id)
+                            .putInt(entry.askedQuestions[i]).put((byte) entry.answers[i]).array());
+                    } else if (entry.answers[i] != QuizGrader.NO_ANSWER) {
+                        rewritten.append(ANSWER, ByteBuffer.allocate(13).putLong(entry.id)
+                            .putInt(i).put((byte) entry.answers[i]).array());
+                    }
+                }
+                if (!adaptive) {
+                    rewritten.append(MOVE, ByteBuffer.allocate(12).putLong(entry.id).putInt(entry.currentQuestionIndex).array());
+                }
+            }
+        } finally {
+            rewritten.close(); // Writes everything queued
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] encodeBegin(Entry entry) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(entry.id);
+            QuizStore.writeString(out, entry.user);
+            out.writeInt(entry.quizId);
+            out.writeLong(entry.seed);
+            out.writeInt(entry.poolSize);
+            out.writeInt(entry.attemptSize);
+            out.writeByte(entry.flags);
+            out.writeLong(entry.deadlineMillis);
+            out.writeLong(entry.startedMillis);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Can't happen when writing to memory
+        }
+    }
+
+    private static Entry decodeBegin(ByteBuffer in) {
+        long id = in.getLong();
+        String user = QuizStore.readString(in);
+        return new Entry(id, user, in.getInt(), in.getLong(), in.getInt(), in.getInt(), in.get(), in.getLong(), in.getLong());
+    }
+
+    // Every unfinished attempt, oldest first (for a "resume" list)
+    public List<InProgress> getUnfinished() {
+        List<InProgress> result = new ArrayList<>();
+        for (Entry entry : live.values()) {
+            synchronized (entry) {
+                result.add(new InProgress(entry));
+            }
+        }
+        result.sort((a, b) -> Long.compare(a.getStartedMillis(), b.getStartedMillis()));
+        return result;
+    }
+}
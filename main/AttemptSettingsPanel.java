@@ -0,0 +1,118 @@
+package main;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * AttemptSettingsPanel: how many questions an attempt draws from the quiz,
+ * whether the options are shuffled (see QuestionDraw) and whether the questions
+ * adapt to the student (see AdaptiveTest; the number is then the most asked),
+ * and the time limits of an attempt. Used when creating a quiz and from the
+ * right-click menu of a quiz card.
+ */
+public class AttemptSettingsPanel extends JPanel {
+
+    private final JSpinner questionsPerAttemptSpinner;
+    private final JCheckBox shuffleOptionsBox;
+    private final JCheckBox adaptiveBox;
+    private final JSpinner timeLimitSpinner;        // Minutes
+    private final JSpinner secondsPerQuestionSpinner;
+
+    // Starts out with the current settings of 'quiz' (the defaults if null: a quiz not created yet)
+    public AttemptSettingsPanel(Quiz quiz) {
+        int questionsPerAttempt = quiz != null ? quiz.getQuestionsPerAttempt() : 0;
+        int timeLimitSeconds = quiz != null ? quiz.getTimeLimitSeconds() : 0;
+        int secondsPerQuestion = quiz != null ? quiz.getSecondsPerQuestion() : 0;
+        setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+        setBackground(Theme.BACKGROUND);
+        JPanel drawRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        drawRow.setBackground(Theme.BACKGROUND);
+        drawRow.setAlignmentX(Component.LEFT_ALIGNMENT);
+        JPanel timeRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        timeRow.setBackground(Theme.BACKGROUND);
+        timeRow.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        JLabel drawLabel = new JLabel("Questions per attempt (0 = all): ");
+        drawLabel.setFont(Theme.BODY);
+        drawLabel.setForeground(Theme.TEXT_DARK);
+
+        questionsPerAttemptSpinner = new JSpinner(new SpinnerNumberModel(questionsPerAttempt, 0, Integer.MAX_VALUE, 1));
+        questionsPerAttemptSpinner.setFont(Theme.BODY);
+        ((JSpinner.DefaultEditor) questionsPerAttemptSpinner.getEditor()).getTextField().setColumns(5);
+
+        shuffleOptionsBox = new JCheckBox("Shuffle options", quiz != null && quiz.isShuffleOptions());
+        shuffleOptionsBox.setFont(Theme.BODY);
+        shuffleOptionsBox.setForeground(Theme.TEXT_DARK);
+        shuffleOptionsBox.setBackground(Theme.BACKGROUND);
+
+        adaptiveBox = new JCheckBox("Adaptive", quiz != null && quiz.isAdaptive());
+        adaptiveBox.setFont(Theme.BODY);
+        adaptiveBox.setForeground(Theme.TEXT_DARK);
+        adaptiveBox.setBackground(Theme.BACKGROUND);
+        adaptiveBox.setToolTipText("Pick each question by the answers so far and stop once the student's level is clear"
+            + " (at most " + AdaptiveTest.DEFAULT_MAX_QUESTIONS + " questions when 0)");
+
+        JLabel timeLimitLabel = new JLabel("Time limit in minutes (0 = none): ");
+        timeLimitLabel.setFont(Theme.BODY);
+        timeLimitLabel.setForeground(Theme.TEXT_DARK);
+        timeLimitSpinner = new JSpinner(new SpinnerNumberModel((timeLimitSeconds + 59) / 60, 0, 24 * 60, 1));
+        timeLimitSpinner.setFont(Theme.BODY);
+        ((JSpinner.DefaultEditor) timeLimitSpinner.getEditor()).getTextField().setColumns(4);
+
+        JLabel perQuestionLabel = new JLabel("Seconds per question: ");
+        perQuestionLabel.setFont(Theme.BODY);
+        perQuestionLabel.setForeground(Theme.TEXT_DARK);
+        perQuestionLabel.setToolTipText("0 = no limit; with a limit there is no going back to earlier questions");
+        secondsPerQuestionSpinner = new JSpinner(new SpinnerNumberModel(secondsPerQuestion, 0, 3600, 5));
+        secondsPerQuestionSpinner.setFont(Theme.BODY);
+        ((JSpinner.DefaultEditor) secondsPerQuestionSpinner.getEditor()).getTextField().setColumns(4);
+
+        drawRow.add(drawLabel);
+        drawRow.add(questionsPerAttemptSpinner);
+        drawRow.add(Box.createHorizontalStrut(20));
+        drawRow.add(shuffleOptionsBox);
+        drawRow.add(Box.createHorizontalStrut(10));
+        drawRow.add(adaptiveBox);
+        timeRow.add(timeLimitLabel);
+        timeRow.add(timeLimitSpinner);
+        timeRow.add(Box.createHorizontalStrut(20));
+        timeRow.add(perQuestionLabel);
+        timeRow.add(secondsPerQuestionSpinner);
+        add(drawRow);
+        add(Box.createRigidArea(new Dimension(0, 8)));
+        add(timeRow);
+        setMaximumSize(new Dimension(Integer.MAX_VALUE, getPreferredSize().height));
+    }
+
+    public int getQuestionsPerAttempt() {
+        return (Integer) questionsPerAttemptSpinner.getValue();
+    }
+
+    public boolean isShuffleOptions() {
+        return shuffleOptionsBox.isSelected();
+    }
+
+    public boolean isAdaptive() {
+        return adaptiveBox.isSelected();
+    }
+
+    public int getTimeLimitSeconds() {
+        return (Integer) timeLimitSpinner.getValue() * 60;
+    }
+
+    public int getSecondsPerQuestion() {
+        return (Integer) secondsPerQuestionSpinner.getValue();
+    }
+
+    // Puts the chosen settings on 'quiz'; true if they changed
+    public boolean applyTo(Quiz quiz) {
+        if (quiz.getQuestionsPerAttempt() == getQuestionsPerAttempt() && quiz.isShuffleOptions() == isShuffleOptions()
+                && quiz.isAdaptive() == isAdaptive() && quiz.getTimeLimitSeconds() == getTimeLimitSeconds()
+                && quiz.getSecondsPerQuestion() == getSecondsPerQuestion()) {
+            return false;
+        }
+        quiz.setAttemptSettings(getQuestionsPerAttempt(), isShuffleOptions(), isAdaptive());
+        quiz.setTimeLimits(getTimeLimitSeconds(), getSecondsPerQuestion());
+        return true;
+    }
+}
@@ -0,0 +1,438 @@
+package main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * AttemptStore: the attempts of every user, grouped by quiz.
+ *
+ * In memory each quiz has a bucket with its attempt count and a summary (latest
+ * and best attempt) per user, nothing more. Recording an attempt only touches
+ * the bucket of its quiz, so graders working on different quizzes never wait
+ * for each other, and the score shown on a card is a single map lookup.
+ *
+ * The attempts themselves are appended to "attempts.log" (see AppendLog). The
+ * summaries are rebuilt from it on the next start, and whatever needs every
+ * attempt (statistics, the results export) streams it from there with
+ * forEachAttempt() or addListener(listener, history), so memory does not grow
+ * with the history. Once attempts of deleted quizzes make up most of a big log,
+ * it is rewritten without them. Without a directory the history is kept in
+ * memory instead.
+ */
+public class AttemptStore implements Closeable {
+
+    // Record types in attempts.log
+    private static final byte ATTEMPT = 1;
+    private static final byte DELETE_QUIZ = 2;
+    private static final byte DRAWN_ATTEMPT = 3; // An ATTEMPT followed by the questions that were asked
+    private static final byte ADAPTIVE_ATTEMPT = 4; // A DRAWN_ATTEMPT followed by the ability estimate and its error
+
+    // Compact attempts.log once it is this big and at least half of it is attempts of deleted quizzes
+    private static final long COMPACT_LOG_BYTES = 8L * 1024 * 1024;
+
+    // Number of listener locks (a power of two); quiz ids are handed out in order, so they spread evenly
+    private static final int LOCK_STRIPES = 32;
+
+    // Told about new attempts and deleted quizzes (on the thread that made the change)
+    public interface Listener {
+        void attemptRecorded(Attempt attempt);
+
+        void quizRemoved(int quizId);
+    }
+
+    // Gets the recorded attempts one by one (see forEachAttempt()); returning false stops the reading
+    public interface HistoryHandler {
+        boolean onAttempt(Attempt attempt) throws IOException;
+    }
+
+    // Latest and best attempt of one user on one quiz (immutable, replaced on every attempt)
+    public static final class Summary {
+        private final Attempt latest;
+        private final Attempt best;
+        private final int attemptCount;
+
+        Summary(Attempt latest, Attempt best, int attemptCount) {
+            this.latest = latest;
+            this.best = best;
+            this.attemptCount = attemptCount;
+        }
+
+        public Attempt getLatest() {
+            return latest;
+        }
+
+        public Attempt getBest() {
+            return best;
+        }
+
+        public int getAttemptCount() {
+            return attemptCount;
+        }
+
+        Summary with(Attempt attempt) {
+            Attempt newLatest = attempt.getTimestamp() >= latest.getTimestamp() ? attempt : latest;
+            Attempt newBest = attempt.getScore() > best.getScore() ? attempt : best;
+            return new Summary(newLatest, newBest, attemptCount + 1);
+        }
+    }
+
+    // What is kept in memory about one quiz
+    private static final class QuizAttempts {
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicLong logBytes = new AtomicLong(); // Taken up by its attempts in attempts.log
+        final ConcurrentHashMap<String, Summary> byUser = new ConcurrentHashMap<>();
+
+        void add(Attempt attempt, int recordSize) {
+            count.incrementAndGet();
+            logBytes.addAndGet(recordSize);
+            byUser.merge(attempt.getUser(), new Summary(attempt, attempt, 1),
+                         (old, added) -> old.with(attempt));
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, QuizAttempts> buckets = new ConcurrentHashMap<>();
+    private final AppendLog log; // null = memory only
+    private final ConcurrentLinkedQueue<Attempt> memoryHistory = new ConcurrentLinkedQueue<>(); // Only without a log
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // Changes hold the read lock of their quiz's stripe while they update its bucket, tell the
+    // listeners and queue their record, so changes to different quizzes don't even share a
+    // lock; reading the history takes the write lock of every stripe (see readHistory())
+    private final ReadWriteLock[] listenerLocks = new ReadWriteLock[LOCK_STRIPES];
+    private final AtomicLong deadBytes = new AtomicLong(); // Of attempts.log, see compactIfNeeded()
+    private final AtomicInteger historyReaders = new AtomicInteger(); // No compacting while > 0
+
+    // The name attempts on this computer are recorded under
+    public static String currentUser() {
+        return System.getProperty("user.name", "user");
+    }
+
+    // An AttemptStore that keeps nothing on disk
+    public AttemptStore() {
+        this.log = null;
+        createListenerLocks();
+    }
+
+    // Opens (or creates) the attempt history in 'directory'
+    public AttemptStore(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        createListenerLocks();
+        this.log = new AppendLog(directory.resolve("attempts.log"), "attempt-store-writer", true, this::compactIfNeeded);
+        try {
+            log.replay((type, payload) -> {
+                int recordSize = AppendLog.recordSize(payload.remaining());
+                if (isAttempt(type)) {
+                    Attempt attempt = decodeAttempt(payload, type);
+                    bucket(attempt.getQuizId()).add(attempt, recordSize);
+                } else if (type == DELETE_QUIZ) {
+                    forget(payload.getInt(), recordSize);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    // Only told about what happens from now on: see addListener(listener, history) for what came before
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Registers 'listener' and hands every attempt recorded before that to 'history'
+     * (oldest first, attempts of deleted quizzes left out), so each attempt reaches
+     * exactly one of the two. The history is read from disk on the calling thread
+     * after the listener is registered, so the listener may already be called
+     * meanwhile; with a long history this takes a while, so call it off the EDT.
+     */
+    public void addListener(Listener listener, Consumer<Attempt> history) throws IOException {
+        readHistory(listener, attempt -> {
+            history.accept(attempt);
+            return true;
+        });
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Hands every attempt recorded so far to 'handler', oldest first (attempts of deleted quizzes left out)
+    public void forEachAttempt(HistoryHandler handler) throws IOException {
+        readHistory(null, handler);
+    }
+
+    /**
+     * Records a finished attempt. Its summary can be read back right away; the future
+     * completes once it is on disk. Safe to call from any number of threads.
+     */
+    public CompletableFuture<Void> record(Attempt attempt) {
+        byte type = attempt.isAdaptive() ? ADAPTIVE_ATTEMPT : attempt.isDrawn() ? DRAWN_ATTEMPT : ATTEMPT;
+        byte[] payload = log != null ? encodeAttempt(attempt) : null;
+        ReadWriteLock listenerLock = listenerLock(attempt.getQuizId());
+        listenerLock.readLock().lock();
+        try {
+            bucket(attempt.getQuizId()).add(attempt, payload != null ? AppendLog.recordSize(payload.length) : 0);
+            for (Listener listener : listeners) {
+                listener.attemptRecorded(attempt);
+            }
+            if (log == null) {
+                memoryHistory.add(attempt);
+                return CompletableFuture.completedFuture(null);
+            }
+            return log.append(type, payload); // Queued before readHistory() can mark the log
+        } finally {
+            listenerLock.readLock().unlock();
+        }
+    }
+
+    // Forgets all attempts of a deleted quiz
+    public CompletableFuture<Void> removeQuiz(int quizId) {
+        ReadWriteLock listenerLock = listenerLock(quizId);
+        listenerLock.readLock().lock();
+        try {
+            if (log != null) {
+                forget(quizId, AppendLog.recordSize(4));
+            } else {
+                buckets.remove(quizId);
+                memoryHistory.removeIf(attempt -> attempt.getQuizId() == quizId);
+            }
+            for (Listener listener : listeners) {
+                listener.quizRemoved(quizId);
+            }
+            if (log == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return log.append(DELETE_QUIZ, ByteBuffer.allocate(4).putInt(quizId).array());
+        } finally {
+            listenerLock.readLock().unlock();
+        }
+    }
+
+    // Latest/best attempt of 'user' on the quiz, or null if they never took it
+    public Summary getSummary(String user, int quizId) {
+        QuizAttempts attempts = buckets.get(quizId);
+        return attempts != null ? attempts.byUser.get(user) : null;
+    }
+
+    public int getAttemptCount(int quizId) {
+        QuizAttempts attempts = buckets.get(quizId);
+        return attempts != null ? attempts.count.get() : 0;
+    }
+
+    private void createListenerLocks() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            listenerLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    private ReadWriteLock listenerLock(int quizId) {
+        return listenerLocks[quizId & (LOCK_STRIPES - 1)];
+    }
+
+    private QuizAttempts bucket(int quizId) {
+        QuizAttempts attempts = buckets.get(quizId);
+        return attempts != null ? attempts : buckets.computeIfAbsent(quizId, id -> new QuizAttempts());
+    }
+
+    // Drops the bucket of a deleted quiz; its attempts in the log (and the delete record) are now garbage
+    private void forget(int quizId, int deleteRecordSize) {
+        QuizAttempts attempts = buckets.remove(quizId);
+        deadBytes.addAndGet(deleteRecordSize + (attempts != null ? attempts.logBytes.get() : 0));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    // --- Reading the history ---
+
+    private void readHistory(Listener listener, HistoryHandler handler) throws IOException {
+        historyReaders.incrementAndGet();
+        try {
+            CompletableFuture<Long> logEnd = null;
+            List<Attempt> recorded = null;
+            // All stripes, always in the same order: no change is under way while the listener
+            // is added and the log marked, so each one lands on exactly one side of the mark
+            for (ReadWriteLock listenerLock : listenerLocks) {
+                listenerLock.writeLock().lock();
+            }
+            try {
+                if (listener != null) {
+                    listeners.add(listener);
+                }
+                if (log != null) {
+                    logEnd = log.mark(); // Everything recorded so far, nothing recorded after
+                } else {
+                    recorded = new ArrayList<>(memoryHistory);
+                }
+            } finally {
+                for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+                    listenerLocks[i].writeLock().unlock();
+                }
+            }
+            if (recorded != null) {
+                for (Attempt attempt : recorded) {
+                    if (!handler.onAttempt(attempt)) {
+                        return;
+                    }
+                }
+            } else {
+                readLog(waitFor(logEnd), handler);
+            }
+        } finally {
+            historyReaders.decrementAndGet();
+        }
+    }
+
+    private static long waitFor(CompletableFuture<Long> logEnd) throws IOException {
+        try {
+            return logEnd.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the attempt history");
+        } catch (ExecutionException e) {
+            throw new IOException("Could not write the attempt history", e.getCause());
+        }
+    }
+
+    // Hands the live attempts among the first 'end' bytes of the log to 'handler'
+    private void readLog(long end, HistoryHandler handler) throws IOException {
+        Map<Integer, Integer> lastDeletes = lastDeletes(log, end);
+        int[] recordIndex = {0};
+        boolean[] stopped = {false};
+        IOException[] failure = {null};
+        log.read(end, (type, payload) -> {
+            int index = recordIndex[0]++;
+            if (stopped[0] || !isAttempt(type)) {
+                return;
+            }
+            Attempt attempt = decodeAttempt(payload, type);
+            if (!isLive(attempt.getQuizId(), index, lastDeletes)) {
+                return;
+            }
+            try {
+                stopped[0] = !handler.onAttempt(attempt);
+            } catch (IOException e) {
+                failure[0] = e;
+                stopped[0] = true;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    // Index of the last DELETE_QUIZ record of each quiz among the first 'end' bytes of the log.
+    // The id of a deleted quiz can be given out again, so only attempts after that record count.
+    private static Map<Integer, Integer> lastDeletes(AppendLog log, long end) throws IOException {
+        Map<Integer, Integer> lastDeletes = new HashMap<>();
+        int[] recordIndex = {0};
+        log.read(end, (type, payload) -> {
+            if (type == DELETE_QUIZ) {
+                lastDeletes.put(payload.getInt(), recordIndex[0]);
+            }
+            recordIndex[0]++;
+        });
+        return lastDeletes;
+    }
+
+    private static boolean isLive(int quizId, int recordIndex, Map<Integer, Integer> lastDeletes) {
+        Integer deletedAt = lastDeletes.get(quizId);
+        return deletedAt == null || deletedAt < recordIndex;
+    }
+
+    private static boolean isAttempt(byte type) {
+        return type == ATTEMPT || type == DRAWN_ATTEMPT || type == ADAPTIVE_ATTEMPT;
+    }
+
+    // Commit listener of attempts.log (on its writer thread): rewrites the log without the
+    // attempts of deleted quizzes and the delete records, once they are most of a big log
+    private void compactIfNeeded(AppendLog appendLog) throws IOException {
+        long sizeBefore = appendLog.size();
+        if (sizeBefore < COMPACT_LOG_BYTES || deadBytes.get() < sizeBefore / 2 || historyReaders.get() > 0) {
+            return; // A reader's end of the log must stay where it is
+        }
+        Map<Integer, Integer> lastDeletes = lastDeletes(appendLog, sizeBefore);
+        int[] recordIndex = {0};
+        appendLog.rewrite((type, payload) -> {
+            int index = recordIndex[0]++;
+            return isAttempt(type) && isLive(decodeAttempt(payload, type).getQuizId(), index, lastDeletes);
+        });
+        deadBytes.addAndGet(appendLog.size() - sizeBefore);
+    }
+
+    // --- Log records ---
+
+    static byte[] encodeAttempt(Attempt attempt) {
+        try {
+            byte[] answers = attempt.getPackedAnswers();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + answers.length);
+            DataOutputStream out = new DataOutputStream(bytes);
+            QuizStore.writeString(out, attempt.getUser());
+            out.writeInt(attempt.getQuizId());
+            out.writeInt(attempt.getScore());
+            out.writeLong(attempt.getTimestamp());
+            out.writeInt(answers.length);
+            out.write(answers);
+            if (attempt.isDrawn()) {
+                for (int questionIndex : attempt.getQuestionIndexes()) {
+                    out.writeInt(questionIndex);
+                }
+            }
+            if (attempt.isAdaptive()) {
+                out.writeDouble(attempt.getAbility());
+                out.writeDouble(attempt.getStandardError());
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Can't happen when writing to memory
+        }
+    }
+
+    static Attempt decodeAttempt(ByteBuffer in, byte type) {
+        String user = QuizStore.readString(in);
+        int quizId = in.getInt();
+        int score = in.getInt();
+        long timestamp = in.getLong();
+        byte[] answers = new byte[in.getInt()];
+        in.get(answers);
+        int[] questionIndexes = null;
+        if (type == DRAWN_ATTEMPT || type == ADAPTIVE_ATTEMPT) {
+            questionIndexes = new int[answers.length];
+            for (int i = 0; i < questionIndexes.length; i++) {
+                questionIndexes[i] = in.getInt();
+            }
+        }
+        double ability = Double.NaN;
+        double standardError = Double.NaN;
+        if (type == ADAPTIVE_ATTEMPT) {
+            ability = in.getDouble();
+            standardError = in.getDouble();
+        }
+        return new Attempt(user, quizId, questionIndexes, answers, score, ability, standardError, timestamp);
+    }
+}
@@ -0,0 +1,238 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * BatchGrader: grades many attempts of one quiz at once, without any UI.
+ *
+ * The answer key is packed into a byte array and the answers are stored by
+ * question ("columnar"): one byte array per question with one entry per
+ * attempt. Grading walks one question column at a time over a block of
+ * attempts, which is a tight loop over plain arrays. Blocks are graded in
+ * parallel on all cores and nothing is allocated per attempt.
+ *
+ * The scoring rule is QuizGrader.isCorrect, same as QuizTakingDialog.
+ */
+public class BatchGrader {
+
+    // Attempts per parallel task; small enough that a block of scores stays in cache
+    private static final int BLOCK_SIZE = 4096;
+
+    // The correct option of every question, packed
+    public static final class AnswerKey {
+        private final byte[] correctAnswers;
+
+        public AnswerKey(byte[] correctAnswers) {
+            this.correctAnswers = correctAnswers.clone();
+        }
+
+        public static AnswerKey of(Quiz quiz) {
+            List<Question> questions = quiz.getQuestions();
+            byte[] correct = new byte[questions.size()];
+            for (int i = 0; i < correct.length; i++) {
+                correct[i] = (byte) questions.get(i).getCorrectAnswerIndex();
+            }
+            return new AnswerKey(correct);
+        }
+
+        public int getQuestionCount() {
+            return correctAnswers.length;
+        }
+    }
+
+    /**
+     * Answers of many attempts, one column per question.
+     * An answer is the chosen option index or QuizGrader.NO_ANSWER.
+     */
+    public static final class AnswerSheet {
+        private final byte[][] columns;
+        private int attemptCount = 0;
+
+        public AnswerSheet(int questionCount, int initialCapacity) {
+            columns = new byte[questionCount][Math.max(16, initialCapacity)];
+        }
+
+        public int getQuestionCount() {
+            return columns.length;
+        }
+
+        public int getAttemptCount() {
+            return attemptCount;
+        }
+
+        // Adds one attempt (answers[i] is the answer to question i) and returns its number
+        public int addAttempt(int[] answers) {
+            int attempt = attemptCount;
+            ensureCapacity(attempt + 1);
+            for (int question = 0; question < columns.length; question++) {
+                columns[question][attempt] = question < answers.length ? (byte) answers[question] : QuizGrader.NO_ANSWER;
+            }
+            attemptCount++;
+            return attempt;
+        }
+
+        public int getAnswer(int attempt, int question) {
+            return columns[question][attempt];
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (columns.length == 0 || columns[0].length >= capacity) {
+                return;
+            }
+            int newLength = Math.max(capacity, columns[0].length * 2);
+            for (int question = 0; question < columns.length; question++) {
+                columns[question] = Arrays.copyOf(columns[question], newLength);
+            }
+        }
+
+        /**
+         * Reads an exported answer sheet: one attempt per line, answers separated by commas.
+         * An empty field or -1 means "no answer". Lines starting with '#' are skipped.
+         */
+        public static AnswerSheet readCsv(Path file, int questionCount) throws IOException {
+            AnswerSheet sheet = new AnswerSheet(questionCount, 1024);
+            int[] answers = new int[questionCount];
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty() || line.charAt(0) == '#') {
+                        continue;
+                    }
+                    Arrays.fill(answers, QuizGrader.NO_ANSWER);
+                    int question = 0;
+                    int value = 0;
+                    boolean hasValue = false;
+                    boolean negative = false;
+                    for (int i = 0; i <= line.length(); i++) {
+                        char c = i < line.length() ? line.charAt(i) : ',';
+                        if (c == ',') {
+                            if (question < questionCount && hasValue) {
+                                answers[question] = negative ? -value : value;
+                            }
+                            question++;
+                            value = 0;
+                            hasValue = false;
+                            negative = false;
+                        } else if (c >= '0' && c <= '9') {
+                            value = value * 10 + (c - '0');
+                            hasValue = true;
+                        } else if (c == '-') {
+                            negative = true;
+                        }
+                    }
+                    sheet.addAttempt(answers);
+                }
+            }
+            return sheet;
+        }
+    }
+
+    // Scores of a batch plus how long grading took
+    public static final class Result {
+        private final int[] scores;
+        private final long elapsedNanos;
+
+        Result(int[] scores, long elapsedNanos) {
+            this.scores = scores;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int[] getScores() {
+            return scores;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getAttemptsPerSecond() {
+            return elapsedNanos == 0 ? 0 : scores.length * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        public double getAverageScore() {
+            long total = 0;
+            for (int score : scores) {
+                total += score;
+            }
+            return scores.length == 0 ? 0 : (double) total / scores.length;
+        }
+    }
+
+    /**
+     * Grades every attempt on the sheet against the key.
+     * 'scores' receives one score per attempt; pass null to get a new array.
+     */
+    public static Result grade(AnswerKey key, AnswerSheet sheet, int[] scores) {
+        if (key.getQuestionCount() != sheet.getQuestionCount()) {
+            throw new IllegalArgumentException("Answer key has " + key.getQuestionCount()
+                    + " questions, answer sheet has " + sheet.getQuestionCount());
+        }
+        int attempts = sheet.getAttemptCount();
+        int[] out = scores != null && scores.length >= attempts ? scores : new int[attempts];
+
+        long start = System.nanoTime();
+        int blocks = (attempts + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int from = block * BLOCK_SIZE;
+            int to = Math.min(attempts, from + BLOCK_SIZE);
+            gradeBlock(key.correctAnswers, sheet.columns, out, from, to);
+        });
+        return new Result(out.length == attempts ? out : Arrays.copyOf(out, attempts), System.nanoTime() - start);
+    }
+
+    private static void gradeBlock(byte[] correctAnswers, byte[][] columns, int[] scores, int from, int to) {
+        Arrays.fill(scores, from, to, 0);
+        for (int question = 0; question < correctAnswers.length; question++) {
+            byte[] column = columns[question];
+            int correct = correctAnswers[question];
+            for (int attempt = from; attempt < to; attempt++) {
+                if (QuizGrader.isCorrect(column[attempt], correct)) {
+                    scores[attempt]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Command line: QuizApp --grade <quizId> <answers.csv>
+     * Grades the file against a saved quiz and prints a summary.
+     */
+    public static void runFromCommandLine(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: QuizApp --grade <quizId> <answers.csv>");
+            return;
+        }
+        int quizId = Integer.parseInt(args[1]);
+        Path answersFile = Paths.get(args[2]);
+
+        try (QuizStore store = new QuizStore(QuizStore.defaultDirectory())) {
+            Quiz quiz = null;
+            for (Quiz q : store.recover()) {
+                if (q.getQuizId() == quizId) {
+                    quiz = q;
+                }
+            }
+            if (quiz == null) {
+                System.err.println("No quiz with id " + quizId);
+                return;
+            }
+            AnswerKey key = AnswerKey.of(quiz);
+            AnswerSheet sheet = AnswerSheet.readCsv(answersFile, key.getQuestionCount());
+            Result result = grade(key, sheet, null);
+
+            System.out.printf("Quiz:          %s (%d questions)%n", quiz.getQuizName(), key.getQuestionCount());
+            System.out.printf("Attempts:      %d%n", sheet.getAttemptCount());
+            System.out.printf("Average score: %.2f%n", result.getAverageScore());
+            System.out.printf("Grading time:  %.1f ms (%.0f attempts/sec)%n",
+                    result.getElapsedNanos() / 1e6, result.getAttemptsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package main;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+
+/**
+ * DialogPool: the quiz-taking and result dialogs of a window, built once and
+ * reused for every attempt.
+ *
+ * Building a QuizTakingDialog means its panels, radio buttons and buttons, and
+ * showing it the first time means a native window and a layout as well; doing that
+ * on every "Take Quiz" click is the pause you feel before the first question. Here
+ * both dialogs are built while the app is idle after startup (prewarmWhenIdle()),
+ * and each attempt just binds them to its quiz. Closing a dialog hides it for the
+ * next time.
+ *
+ * Only used on the EDT. The dialogs are modal, so one of each is enough; should the
+ * pooled one still be showing, a fresh one is handed out instead, and disposed of
+ * once it is closed.
+ */
+public final class DialogPool {
+
+    // Long enough for the dashboard to be up and painted
+    private static final int PREWARM_DELAY_MILLIS = 1_000;
+
+    private final JFrame owner;
+    private QuizTakingDialog takingDialog;
+    private QuizResultDialog resultDialog;
+
+    private DialogPool(JFrame owner) {
+        this.owner = owner;
+    }
+
+    // The pool of the dialogs owned by 'owner'. It is kept on the frame itself: in a static
+    // map the pooled dialogs, which refer to their owner, would keep every frame alive.
+    public static DialogPool forOwner(JFrame owner) {
+        JRootPane rootPane = owner.getRootPane();
+        DialogPool pool = (DialogPool) rootPane.getClientProperty(DialogPool.class);
+        if (pool == null) {
+            pool = new DialogPool(owner);
+            rootPane.putClientProperty(DialogPool.class, pool);
+        }
+        return pool;
+    }
+
+    // Builds the dialogs (and their native windows) shortly after startup, on the EDT
+    public void prewarmWhenIdle() {
+        Timer timer = new Timer(PREWARM_DELAY_MILLIS, e -> {
+            prewarm(takingDialog());
+            prewarm(resultDialog());
+        });
+        timer.setRepeats(false);
+        timer.start();
+    }
+
+    // A taking dialog that is not in use; bind() it to the attempt before showing it
+    public QuizTakingDialog takingDialog() {
+        if (takingDialog == null) {
+            takingDialog = new QuizTakingDialog(owner);
+        } else if (takingDialog.isVisible()) {
+            return disposedWhenClosed(new QuizTakingDialog(owner));
+        }
+        return takingDialog;
+    }
+
+    // A result dialog that is not in use; bind() it to the result before showing it
+    public QuizResultDialog resultDialog() {
+        if (resultDialog == null) {
+            resultDialog = new QuizResultDialog(owner);
+        } else if (resultDialog.isVisible()) {
+            return disposedWhenClosed(new QuizResultDialog(owner));
+        }
+        return resultDialog;
+    }
+
+    // Creates the native window and lays the dialog out without showing it
+    private static void prewarm(JDialog dialog) {
+        Dimension size = dialog.getSize();
+        dialog.pack();
+        dialog.setSize(size); // pack() sized it to its contents; keep the size the dialog chose
+        dialog.validate();
+    }
+
+    // Closing only hides a dialog; one that is not pooled lets go of its native window then
+    private static <T extends JDialog> T disposedWhenClosed(T dialog) {
+        dialog.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                dialog.dispose();
+            }
+        });
+        return dialog;
+    }
+}
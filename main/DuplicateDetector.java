@@ -0,0 +1,558 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * DuplicateDetector: finds questions that say almost the same thing.
+ *
+ * A question (text plus options) is cut into overlapping 4-letter pieces and
+ * summarised by a MinHash signature: the smallest hash of those pieces under 32
+ * different hash functions. Two questions share a signature entry with a
+ * probability equal to how much their pieces overlap (Jaccard similarity), so
+ * the signatures can be compared instead of the texts.
+ *
+ * To avoid comparing every pair, the signature is split into 8 bands of 4
+ * entries (locality-sensitive hashing): only questions that agree on a whole
+ * band become candidates, which catches pairs above ~60% similarity and almost
+ * nothing below. Only the lowest 8 bits of each signature entry are kept for the
+ * final comparison, 32 bytes per question.
+ *
+ * As an index it follows the repository like QuizSearchIndex, to warn when a
+ * question that already exists is added. findDuplicateGroups() checks a whole
+ * catalog in one go, on all cores.
+ */
+public class DuplicateDetector implements QuizRepository.Listener, Quiz.QuestionListener {
+
+    public static final double DEFAULT_THRESHOLD = 0.6;
+
+    private static final int SHINGLE_LENGTH = 4;
+    private static final int SIGNATURE_SIZE = 32;
+    private static final int BANDS = 8;
+    private static final int ROWS = SIGNATURE_SIZE / BANDS;
+    private static final int MAX_MATCHES = 5;
+    private static final int REMOVED = -1;             // Quiz id of an item whose quiz was removed
+    private static final long VANISHED = Long.MAX_VALUE; // Band entry of a question that vanished meanwhile
+
+    // The hash functions: h(x) = (a * x + b) >>> 32 with random odd 'a'
+    private static final long[] HASH_MULTIPLIERS = new long[SIGNATURE_SIZE];
+    private static final long[] HASH_ADDENDS = new long[SIGNATURE_SIZE];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_D0C5L); // Fixed, so signatures are stable
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            HASH_MULTIPLIERS[i] = random.nextLong() | 1;
+            HASH_ADDENDS[i] = random.nextLong();
+        }
+    }
+
+    // A question that looks like the one asked about
+    public static final class Match {
+        private final Quiz quiz;
+        private final int questionIndex;
+        private final double similarity;
+
+        Match(Quiz quiz, int questionIndex, double similarity) {
+            this.quiz = quiz;
+            this.questionIndex = questionIndex;
+            this.similarity = similarity;
+        }
+
+        public Quiz getQuiz() {
+            return quiz;
+        }
+
+        public int getQuestionIndex() {
+            return questionIndex;
+        }
+
+        public Question getQuestion() {
+            return quiz.getQuestions().get(questionIndex);
+        }
+
+        // Estimated share of text the two questions have in common (0..1)
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+
+    // A quiz whose questions are indexed, and the items they became
+    private static final class IndexedQuiz {
+        final Quiz quiz;
+        int[] items = new int[8];
+        int itemCount = 0;
+
+        IndexedQuiz(Quiz quiz) {
+            this.quiz = quiz;
+        }
+
+        void add(int item) {
+            if (itemCount == items.length) {
+                items = Arrays.copyOf(items, itemCount * 2);
+            }
+            items[itemCount++] = item;
+        }
+    }
+
+    private final QuizRepository quizes;
+
+    // The quizzes whose questions are indexed, by id (guarded by 'this')
+    private final Map<Integer, IndexedQuiz> indexedQuizes = new HashMap<>();
+
+    // Indexed questions: item number -> quiz, question, packed signature (guarded by 'this').
+    // Items of removed quizzes get the quiz id REMOVED (found through their IndexedQuiz,
+    // so removing a quiz never looks at the others); once they are half of all items
+    // they are purged.
+    private int itemCount = 0;
+    private int removedItems = 0;
+    private int[] itemQuizIds = new int[64];
+    private int[] itemQuestionIndexes = new int[64];
+    private byte[] itemSignatures = new byte[64 * SIGNATURE_SIZE];
+
+    // Band key -> item, open addressing; each entry is (key << 32 | item + 1), 0 = empty
+    private long[] bandTable = new long[1024];
+    private int bandEntries = 0;
+
+    public DuplicateDetector(QuizRepository quizes) {
+        this.quizes = quizes;
+    }
+
+    /**
+     * Indexes the quizzes already in the repository and starts following it.
+     * A quiz the listener already took in is not indexed twice, so calling this
+     * again does no harm either. With many questions on disk this takes a while,
+     * so call it off the EDT.
+     */
+    public void build() {
+        quizes.addListener(this);
+        for (Quiz quiz : quizes) {
+            quizAdded(quiz);
+        }
+    }
+
+    // --- Following the repository ---
+
+    @Override
+    public void quizAdded(Quiz quiz) {
+        synchronized (this) {
+            IndexedQuiz indexed = indexedQuizes.get(quiz.getQuizId());
+            if (indexed != null && indexed.quiz == quiz) {
+                return; // build() and the listener both got here
+            }
+            if (indexed != null) {
+                dropItems(indexed); // The version it replaces, if its quizRemoved() hasn't come yet
+            }
+            indexedQuizes.put(quiz.getQuizId(), new IndexedQuiz(quiz));
+        }
+        if (quizes.findById(quiz.getQuizId()) != quiz) {
+            dropQuiz(quiz); // build() came across it after it was removed
+            return;
+        }
+        // Questions added from now on come through questionAdded(), so only index the ones before
+        int questionCount = quiz.addQuestionListener(this);
+        boolean wasLoaded = quiz.areQuestionsLoaded();
+        List<Question> questions = quiz.getQuestions();
+        byte[] signature = new byte[SIGNATURE_SIZE];
+        int[] bandKeys = new int[BANDS];
+        for (int i = 0; i < Math.min(questionCount, questions.size()); i++) {
+            signatureOf(questions.get(i), signature, bandKeys);
+            addItem(quiz, i, signature, bandKeys);
+        }
+        if (!wasLoaded) {
+            quiz.releaseQuestions();
+        }
+    }
+
+    @Override
+    public void quizRemoved(Quiz quiz) {
+        quiz.removeQuestionListener(this);
+        dropQuiz(quiz);
+    }
+
+    @Override
+    public void questionAdded(Quiz quiz, Question question) {
+        byte[] signature = new byte[SIGNATURE_SIZE];
+        int[] bandKeys = new int[BANDS];
+        signatureOf(question, signature, bandKeys);
+        addItem(quiz, quiz.getNumOfQuestions() - 1, signature, bandKeys);
+    }
+
+    // Marks the items of 'quiz' as removed, and purges them all once they are half of the index
+    private synchronized void dropQuiz(Quiz quiz) {
+        IndexedQuiz indexed = indexedQuizes.get(quiz.getQuizId());
+        if (indexed == null || indexed.quiz != quiz) {
+            return; // Not indexed, or replaced by a newer version that is
+        }
+        indexedQuizes.remove(quiz.getQuizId());
+        dropItems(indexed);
+    }
+
+    private void dropItems(IndexedQuiz indexed) {
+        for (int i = 0; i < indexed.itemCount; i++) {
+            itemQuizIds[indexed.items[i]] = REMOVED;
+        }
+        removedItems += indexed.itemCount;
+        indexed.itemCount = 0;
+        if (removedItems * 2 > itemCount) {
+            purgeRemovedItems();
+        }
+    }
+
+    // Moves the live items down over the removed ones and rebuilds the band table for them
+    private void purgeRemovedItems() {
+        int[] newItems = new int[itemCount];
+        int liveCount = 0;
+        for (int item = 0; item < itemCount; item++) {
+            if (itemQuizIds[item] == REMOVED) {
+                newItems[item] = -1;
+                continue;
+            }
+            newItems[item] = liveCount;
+            itemQuizIds[liveCount] = itemQuizIds[item];
+            itemQuestionIndexes[liveCount] = itemQuestionIndexes[item];
+            System.arraycopy(itemSignatures, item * SIGNATURE_SIZE, itemSignatures, liveCount * SIGNATURE_SIZE, SIGNATURE_SIZE);
+            liveCount++;
+        }
+        long[] table = new long[bandTable.length];
+        for (long entry : bandTable) {
+            if (entry != 0 && newItems[(int) entry - 1] >= 0) {
+                insertBandEntry(table, (int) (entry >>> 32), newItems[(int) entry - 1]);
+            }
+        }
+        bandTable = table;
+        bandEntries = liveCount * BANDS;
+        itemCount = liveCount;
+        removedItems = 0;
+        for (IndexedQuiz indexed : indexedQuizes.values()) {
+            for (int i = 0; i < indexed.itemCount; i++) {
+                indexed.items[i] = newItems[indexed.items[i]];
+            }
+        }
+    }
+
+    private synchronized void addItem(Quiz quiz, int questionIndex, byte[] signature, int[] bandKeys) {
+        IndexedQuiz indexed = indexedQuizes.get(quiz.getQuizId());
+        if (indexed == null || indexed.quiz != quiz) {
+            return; // Removed (or replaced) while its questions were being indexed
+        }
+        if (itemCount == itemQuizIds.length) {
+            int capacity = itemCount * 2;
+            itemQuizIds = Arrays.copyOf(itemQuizIds, capacity);
+            itemQuestionIndexes = Arrays.copyOf(itemQuestionIndexes, capacity);
+            itemSignatures = Arrays.copyOf(itemSignatures, capacity * SIGNATURE_SIZE);
+        }
+        int item = itemCount++;
+        itemQuizIds[item] = quiz.getQuizId();
+        itemQuestionIndexes[item] = questionIndex;
+        System.arraycopy(signature, 0, itemSignatures, item * SIGNATURE_SIZE, SIGNATURE_SIZE);
+        indexed.add(item);
+
+        if ((bandEntries + BANDS) * 2 > bandTable.length) {
+            growBandTable();
+        }
+        for (int band = 0; band < BANDS; band++) {
+            insertBandEntry(bandTable, bandKeys[band], item);
+        }
+        bandEntries += BANDS;
+    }
+
+    private static void insertBandEntry(long[] table, int key, int item) {
+        int mask = table.length - 1;
+        int i = mix(key) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = ((long) key << 32) | (item + 1L);
+    }
+
+    private void growBandTable() {
+        long[] grown = new long[bandTable.length * 2];
+        for (long entry : bandTable) {
+            if (entry != 0) {
+                insertBandEntry(grown, (int) (entry >>> 32), (int) entry - 1);
+            }
+        }
+        bandTable = grown;
+    }
+
+    // --- Looking up one question ---
+
+    /**
+     * Questions in the catalog that look like 'text' with 'options', most similar first.
+     * 'currentQuiz' (may be null) is the quiz being edited; its questions are checked
+     * too, even if it was not added to the repository yet.
+     */
+    public List<Match> findSimilar(String text, List<String> options, Quiz currentQuiz, double threshold) {
+        byte[] signature = new byte[SIGNATURE_SIZE];
+        int[] bandKeys = new int[BANDS];
+        signatureOf(new Question(text, options, QuizGrader.NO_ANSWER), signature, bandKeys);
+
+        List<Match> matches = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        synchronized (this) {
+            int mask = bandTable.length - 1;
+            for (int band = 0; band < BANDS; band++) {
+                for (int i = mix(bandKeys[band]) & mask; bandTable[i] != 0; i = (i + 1) & mask) {
+                    if ((int) (bandTable[i] >>> 32) != bandKeys[band]) {
+                        continue;
+                    }
+                    int item = (int) bandTable[i] - 1;
+                    if (itemQuizIds[item] == REMOVED) {
+                        continue;
+                    }
+                    long questionKey = ((long) itemQuizIds[item] << 32) | itemQuestionIndexes[item];
+                    if (!seen.add(questionKey)) {
+                        continue;
+                    }
+                    double similarity = estimateSimilarity(signature, 0, itemSignatures, item * SIGNATURE_SIZE);
+                    Quiz quiz = quizes.findById(itemQuizIds[item]);
+                    if (similarity >= threshold && quiz != null && itemQuestionIndexes[item] < quiz.getNumOfQuestions()) {
+                        matches.add(new Match(quiz, itemQuestionIndexes[item], similarity));
+                    }
+                }
+            }
+        }
+
+        // The quiz being edited is small and may not be indexed yet: compare directly.
+        if (currentQuiz != null && quizes.findById(currentQuiz.getQuizId()) != currentQuiz) {
+            byte[] other = new byte[SIGNATURE_SIZE];
+            List<Question> questions = currentQuiz.getQuestions();
+            for (int i = 0; i < questions.size(); i++) {
+                signatureOf(questions.get(i), other, bandKeys);
+                double similarity = estimateSimilarity(signature, 0, other, 0);
+                if (similarity >= threshold) {
+                    matches.add(new Match(currentQuiz, i, similarity));
+                }
+            }
+        }
+
+        matches.sort(Comparator.comparingDouble(Match::getSimilarity).reversed());
+        return matches.size() > MAX_MATCHES ? new ArrayList<>(matches.subList(0, MAX_MATCHES)) : matches;
+    }
+
+    // --- Checking a whole catalog ---
+
+    /**
+     * Groups of near-duplicate questions in 'quizes' (each group at least two questions,
+     * biggest groups first). Similarity in each Match is against the group's first question.
+     * Runs in O(n log n) for n questions, spread over all cores.
+     */
+    public static List<List<Match>> findDuplicateGroups(List<Quiz> quizes, double threshold) {
+        // Number the questions: quiz q owns items firstItem[q] .. firstItem[q + 1] - 1.
+        int[] firstItem = new int[quizes.size() + 1];
+        for (int q = 0; q < quizes.size(); q++) {
+            firstItem[q + 1] = firstItem[q] + quizes.get(q).getNumOfQuestions();
+        }
+        int itemTotal = firstItem[quizes.size()];
+        byte[] signatures = new byte[itemTotal * SIGNATURE_SIZE];
+        long[][] bands = new long[BANDS][itemTotal];
+
+        // 1. Signatures, one quiz per task.
+        IntStream.range(0, quizes.size()).parallel().forEach(q -> {
+            Quiz quiz = quizes.get(q);
+            boolean wasLoaded = quiz.areQuestionsLoaded();
+            List<Question> questions = quiz.getQuestions();
+            byte[] signature = new byte[SIGNATURE_SIZE];
+            int[] bandKeys = new int[BANDS];
+            int count = Math.min(questions.size(), firstItem[q + 1] - firstItem[q]);
+            for (int i = 0; i < count; i++) {
+                int item = firstItem[q] + i;
+                signatureOf(questions.get(i), signature, bandKeys);
+                System.arraycopy(signature, 0, signatures, item * SIGNATURE_SIZE, SIGNATURE_SIZE);
+                for (int band = 0; band < BANDS; band++) {
+                    bands[band][item] = ((long) bandKeys[band] << 32) | item;
+                }
+            }
+            for (int i = count; i < firstItem[q + 1] - firstItem[q]; i++) {
+                for (int band = 0; band < BANDS; band++) {
+                    bands[band][firstItem[q] + i] = VANISHED;
+                }
+            }
+            if (!wasLoaded) {
+                quiz.releaseQuestions();
+            }
+        });
+
+        // 2. Per band, sort by key: questions agreeing on the band end up next to each other.
+        //    Each one is compared with the first of its run only, which keeps this linear.
+        List<long[]> pairsPerBand = Collections.synchronizedList(new ArrayList<>());
+        IntStream.range(0, BANDS).parallel().forEach(band -> {
+            long[] sorted = bands[band];
+            Arrays.sort(sorted);
+            long[] pairs = new long[16];
+            int pairCount = 0;
+            int runStart = 0;
+            for (int i = 1; i <= sorted.length; i++) {
+                boolean runEnds = i == sorted.length || (sorted[i] >>> 32) != (sorted[runStart] >>> 32);
+                if (!runEnds) {
+                    continue;
+                }
+                int first = (int) sorted[runStart];
+                // VANISHED sorts last, even after real entries with its key (0x7FFFFFFF), so the
+                // comparisons stop at the first one; a run that starts with one has only those.
+                for (int j = runStart + 1; j < i && sorted[j] != VANISHED; j++) {
+                    int other = (int) sorted[j];
+                    if (estimateSimilarity(signatures, first * SIGNATURE_SIZE, signatures, other * SIGNATURE_SIZE) >= threshold) {
+                        if (pairCount == pairs.length) {
+                            pairs = Arrays.copyOf(pairs, pairCount * 2);
+                        }
+                        pairs[pairCount++] = ((long) first << 32) | other;
+                    }
+                }
+                runStart = i;
+            }
+            pairsPerBand.add(Arrays.copyOf(pairs, pairCount));
+        });
+
+        // 3. Join the pairs into groups.
+        int[] parent = new int[itemTotal];
+        for (int i = 0; i < itemTotal; i++) {
+            parent[i] = i;
+        }
+        for (long[] pairs : pairsPerBand) {
+            for (long pair : pairs) {
+                int a = find(parent, (int) (pair >>> 32));
+                int b = find(parent, (int) pair);
+                if (a != b) {
+                    parent[Math.max(a, b)] = Math.min(a, b); // The earliest question leads the group
+                }
+            }
+        }
+        BitSet paired = new BitSet(itemTotal);
+        for (long[] pairs : pairsPerBand) {
+            for (long pair : pairs) {
+                paired.set((int) (pair >>> 32));
+                paired.set((int) pair);
+            }
+        }
+        Map<Integer, List<Integer>> members = new HashMap<>();
+        for (int item = paired.nextSetBit(0); item >= 0; item = paired.nextSetBit(item + 1)) {
+            members.computeIfAbsent(find(parent, item), root -> new ArrayList<>()).add(item); // In item order, leader first
+        }
+
+        List<List<Match>> groups = new ArrayList<>();
+        for (List<Integer> group : members.values()) {
+            int leader = group.get(0);
+            List<Match> matches = new ArrayList<>(group.size());
+            for (int item : group) {
+                int q = quizOfItem(firstItem, item);
+                double similarity = estimateSimilarity(signatures, leader * SIGNATURE_SIZE, signatures, item * SIGNATURE_SIZE);
+                matches.add(new Match(quizes.get(q), item - firstItem[q], similarity));
+            }
+            groups.add(matches);
+        }
+        groups.sort(Comparator.comparingInt((List<Match> group) -> group.size()).reversed());
+        return groups;
+    }
+
+    private static int find(int[] parent, int item) {
+        while (parent[item] != item) {
+            parent[item] = parent[parent[item]]; // Path halving
+            item = parent[item];
+        }
+        return item;
+    }
+
+    private static int quizOfItem(int[] firstItem, int item) {
+        int at = Arrays.binarySearch(firstItem, item);
+        if (at < 0) {
+            return -at - 2;
+        }
+        while (at + 1 < firstItem.length && firstItem[at + 1] == item) {
+            at++; // Skip quizzes without questions
+        }
+        return at;
+    }
+
+    // --- Signatures ---
+
+    /**
+     * Fills 'signature' with the low bytes of the question's MinHash values and
+     * 'bandKeys' with one hash per band of the full values.
+     */
+    static void signatureOf(Question question, byte[] signature, int[] bandKeys) {
+        String text = normalize(question);
+        long[] minimums = new long[SIGNATURE_SIZE];
+        Arrays.fill(minimums, Long.MAX_VALUE);
+
+        int shingleCount = Math.max(1, text.length() - SHINGLE_LENGTH + 1);
+        for (int start = 0; start < shingleCount; start++) {
+            int end = Math.min(text.length(), start + SHINGLE_LENGTH);
+            int shingle = 0;
+            for (int i = start; i < end; i++) {
+                shingle = shingle * 31 + text.charAt(i);
+            }
+            long x = shingle & 0xFFFFFFFFL;
+            for (int k = 0; k < SIGNATURE_SIZE; k++) {
+                long value = (x * HASH_MULTIPLIERS[k] + HASH_ADDENDS[k]) >>> 32;
+                if (value < minimums[k]) {
+                    minimums[k] = value;
+                }
+            }
+        }
+
+        for (int k = 0; k < SIGNATURE_SIZE; k++) {
+            signature[k] = (byte) minimums[k];
+        }
+        for (int band = 0; band < BANDS; band++) {
+            int key = band + 1;
+            for (int row = 0; row < ROWS; row++) {
+                key = key * 0x01000193 ^ (int) minimums[band * ROWS + row];
+            }
+            bandKeys[band] = mix(key);
+        }
+    }
+
+    // Lower-case letters and digits, everything else becomes one space; options sorted
+    private static String normalize(Question question) {
+        List<String> options = new ArrayList<>(question.getOptions());
+        Collections.sort(options, String.CASE_INSENSITIVE_ORDER);
+        StringBuilder text = new StringBuilder(128);
+        appendNormalized(text, question.getQuestionText());
+        for (String option : options) {
+            appendNormalized(text, option);
+        }
+        return text.toString();
+    }
+
+    private static void appendNormalized(StringBuilder out, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                out.append(Character.toLowerCase(c));
+            } else if (out.length() > 0 && out.charAt(out.length() - 1) != ' ') {
+                out.append(' ');
+            }
+        }
+        if (out.length() > 0 && out.charAt(out.length() - 1) != ' ') {
+            out.append(' ');
+        }
+    }
+
+    // Share of equal signature bytes, corrected for bytes that are equal by chance (1 in 256)
+    private static double estimateSimilarity(byte[] a, int aOffset, byte[] b, int bOffset) {
+        int equal = 0;
+        for (int k = 0; k < SIGNATURE_SIZE; k++) {
+            if (a[aOffset + k] == b[bOffset + k]) {
+                equal++;
+            }
+        }
+        double chance = 1.0 / 256;
+        return Math.max(0, ((double) equal / SIGNATURE_SIZE - chance) / (1 - chance));
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,122 @@
+package main;
+
+import java.awt.EventQueue;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EdtMonitor: watches how quickly the EDT gets to new events.
+ *
+ * Every PROBE_INTERVAL its thread posts an empty event and records, in
+ * Metrics.EDT_DISPATCH, how long it waited in the queue: that is how long a click
+ * or a keystroke would have waited too. If a probe is still waiting after
+ * STALL_THRESHOLD, the EDT is stuck in something; its stack trace goes to the
+ * metrics log once per stall, which says what. The numbers are also in JMX
+ * ("main:type=EdtMonitor").
+ */
+public final class EdtMonitor implements EdtMonitorMXBean {
+
+    private static final long PROBE_INTERVAL_MILLIS = 100;
+    private static final long STALL_THRESHOLD_MILLIS = 500;
+
+    private static final EdtMonitor INSTANCE = new EdtMonitor();
+
+    private final LongAdder stallCount = new LongAdder();
+    private final AtomicLong longestStallNanos = new AtomicLong();
+    private volatile long answeredProbe;   // postedAt of the last probe the EDT ran
+    private volatile Thread eventThread;   // Seen by the first probe
+    private boolean started;               // Guarded by this
+
+    private EdtMonitor() {
+    }
+
+    public static EdtMonitor instance() {
+        return INSTANCE;
+    }
+
+    // Starts watching, on a thread of its own; later calls do nothing
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        Thread watcher = new Thread(this::watch, "edt-monitor");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch() {
+        while (true) {
+            long postedAt = System.nanoTime();
+            EventQueue.invokeLater(() -> {
+                eventThread = Thread.currentThread();
+                Metrics.EDT_DISPATCH.record(System.nanoTime() - postedAt);
+                answeredProbe = postedAt;
+            });
+            try {
+                Thread.sleep(PROBE_INTERVAL_MILLIS);
+                waitForProbe(postedAt);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // Returns once the EDT has run the probe posted at 'postedAt', reporting it if that took too long
+    private void waitForProbe(long postedAt) throws InterruptedException {
+        boolean reported = false;
+        while (answeredProbe != postedAt) {
+            long waitedNanos = System.nanoTime() - postedAt;
+            if (!reported && waitedNanos >= TimeUnit.MILLISECONDS.toNanos(STALL_THRESHOLD_MILLIS)) {
+                reported = true;
+                stallCount.increment();
+                Metrics.warn("EDT stalled for " + TimeUnit.NANOSECONDS.toMillis(waitedNanos) + " ms, it is at:",
+                    eventThreadStack());
+            }
+            Thread.sleep(PROBE_INTERVAL_MILLIS / 2);
+        }
+        if (reported) {
+            long stallNanos = System.nanoTime() - postedAt;
+            longestStallNanos.accumulateAndGet(stallNanos, Math::max);
+            Metrics.log.info("EDT responsive again after " + TimeUnit.NANOSECONDS.toMillis(stallNanos) + " ms");
+        }
+    }
+
+    // Where the EDT is right now (found by name if it got stuck before the first probe)
+    private StackTraceElement[] eventThreadStack() {
+        Thread thread = eventThread;
+        if (thread != null) {
+            return thread.getStackTrace();
+        }
+        for (Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+            if (entry.getKey().getName().startsWith("AWT-EventQueue")) {
+                return entry.getValue();
+            }
+        }
+        return new StackTraceElement[0];
+    }
+
+    // --- EdtMonitorMXBean ---
+
+    @Override
+    public long getStallCount() {
+        return stallCount.sum();
+    }
+
+    @Override
+    public double getLongestStallMillis() {
+        return longestStallNanos.get() / 1e6;
+    }
+
+    @Override
+    public long getStallThresholdMillis() {
+        return STALL_THRESHOLD_MILLIS;
+    }
+
+    @Override
+    public double getP99DispatchLatencyMillis() {
+        return Metrics.EDT_DISPATCH.getValueAtPercentile(99) / 1e6;
+    }
+}
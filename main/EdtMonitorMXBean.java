@@ -0,0 +1,17 @@
+package main;
+
+/**
+ * EdtMonitorMXBean: what JMX shows of the EdtMonitor ("main:type=EdtMonitor").
+ * The full dispatch latency histogram is "main:type=Operation,name=EdtDispatch".
+ */
+public interface EdtMonitorMXBean {
+
+    // Times a probe waited longer than the threshold, since the app started
+    long getStallCount();
+
+    double getLongestStallMillis();
+
+    long getStallThresholdMillis();
+
+    double getP99DispatchLatencyMillis();
+}
@@ -0,0 +1,320 @@
+package main;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ItemStatistics: how each question of a quiz performs (item analysis).
+ *
+ * Per question:
+ *   - difficulty:     share of attempts that got it right (p-value);
+ *   - discrimination: point-biserial correlation between getting it right and the
+ *                     score on the rest of the quiz. Good questions are answered
+ *                     right by the students who do well overall (say above 0.2);
+ *                     near zero or negative means the question is confusing or
+ *                     its answer key is wrong;
+ *   - how often each option was chosen (and how often it was skipped).
+ *
+ * Adaptive attempts are kept apart: everybody gets questions at their own level
+ * there, so the share of right answers says little. What they do tell is how
+ * getting a question right goes with the ability the test ended on, and that is
+ * what AdaptiveItemBank calibrates from when a quiz is only ever taken adaptively.
+ *
+ * Everything is updated with running means and co-moments (Welford) as each
+ * attempt comes in, so no attempt is looked at twice and memory is a few numbers
+ * per question and option, whatever the number of attempts.
+ */
+public class ItemStatistics implements AttemptStore.Listener {
+
+    // What is known about one question (a snapshot, does not change)
+    public static final class QuestionStats {
+        private final long attemptCount;
+        private final double difficulty;
+        private final double discrimination;
+        private final long[] optionCounts;
+        private final long skippedCount;
+        private final long adaptiveAttemptCount;
+        private final double adaptiveDifficulty;
+        private final double meanAbility;
+        private final double abilityDeviation;
+        private final double abilityCorrelation;
+
+        QuestionStats(long attemptCount, double difficulty, double discrimination, long[] optionCounts, long skippedCount) {
+            this(attemptCount, difficulty, discrimination, optionCounts, skippedCount, 0, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+        }
+
+        QuestionStats(long attemptCount, double difficulty, double discrimination, long[] optionCounts, long skippedCount,
+                      long adaptiveAttemptCount, double adaptiveDifficulty, double meanAbility, double abilityDeviation,
+                      double abilityCorrelation) {
+            this.attemptCount = attemptCount;
+            this.difficulty = difficulty;
+            this.discrimination = discrimination;
+            this.optionCounts = optionCounts;
+            this.skippedCount = skippedCount;
+            this.adaptiveAttemptCount = adaptiveAttemptCount;
+            this.adaptiveDifficulty = adaptiveDifficulty;
+            this.meanAbility = meanAbility;
+            this.abilityDeviation = abilityDeviation;
+            this.abilityCorrelation = abilityCorrelation;
+        }
+
+        // Attempts that included this question
+        public long getAttemptCount() {
+            return attemptCount;
+        }
+
+        // Share of those attempts that answered it correctly (0..1)
+        public double getDifficulty() {
+            return difficulty;
+        }
+
+        // Point-biserial correlation (-1..1), NaN while everybody scored the same
+        public double getDiscrimination() {
+            return discrimination;
+        }
+
+        public int getOptionCount() {
+            return optionCounts.length;
+        }
+
+        // How often option 'option' was chosen
+        public long getOptionCount(int option) {
+            return optionCounts[option];
+        }
+
+        public long getSkippedCount() {
+            return skippedCount;
+        }
+
+        // Adaptive attempts that asked this question (not counted above)
+        public long getAdaptiveAttemptCount() {
+            return adaptiveAttemptCount;
+        }
+
+        // Share of those answered correctly, NaN if none
+        public double getAdaptiveDifficulty() {
+            return adaptiveDifficulty;
+        }
+
+        // Mean and standard deviation of the abilities those attempts ended on
+        public double getMeanAbility() {
+            return meanAbility;
+        }
+
+        public double getAbilityDeviation() {
+            return abilityDeviation;
+        }
+
+        // Point-biserial correlation between answering it right and the ability, NaN while unknown
+        public double getAbilityCorrelation() {
+            return abilityCorrelation;
+        }
+    }
+
+    // Running statistics of one quiz, one array slot per question (guarded by the object)
+    private static final class QuizStats {
+        int[] correctAnswers = new int[0]; // Answer key, so grading needs no questions
+        long[] counts = new long[0];       // Attempts per question
+        double[] meanCorrect = new double[0];
+        double[] meanRestScore = new double[0];
+        double[] restScoreM2 = new double[0];  // Sum of squared deviations of the rest score
+        double[] coMoment = new double[0];     // Sum of (correct - mean) * (rest score - mean)
+        long[][] optionCounts = new long[0][];  // Last slot of each = skipped
+        // The same against the ability of adaptive attempts
+        long[] adaptiveCounts = new long[0];
+        double[] adaptiveMeanCorrect = new double[0];
+        double[] meanAbility = new double[0];
+        double[] abilityM2 = new double[0];
+        double[] abilityCoMoment = new double[0];
+        long attemptCount;
+
+        void setAnswerKey(List<Question> questions) {
+            int oldSize = correctAnswers.length;
+            int size = questions.size();
+            correctAnswers = Arrays.copyOf(correctAnswers, size);
+            counts = Arrays.copyOf(counts, size);
+            meanCorrect = Arrays.copyOf(meanCorrect, size);
+            meanRestScore = Arrays.copyOf(meanRestScore, size);
+            restScoreM2 = Arrays.copyOf(restScoreM2, size);
+            coMoment = Arrays.copyOf(coMoment, size);
+            optionCounts = Arrays.copyOf(optionCounts, size);
+            adaptiveCounts = Arrays.copyOf(adaptiveCounts, size);
+            adaptiveMeanCorrect = Arrays.copyOf(adaptiveMeanCorrect, size);
+            meanAbility = Arrays.copyOf(meanAbility, size);
+            abilityM2 = Arrays.copyOf(abilityM2, size);
+            abilityCoMoment = Arrays.copyOf(abilityCoMoment, size);
+            for (int i = 0; i < size; i++) {
+                Question question = questions.get(i);
+                correctAnswers[i] = question.getCorrectAnswerIndex();
+                int slots = question.getOptions().size() + 1;
+                if (i >= oldSize) {
+                    optionCounts[i] = new long[slots];
+                } else if (optionCounts[i].length < slots) {
+                    long[] grown = new long[slots];
+                    System.arraycopy(optionCounts[i], 0, grown, 0, optionCounts[i].length - 1);
+                    grown[slots - 1] = optionCounts[i][optionCounts[i].length - 1];
+                    optionCounts[i] = grown;
+                }
+            }
+        }
+
+        void add(Attempt attempt) {
+            attemptCount++;
+            int score = attempt.getScore();
+            for (int answerIndex = 0; answerIndex < attempt.getQuestionCount(); answerIndex++) {
+                int i = attempt.getQuestionIndex(answerIndex); // Drawn attempts ask only some questions
+                if (i >= correctAnswers.length) {
+                    continue;
+                }
+                int answer = attempt.getAnswer(answerIndex);
+                int correct = QuizGrader.isCorrect(answer, correctAnswers[i]) ? 1 : 0;
+                int restScore = score - correct;
+
+                long n = ++counts[i];
+                double correctDelta = correct - meanCorrect[i];
+                meanCorrect[i] += correctDelta / n;
+                double restDelta = restScore - meanRestScore[i];
+                meanRestScore[i] += restDelta / n;
+                restScoreM2[i] += restDelta * (restScore - meanRestScore[i]);
+                coMoment[i] += correctDelta * (restScore - meanRestScore[i]);
+
+                long[] chosen = optionCounts[i];
+                chosen[answer >= 0 && answer < chosen.length - 1 ? answer : chosen.length - 1]++;
+            }
+        }
+
+        void addAdaptive(Attempt attempt) {
+            attemptCount++;
+            double ability = attempt.getAbility();
+            for (int answerIndex = 0; answerIndex < attempt.getQuestionCount(); answerIndex++) {
+                int i = attempt.getQuestionIndex(answerIndex);
+                if (i >= correctAnswers.length) {
+                    continue;
+                }
+                int correct = QuizGrader.isCorrect(attempt.getAnswer(answerIndex), correctAnswers[i]) ? 1 : 0;
+
+                long n = ++adaptiveCounts[i];
+                double correctDelta = correct - adaptiveMeanCorrect[i];
+                adaptiveMeanCorrect[i] += correctDelta / n;
+                double abilityDelta = ability - meanAbility[i];
+                meanAbility[i] += abilityDelta / n;
+                abilityM2[i] += abilityDelta * (ability - meanAbility[i]);
+                abilityCoMoment[i] += correctDelta * (ability - meanAbility[i]);
+            }
+        }
+
+        QuestionStats snapshot(int i) {
+            long n = counts[i];
+            double p = meanCorrect[i];
+            double discrimination = Double.NaN;
+            if (n > 1 && p > 0 && p < 1 && restScoreM2[i] > 0) {
+                // cov(x, y) / (sd(x) * sd(y)); the 1/n factors cancel
+                discrimination = coMoment[i] / Math.sqrt(p * (1 - p) * n * restScoreM2[i]);
+            }
+            long[] chosen = optionCounts[i];
+
+            long adaptiveN = adaptiveCounts[i];
+            double adaptiveP = adaptiveMeanCorrect[i];
+            double abilityCorrelation = Double.NaN;
+            if (adaptiveN > 1 && adaptiveP > 0 && adaptiveP < 1 && abilityM2[i] > 0) {
+                abilityCorrelation = abilityCoMoment[i] / Math.sqrt(adaptiveP * (1 - adaptiveP) * adaptiveN * abilityM2[i]);
+            }
+            return new QuestionStats(n, n > 0 ? p : Double.NaN, discrimination,
+                    Arrays.copyOf(chosen, chosen.length - 1), chosen[chosen.length - 1],
+                    adaptiveN, adaptiveN > 0 ? adaptiveP : Double.NaN,
+                    adaptiveN > 0 ? meanAbility[i] : Double.NaN,
+                    adaptiveN > 0 ? Math.sqrt(abilityM2[i] / adaptiveN) : Double.NaN, abilityCorrelation);
+        }
+    }
+
+    private final QuizRepository quizes;
+    private final AttemptStore attempts;
+    private final ConcurrentHashMap<Integer, QuizStats> statsByQuiz = new ConcurrentHashMap<>();
+
+    public ItemStatistics(QuizRepository quizes, AttemptStore attempts) {
+        this.quizes = quizes;
+        this.attempts = attempts;
+    }
+
+    /**
+     * Takes in the attempts recorded so far (once) and follows the store from then on.
+     * The history is read from disk and that takes a while, so call it off the EDT.
+     */
+    public void build() throws IOException {
+        attempts.addListener(this, this::attemptRecorded); // Attempts of deleted quizzes are skipped there
+    }
+
+    @Override
+    public void attemptRecorded(Attempt attempt) {
+        QuizStats stats = statsByQuiz.get(attempt.getQuizId());
+        if (stats == null) {
+            if (quizes.findById(attempt.getQuizId()) == null) {
+                return; // Deleted meanwhile
+            }
+            stats = statsByQuiz.computeIfAbsent(attempt.getQuizId(), id -> new QuizStats());
+        }
+        synchronized (stats) {
+            if (highestQuestionIndex(attempt) >= stats.correctAnswers.length) {
+                loadAnswerKey(stats, attempt.getQuizId()); // New quiz, or questions were added
+            }
+            if (attempt.isAdaptive()) {
+                stats.addAdaptive(attempt);
+            } else {
+                stats.add(attempt);
+            }
+        }
+    }
+
+    @Override
+    public void quizRemoved(int quizId) {
+        statsByQuiz.remove(quizId);
+    }
+
+    private static int highestQuestionIndex(Attempt attempt) {
+        int highest = -1;
+        for (int i = 0; i < attempt.getQuestionCount(); i++) {
+            highest = Math.max(highest, attempt.getQuestionIndex(i));
+        }
+        return highest;
+    }
+
+    private void loadAnswerKey(QuizStats stats, int quizId) {
+        Quiz quiz = quizes.findById(quizId);
+        if (quiz == null) {
+            return;
+        }
+        boolean wasLoaded = quiz.areQuestionsLoaded();
+        stats.setAnswerKey(quiz.getQuestions());
+        if (!wasLoaded) {
+            quiz.releaseQuestions();
+        }
+    }
+
+    // Attempts of the quiz taken in so far, adaptive ones included
+    public long getAttemptCount(int quizId) {
+        QuizStats stats = statsByQuiz.get(quizId);
+        if (stats == null) {
+            return 0;
+        }
+        synchronized (stats) {
+            return stats.attemptCount;
+        }
+    }
+
+    // Statistics of every question of the quiz, in question order (empty if never taken)
+    public List<QuestionStats> getQuestionStats(int quizId) {
+        QuizStats stats = statsByQuiz.get(quizId);
+        List<QuestionStats> result = new ArrayList<>();
+        if (stats != null) {
+            synchronized (stats) {
+                for (int i = 0; i < stats.correctAnswers.length; i++) {
+                    result.add(stats.snapshot(i));
+                }
+            }
+        }
+        return result;
+    }
+}
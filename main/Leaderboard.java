@@ -0,0 +1,249 @@
+package main;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Leaderboard: the best score of every taker of a quiz, ranked.
+ *
+ * Per quiz there are three parts, all safe to update from many threads at once:
+ *   - every taker's best entry (a concurrent map; a taker only ever improves);
+ *   - the top TOP_SIZE entries in a concurrent skip list, best first. Since best
+ *     scores only go up, an entry that drops out of the top never has to come back;
+ *   - how many takers have each best score, in a Fenwick tree of atomic counters,
+ *     so "how many did better than X" is O(log max score) whatever the number of takers.
+ *
+ * Taking in a score touches only the quiz's own board, and there just one map
+ * entry and a few counters; a read lock only keeps the tree from being swapped
+ * while it grows. Ties are ranked alike ("1, 2, 2, 4"); in the top list the
+ * earlier score comes first.
+ *
+ * Scores arrive from the AttemptStore (app, server) or directly through record().
+ */
+public class Leaderboard implements AttemptStore.Listener {
+
+    // Longest top list kept (and returned) per quiz
+    public static final int TOP_SIZE = 100;
+
+    // One taker's best score on one quiz (immutable)
+    public static final class Entry {
+        private final String user;
+        private final int score;
+        private final long timestamp;
+
+        Entry(String user, int score, long timestamp) {
+            this.user = user;
+            this.score = score;
+            this.timestamp = timestamp;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    // Higher score first, then earlier, then by name so no two takers compare equal
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingInt((Entry entry) -> -entry.score)
+            .thenComparingLong(entry -> entry.timestamp)
+            .thenComparing(entry -> entry.user);
+
+    // Everything about one quiz
+    private static final class Board {
+        final ConcurrentHashMap<String, Entry> bestByUser = new ConcurrentHashMap<>();
+        final ConcurrentSkipListSet<Entry> top = new ConcurrentSkipListSet<>(RANKING);
+        final AtomicInteger topCount = new AtomicInteger();
+
+        // Takers per best score; index score + 1 (Fenwick trees count from 1)
+        final ReentrantReadWriteLock treeLock = new ReentrantReadWriteLock();
+        volatile AtomicLongArray tree = new AtomicLongArray(64);
+
+        void record(String user, int score, long timestamp) {
+            Entry entry = new Entry(user, score, timestamp);
+            bestByUser.compute(user, (name, old) -> {
+                if (old != null && old.score >= score) {
+                    return old; // Not an improvement
+                }
+                ensureCapacity(score);
+                treeLock.readLock().lock();
+                try {
+                    if (old != null) {
+                        treeAdd(old.score, -1);
+                    }
+                    treeAdd(score, 1);
+                } finally {
+                    treeLock.readLock().unlock();
+                }
+                if (old != null && top.remove(old)) {
+                    topCount.decrementAndGet();
+                }
+                addToTop(entry);
+                return entry;
+            });
+        }
+
+        private void addToTop(Entry entry) {
+            if (topCount.get() >= TOP_SIZE) {
+                Entry last = lastOrNull();
+                if (last != null && RANKING.compare(entry, last) > 0) {
+                    return; // Would drop right out again
+                }
+            }
+            if (top.add(entry)) {
+                topCount.incrementAndGet();
+            }
+            while (topCount.get() > TOP_SIZE && top.pollLast() != null) {
+                topCount.decrementAndGet();
+            }
+        }
+
+        private Entry lastOrNull() {
+            try {
+                return top.last();
+            } catch (java.util.NoSuchElementException e) {
+                return null;
+            }
+        }
+
+        // Number of takers whose best score is above 'score'
+        long countAbove(int score) {
+            treeLock.readLock().lock();
+            try {
+                AtomicLongArray counts = tree;
+                return prefixSum(counts, counts.length() - 1) - prefixSum(counts, Math.min(score + 1, counts.length() - 1));
+            } finally {
+                treeLock.readLock().unlock();
+            }
+        }
+
+        private void treeAdd(int score, long delta) {
+            AtomicLongArray counts = tree;
+            for (int i = score + 1; i < counts.length(); i += i & -i) {
+                counts.addAndGet(i, delta);
+            }
+        }
+
+        private static long prefixSum(AtomicLongArray counts, int index) {
+            long sum = 0;
+            for (int i = index; i > 0; i -= i & -i) {
+                sum += counts.get(i);
+            }
+            return sum;
+        }
+
+        // Rebuilds a bigger tree when a score doesn't fit (rare: the quiz got longer)
+        private void ensureCapacity(int score) {
+            if (score + 1 < tree.length()) {
+                return;
+            }
+            treeLock.writeLock().lock();
+            try {
+                if (score + 1 < tree.length()) {
+                    return;
+                }
+                int size = tree.length();
+                while (score + 1 >= size) {
+                    size *= 2;
+                }
+                AtomicLongArray grown = new AtomicLongArray(size);
+                AtomicLongArray old = tree;
+                for (int s = 0; s + 1 < old.length(); s++) {
+                    long count = prefixSum(old, s + 1) - prefixSum(old, s);
+                    for (int i = s + 1; count != 0 && i < size; i += i & -i) {
+                        grown.addAndGet(i, count);
+                    }
+                }
+                tree = grown;
+            } finally {
+                treeLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private final QuizRepository quizes;
+    private final AttemptStore attempts;
+    private final ConcurrentHashMap<Integer, Board> boards = new ConcurrentHashMap<>();
+
+    public Leaderboard(QuizRepository quizes, AttemptStore attempts) {
+        this.quizes = quizes;
+        this.attempts = attempts;
+    }
+
+    /**
+     * Takes in the attempts recorded so far (once) and follows the store from then on.
+     * The history is read from disk and that takes a while, so call it off the EDT.
+     */
+    public void build() throws IOException {
+        attempts.addListener(this, attempt -> {
+            if (quizes.findById(attempt.getQuizId()) != null) {
+                attemptRecorded(attempt);
+            }
+        });
+    }
+
+    @Override
+    public void attemptRecorded(Attempt attempt) {
+        record(attempt.getQuizId(), attempt.getUser(), attempt.getScore(), attempt.getTimestamp());
+    }
+
+    @Override
+    public void quizRemoved(int quizId) {
+        boards.remove(quizId);
+    }
+
+    // Takes in one graded score (e.g. from BatchGrader); only counts if it is the user's best
+    public void record(int quizId, String user, int score, long timestamp) {
+        Board board = boards.get(quizId);
+        if (board == null) {
+            board = boards.computeIfAbsent(quizId, id -> new Board());
+        }
+        board.record(user, Math.max(0, score), timestamp);
+    }
+
+    // The best 'count' takers (at most TOP_SIZE), best first
+    public List<Entry> getTop(int quizId, int count) {
+        List<Entry> result = new ArrayList<>();
+        Board board = boards.get(quizId);
+        if (board != null) {
+            Iterator<Entry> entries = board.top.iterator();
+            while (entries.hasNext() && result.size() < Math.min(count, TOP_SIZE)) {
+                result.add(entries.next());
+            }
+        }
+        return result;
+    }
+
+    // 1 for the best taker(s), 0 if 'user' never took the quiz
+    public long getRank(int quizId, String user) {
+        Board board = boards.get(quizId);
+        Entry best = board != null ? board.bestByUser.get(user) : null;
+        return best != null ? board.countAbove(best.score) + 1 : 0;
+    }
+
+    // The user's best entry, or null
+    public Entry getBest(int quizId, String user) {
+        Board board = boards.get(quizId);
+        return board != null ? board.bestByUser.get(user) : null;
+    }
+
+    public int getTakerCount(int quizId) {
+        Board board = boards.get(quizId);
+        return board != null ? board.bestByUser.size() : 0;
+    }
+}
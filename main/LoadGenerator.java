@@ -0,0 +1,318 @@
+package main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LoadGenerator: simulates many students taking quizzes at the same time and
+ * reports throughput and latency percentiles per step.
+ *
+ * Every simulated student repeats one session: open a random quiz, go through the
+ * questions one by one like QuizTakingDialog does (show the question, pick an
+ * option, remember it, go to the next one) and submit. Two targets:
+ *   - the model:  Quiz.getQuestions(), QuizGrader.score() and AttemptStore.record()
+ *                 directly, in this process (attempts go to a memory-only store);
+ *   - over HTTP:  a running QuizServer (GET the quiz, POST the answers). Quizzes
+ *                 with a time limit are taken in a session, started when the quiz
+ *                 is opened, so their open step is two requests.
+ */
+public class LoadGenerator {
+
+    private final int users;
+    private final long durationNanos;
+    private final long thinkMillis; // Pause per question, 0 = as fast as possible
+
+    // One histogram per step of a session
+    private final LatencyHistogram openLatency = new LatencyHistogram();
+    private final LatencyHistogram navigateLatency = new LatencyHistogram();
+    private final LatencyHistogram submitLatency = new LatencyHistogram();
+    private final LatencyHistogram sessionLatency = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+
+    public LoadGenerator(int users, long durationSeconds, long thinkMillis) {
+        this.users = users;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        this.thinkMillis = thinkMillis;
+    }
+
+    // What a simulated student talks to
+    private interface Target {
+        int quizCount();
+
+        // 'user' opens quiz number 'index'; returns its questions (as the student sees them)
+        List<Question> open(String user, int index) throws IOException;
+
+        // Submits the answers of the quiz that was opened last
+        int submit(String user, int index, int[] answers) throws IOException;
+    }
+
+    // Runs the load against the model in this process
+    public void runAgainstModel(QuizRepository quizes, PrintStream out) throws InterruptedException {
+        AttemptStore attempts = new AttemptStore(); // Don't mix test attempts into the real history
+        run(new Target() {
+            @Override
+            public int quizCount() {
+                return quizes.size();
+            }
+
+            @Override
+            public List<Question> open(String user, int index) {
+                return quizes.get(index).getQuestions();
+            }
+
+            @Override
+            public int submit(String user, int index, int[] answers) {
+                Quiz quiz = quizes.get(index);
+                int score = QuizGrader.score(quiz.getQuestions(), answers);
+                attempts.record(new Attempt(user, quiz.getQuizId(), answers, score, System.currentTimeMillis()));
+                quiz.releaseQuestions(); // Like QuizButton after the dialog closed
+                return score;
+            }
+        }, "model", out);
+    }
+
+    // Runs the load against a QuizServer at 'baseUrl' (e.g. http://localhost:8080)
+    public void runAgainstServer(String baseUrl, PrintStream out) throws IOException, InterruptedException {
+        List<Integer> quizIds = new ArrayList<>();
+        Set<Integer> timedQuizIds = new HashSet<>();
+        for (Object quiz : (List<?>) Json.parse(httpRequest(baseUrl + "/quizzes", null))) {
+            Map<?, ?> fields = (Map<?, ?>) quiz;
+            int quizId = ((Long) fields.get("id")).intValue();
+            quizIds.add(quizId);
+            Object seconds = fields.get("seconds");
+            if (seconds instanceof Long && (Long) seconds > 0) {
+                timedQuizIds.add(quizId);
+            }
+        }
+        Map<String, String> sessions = new ConcurrentHashMap<>(); // User -> session of the timed quiz they opened
+        run(new Target() {
+            @Override
+            public int quizCount() {
+                return quizIds.size();
+            }
+
+            @Override
+            public List<Question> open(String user, int index) throws IOException {
+                int quizId = quizIds.get(index);
+                if (timedQuizIds.contains(quizId)) {
+                    // Timed quizzes only take attempts through a session; its clock starts now
+                    StringBuilder body = new StringBuilder("{\"user\":");
+                    Json.appendString(body, user).append('}');
+                    String session = (String) Json.parseObject(
+                        httpRequest(baseUrl + "/quizzes/" + quizId + "/sessions", body.toString())).get("session");
+                    sessions.put(user, session);
+                }
+                Map<String, Object> quiz = Json.parseObject(httpRequest(baseUrl + "/quizzes/" + quizId, null));
+                List<Question> questions = new ArrayList<>();
+                for (Object question : (List<?>) quiz.get("questions")) {
+                    Map<?, ?> fields = (Map<?, ?>) question;
+                    List<String> options = new ArrayList<>();
+                    for (Object option : (List<?>) fields.get("options")) {
+                        options.add((String) option);
+                    }
+                    questions.add(new Question((String) fields.get("question"), options, QuizGrader.NO_ANSWER));
+                }
+                return questions;
+            }
+
+            @Override
+            public int submit(String user, int index, int[] answers) throws IOException {
+                String session = sessions.remove(user);
+                StringBuilder body = new StringBuilder(session != null ? "{\"session\":" : "{\"user\":");
+                Json.appendString(body, session != null ? session : user)
+                    .append(",\"answers\":").append(Arrays.toString(answers)).append('}');
+                String result = httpRequest(baseUrl + "/quizzes/" + quizIds.get(index) + "/attempts", body.toString());
+                return ((Long) Json.parseObject(result).get("score")).intValue();
+            }
+        }, baseUrl, out);
+    }
+
+    private void run(Target target, String targetName, PrintStream out) throws InterruptedException {
+        if (target.quizCount() == 0) {
+            out.println("No quizzes to take.");
+            return;
+        }
+        out.printf("Load test: %d users for %d s against %s%n", users, TimeUnit.NANOSECONDS.toSeconds(durationNanos), targetName);
+
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        long start = System.nanoTime();
+        long end = start + durationNanos;
+        List<Future<?>> students = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String user = "loadtest-" + i;
+            students.add(pool.submit(() -> {
+                while (System.nanoTime() < end) {
+                    try {
+                        runSession(target, user);
+                    } catch (IOException | RuntimeException e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> student : students) {
+            try {
+                student.get();
+            } catch (java.util.concurrent.ExecutionException e) {
+                errors.incrementAndGet();
+            }
+        }
+        pool.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        out.printf("Sessions: %d (%.0f/s), questions answered: %d (%.0f/s), errors: %d%n",
+                sessionLatency.getCount(), sessionLatency.getCount() / seconds,
+                navigateLatency.getCount(), navigateLatency.getCount() / seconds, errors.get());
+        openLatency.printSummary(out, "open");
+        navigateLatency.printSummary(out, "navigate");
+        submitLatency.printSummary(out, "submit");
+        sessionLatency.printSummary(out, "session");
+    }
+
+    // One student taking one quiz, timed step by step
+    private void runSession(Target target, String user) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(target.quizCount());
+        long sessionStart = System.nanoTime();
+
+        List<Question> questions = target.open(user, index);
+        long now = System.nanoTime();
+        openLatency.record(now - sessionStart);
+
+        int[] answers = new int[questions.size()];
+        Arrays.fill(answers, QuizGrader.NO_ANSWER);
+        long displayed = 0; // Keeps the JIT from skipping the "display" work
+        for (int i = 0; i < questions.size(); i++) {
+            long stepStart = System.nanoTime();
+            // loadQuestion(): text and options go on the screen
+            Question question = questions.get(i);
+            displayed += question.getQuestionText().length();
+            List<String> options = question.getOptions();
+            for (String option : options) {
+                displayed += option.length();
+            }
+            // The student picks an option (sometimes none); saveCurrentAnswer() stores it
+            if (!options.isEmpty() && random.nextInt(10) != 0) {
+                answers[i] = random.nextInt(options.size());
+            }
+            navigateLatency.record(System.nanoTime() - stepStart);
+            if (thinkMillis > 0) {
+                try {
+                    Thread.sleep(thinkMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        long submitStart = System.nanoTime();
+        int score = target.submit(user, index, answers);
+        long submitEnd = System.nanoTime();
+        submitLatency.record(submitEnd - submitStart);
+        sessionLatency.record(submitEnd - sessionStart);
+        if (score < 0 || displayed < 0) {
+            errors.incrementAndGet();
+        }
+    }
+
+    // Fills 'quizes' with made-up quizzes of four-option questions
+    static void addGeneratedQuizes(QuizRepository quizes, int quizCount, int questionsPerQuiz) {
+        for (int q = 0; q < quizCount; q++) {
+            List<Question> questions = new ArrayList<>(questionsPerQuiz);
+            for (int i = 0; i < questionsPerQuiz; i++) {
+                questions.add(new Question("Generated question " + (i + 1) + " of quiz " + (q + 1) + "?",
+                        Arrays.asList("Option A", "Option B", "Option C", "Option D"), (q + i) % 4));
+            }
+            quizes.add(new Quiz("Generated Quiz " + (q + 1), quizes.newQuizId(), questions));
+        }
+    }
+
+    // GET (body == null) or POST a JSON body, return the response body
+    private static String httpRequest(String url, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        if (body != null) {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                stream.transferTo(response);
+            }
+        }
+        if (status >= 400) {
+            throw new IOException("HTTP " + status + " from " + url + ": " + response.toString("UTF-8"));
+        }
+        return response.toString("UTF-8");
+    }
+
+    /**
+     * Command line: QuizApp --loadtest [users=100] [seconds=10] [think=0] [url=http://localhost:8080]
+     * Without 'url' the saved quizzes are loaded and the model is tested in this process.
+     */
+    public static void runFromCommandLine(String[] args) throws IOException, InterruptedException {
+        int users = 100;
+        long seconds = 10;
+        long think = 0;
+        String url = null;
+        for (int i = 1; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            if (option.length != 2) {
+                System.err.println("Usage: QuizApp --loadtest [users=N] [seconds=N] [think=ms] [url=http://host:port]");
+                return;
+            }
+            switch (option[0]) {
+                case "users": users = Integer.parseInt(option[1]); break;
+                case "seconds": seconds = Long.parseLong(option[1]); break;
+                case "think": think = Long.parseLong(option[1]); break;
+                case "url": url = option[1]; break;
+                default:
+                    System.err.println("Unknown option: " + option[0]);
+                    return;
+            }
+        }
+
+        LoadGenerator generator = new LoadGenerator(users, seconds, think);
+        if (url != null) {
+            generator.runAgainstServer(url, System.out);
+            return;
+        }
+        try (QuizStore store = new QuizStore(QuizStore.defaultDirectory())) {
+            QuizRepository repository = new QuizRepository();
+            for (Quiz quiz : store.recover()) {
+                repository.add(quiz);
+            }
+            if (repository.isEmpty()) {
+                System.out.println("No saved quizzes, using 100 generated ones.");
+                addGeneratedQuizes(repository, 100, 20);
+            }
+            generator.runAgainstModel(repository, System.out);
+        }
+    }
+}
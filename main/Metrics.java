@@ -0,0 +1,212 @@
+package main;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Metrics: how long the app's hot paths take, kept all the time and shown through
+ * JMX (jconsole, VisualVM: "main" > "Operation") and a rolling log file.
+ *
+ * Each operation is a LatencyHistogram, so recording is a few atomic increments and
+ * no locks; time an operation with
+ *     long start = System.nanoTime(); ...; Metrics.GRADING.record(System.nanoTime() - start);
+ * Nothing else happens until start() is called: then the MBeans are registered (an
+ * operation first used later gets its own right away) and a summary of every
+ * operation is written to logs/quizapp-N.log once a minute, on the reporter's own
+ * thread. EdtMonitor logs stalls of the UI to the same file, and background work
+ * that fails (TaskPipeline, TimerWheel) logs there at WARNING.
+ */
+public final class Metrics {
+
+    // What JMX shows for one operation; times in milliseconds, since the app started
+    public interface OperationMXBean {
+        long getCount();
+
+        double getMeanMillis();
+
+        double getP50Millis();
+
+        double getP99Millis();
+
+        double getP999Millis();
+
+        double getMaxMillis();
+    }
+
+    private static final Map<String, LatencyHistogram> operations = new ConcurrentSkipListMap<>();
+
+    // --- The operations ---
+    public static final LatencyHistogram DASHBOARD_REFRESH = operation("DashboardRefresh"); // Re-binding the visible cards
+    public static final LatencyHistogram DIALOG_CONSTRUCTION = operation("DialogConstruction");
+    public static final LatencyHistogram GRADING = operation("Grading");                    // Dialog and server attempts
+    public static final LatencyHistogram EDT_DISPATCH = operation("EdtDispatch");           // See EdtMonitor
+
+    private static final long REPORT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int LOG_FILE_BYTES = 1 << 20;
+    private static final int LOG_FILES = 5;
+
+    static final Logger log = Logger.getLogger("main.metrics");
+
+    private static boolean started; // Guarded by Metrics.class
+    private static volatile boolean mbeansRegistered; // From then on operation() registers new ones itself
+
+    private Metrics() {
+    }
+
+    // The histogram of the operation called 'name', made (and shown in JMX, once started) on first use
+    public static LatencyHistogram operation(String name) {
+        LatencyHistogram histogram = operations.get(name);
+        if (histogram != null) {
+            return histogram;
+        }
+        histogram = operations.computeIfAbsent(name, key -> new LatencyHistogram());
+        if (mbeansRegistered) {
+            registerOperation(ManagementFactory.getPlatformMBeanServer(), name, histogram);
+        }
+        return histogram;
+    }
+
+    /**
+     * Registers the MBeans and starts logging to 'logDirectory' (kept to LOG_FILES
+     * files of 1 MB), both on a background thread. Later calls do nothing.
+     */
+    public static synchronized void start(Path logDirectory) {
+        if (started) {
+            return;
+        }
+        started = true;
+        Thread reporter = new Thread(() -> report(logDirectory), "metrics-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    private static void report(Path logDirectory) {
+        registerMBeans();
+        try {
+            Files.createDirectories(logDirectory);
+            FileHandler handler = new FileHandler(logDirectory.resolve("quizapp-%g.log").toString(),
+                LOG_FILE_BYTES, LOG_FILES, true);
+            handler.setFormatter(new LineFormatter());
+            log.addHandler(handler);
+            log.setUseParentHandlers(false); // The console only gets it if there is no file
+        } catch (IOException e) {
+            System.err.println("Could not open the metrics log: " + e.getMessage());
+        }
+        while (true) {
+            try {
+                Thread.sleep(REPORT_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (Map.Entry<String, LatencyHistogram> operation : operations.entrySet()) {
+                if (operation.getValue().getCount() > 0) {
+                    log.info(operation.getValue().summary(operation.getKey()));
+                }
+            }
+        }
+    }
+
+    // Logs 'message' at WARNING with 'stack' as its trace (e.g. a stalled thread's)
+    static void warn(String message, StackTraceElement[] stack) {
+        Throwable trace = new Throwable("Stack trace");
+        trace.setStackTrace(stack);
+        log.log(Level.WARNING, message, trace);
+    }
+
+    private static void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        mbeansRegistered = true; // Set first: an operation made during the loop is registered by one of the two
+        for (Map.Entry<String, LatencyHistogram> operation : operations.entrySet()) {
+            registerOperation(server, operation.getKey(), operation.getValue());
+        }
+        register(server, "main:type=EdtMonitor", EdtMonitor.instance(), EdtMonitorMXBean.class);
+    }
+
+    private static void registerOperation(MBeanServer server, String name, LatencyHistogram histogram) {
+        register(server, "main:type=Operation,name=" + name, new Operation(histogram), OperationMXBean.class);
+    }
+
+    private static <T> void register(MBeanServer server, String name, T bean, Class<T> type) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(new StandardMBean(bean, type, true), objectName);
+            }
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by another thread just now
+        } catch (JMException e) {
+            log.log(Level.WARNING, "Could not register " + name, e);
+        }
+    }
+
+    private static final class Operation implements OperationMXBean {
+        private final LatencyHistogram histogram;
+
+        Operation(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return histogram.getMeanNanos() / 1e6;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return histogram.getValueAtPercentile(50) / 1e6;
+        }
+
+        @Override
+        public double getP99Millis() {
+            return histogram.getValueAtPercentile(99) / 1e6;
+        }
+
+        @Override
+        public double getP999Millis() {
+            return histogram.getValueAtPercentile(99.9) / 1e6;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return histogram.getMaxNanos() / 1e6;
+        }
+    }
+
+    // "2026-10-17 14:03:00 INFO message", and the exception with its causes if there is one
+    private static final class LineFormatter extends Formatter {
+        @Override
+        public String format(LogRecord record) {
+            StringBuilder line = new StringBuilder(String.format("%1$tF %1$tT %2$s %3$s%n",
+                record.getMillis(), record.getLevel().getName(), formatMessage(record)));
+            String heading = "";
+            for (Throwable thrown = record.getThrown(); thrown != null; thrown = thrown.getCause()) {
+                line.append(heading).append(thrown).append(System.lineSeparator());
+                for (StackTraceElement frame : thrown.getStackTrace()) {
+                    line.append("\tat ").append(frame).append(System.lineSeparator());
+                }
+                heading = "Caused by: ";
+            }
+            return line.toString();
+        }
+    }
+}
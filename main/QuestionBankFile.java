@@ -0,0 +1,297 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * QuestionBankFile: a compact binary file holding a whole quiz catalog.
+ *
+ * Layout:
+ *   [magic][version]
+ *   question bodies, one block per quiz
+ *   headers, one per quiz: id, question count, where its body is, name,
+ *                          questions per attempt, flags (version 2 on;
+ *                          1 = shuffle options, 2 = adaptive),
+ *                          time limit and seconds per question (version 3 on)
+ *   [header offset][quiz count][magic]
+ *
+ * Opening the file only reads the headers (through a memory map), which is
+ * all the dashboard needs. The questions of a quiz are read from disk the
+ * first time Quiz.getQuestions() is called.
+ */
+public class QuestionBankFile implements Closeable {
+
+    private static final int MAGIC = 0x51424E4B; // "QBNK"
+    private static final int VERSION = 3;
+    private static final int TRAILER_SIZE = 8 + 4 + 4;
+
+    private final Path file;
+    private final FileChannel channel;
+
+    private QuestionBankFile(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Opens a bank file and returns its quizzes. The quizzes keep a reference to
+     * this file to load their questions later, so it has to stay open while they are used.
+     */
+    public static QuestionBankFile open(Path file, List<Quiz> quizesOut) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            QuestionBankFile bank = new QuestionBankFile(file, channel);
+            bank.readHeaders(quizesOut);
+            return bank;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void readHeaders(List<Quiz> quizesOut) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < 8 + TRAILER_SIZE) {
+            throw new IOException("Question bank is too short: " + file);
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+        readFully(trailer, fileSize - TRAILER_SIZE);
+        trailer.flip();
+        long headerOffset = trailer.getLong();
+        int quizCount = trailer.getInt();
+        if (trailer.getInt() != MAGIC || headerOffset < 8 || headerOffset > fileSize - TRAILER_SIZE) {
+            throw new IOException("Not a question bank (or not completely written): " + file);
+        }
+
+        ByteBuffer start = ByteBuffer.allocate(8);
+        readFully(start, 0);
+        start.flip();
+        start.getInt(); // Magic, checked in the trailer
+        int version = start.getInt();
+        if (version > VERSION) {
+            throw new IOException("Question bank was written by a newer version: " + file);
+        }
+
+        MappedByteBuffer headers = channel.map(FileChannel.MapMode.READ_ONLY, headerOffset, fileSize - TRAILER_SIZE - headerOffset);
+        for (int i = 0; i < quizCount; i++) {
+            int quizId = headers.getInt();
+            int questionCount = readVarInt(headers);
+            long bodyOffset = headers.getLong();
+            int bodyLength = headers.getInt();
+            String quizName = readString(headers);
+            Quiz quiz = new Quiz(quizName, quizId, questionCount, new BankQuestions(bodyOffset, bodyLength));
+            if (version >= 2) {
+                int questionsPerAttempt = readVarInt(headers);
+                byte flags = headers.get();
+                quiz.setAttemptSettings(questionsPerAttempt, (flags & 1) != 0, (flags & 2) != 0);
+            }
+            if (version >= 3) {
+                quiz.setTimeLimits(readVarInt(headers), readVarInt(headers));
+            }
+            quizesOut.add(quiz);
+        }
+    }
+
+    /**
+     * Writes 'quizes' to a new bank file. Quizzes that still live in a bank file and
+     * were never changed are copied as raw bytes, without building their questions.
+     */
+    public static void write(Path file, List<Quiz> quizes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+            ByteArrayOutputStream headers = new ByteArrayOutputStream();
+            long position = 0;
+
+            position += writeInt(out, MAGIC);
+            position += writeInt(out, VERSION);
+
+            for (Quiz quiz : quizes) {
+                byte[] body = rawBody(quiz);
+                out.write(body);
+
+                writeInt(headers, quiz.getQuizId());
+                writeVarInt(headers, quiz.getNumOfQuestions());
+                writeLong(headers, position);
+                writeInt(headers, body.length);
+                writeString(headers, quiz.getQuizName());
+                writeVarInt(headers, quiz.getQuestionsPerAttempt());
+                headers.write((quiz.isShuffleOptions() ? 1 : 0) | (quiz.isAdaptive() ? 2 : 0));
+                writeVarInt(headers, quiz.getTimeLimitSeconds());
+                writeVarInt(headers, quiz.getSecondsPerQuestion());
+                position += body.length;
+            }
+
+            headers.writeTo(out);
+            writeLong(out, position);
+            writeInt(out, quizes.size());
+            writeInt(out, MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    // The encoded questions of a quiz: copied from its bank file if possible, encoded otherwise
+    private static byte[] rawBody(Quiz quiz) throws IOException {
+        Quiz.QuestionSource source = quiz.getQuestionSource();
+        if (source instanceof BankQuestions) {
+            return ((BankQuestions) source).readBody();
+        }
+        return encodeQuestions(quiz.getQuestions());
+    }
+
+    // --- Question bodies ---
+
+    static byte[] encodeQuestions(List<Question> questions) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * Math.max(1, questions.size()));
+        for (Question question : questions) {
+            writeString(out, question.getQuestionText());
+            List<String> options = question.getOptions();
+            writeVarInt(out, options.size());
+            for (String option : options) {
+                writeString(out, option);
+            }
+            writeVarInt(out, question.getCorrectAnswerIndex() + 1); // +1 so "no answer" (-1) fits too
+        }
+        return out.toByteArray();
+    }
+
+    static List<Question> decodeQuestions(ByteBuffer in, int questionCount) {
+        List<Question> questions = new ArrayList<>(questionCount);
+        for (int i = 0; i < questionCount; i++) {
+            String questionText = readString(in);
+            int optionCount = readVarInt(in);
+            List<String> options = new ArrayList<>(optionCount);
+            for (int j = 0; j < optionCount; j++) {
+                options.add(readString(in));
+            }
+            questions.add(new Question(questionText, options, readVarInt(in) - 1));
+        }
+        return questions;
+    }
+
+    // Where the questions of one quiz are in this file
+    private final class BankQuestions implements Quiz.QuestionSource {
+        private final long bodyOffset;
+        private final int bodyLength;
+
+        BankQuestions(long bodyOffset, int bodyLength) {
+            this.bodyOffset = bodyOffset;
+            this.bodyLength = bodyLength;
+        }
+
+        @Override
+        public List<Question> load(int questionCount) {
+            try {
+                return decodeQuestions(ByteBuffer.wrap(readBody()), questionCount);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read questions from " + file, e);
+            }
+        }
+
+        byte[] readBody() throws IOException {
+            ByteBuffer body = ByteBuffer.allocate(bodyLength);
+            readFully(body, bodyOffset);
+            return body.array();
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of " + file);
+            }
+            position += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // --- Small encoding helpers (big-endian ints, LEB128 var-ints, UTF-8 strings) ---
+
+    private static int writeInt(OutputStream out, int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+        return 4;
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeLong(OutputStream out, long value) throws IOException {
+        writeInt(out, (int) (value >>> 32));
+        writeInt(out, (int) value);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        writeInt(out, (int) (value >>> 32));
+        writeInt(out, (int) value);
+    }
+
+    static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed var-int in question bank");
+    }
+
+    static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, utf8.length);
+        out.write(utf8, 0, utf8.length);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] utf8 = new byte[length];
+            in.get(utf8);
+            value = new String(utf8, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,183 @@
+package main;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * QuestionDraw: the questions of one attempt, and the order their options are shown in.
+ *
+ * When a quiz draws N questions per attempt (Quiz.getQuestionsPerAttempt()), N
+ * positions of the pool are picked with Floyd's algorithm: N random numbers and a
+ * small hash set, whatever the size of the pool, and the pool list itself is never
+ * copied or shuffled. The picked questions are then put in random order.
+ *
+ * With shuffled options every question gets its own permutation (Fisher-Yates),
+ * kept as indexes: the Question objects are never changed. The dialog works with
+ * the positions on screen; toOriginalAnswers() maps them back to option numbers,
+ * which is what gets graded and recorded.
+ *
+ * Everything comes from one seed, so the same seed over the same pool gives the
+ * same attempt again. Building a draw of 50 questions takes a few microseconds.
+ */
+public final class QuestionDraw {
+
+    private final List<Question> pool;
+    private final int[] questionIndexes; // Pool positions in the order they are asked; null = whole pool in order
+    private final int size;
+    private final int[] optionOrder;     // Shown position -> original option, per question (null = not shuffled)
+    private final int[] optionStart;     // Where each question's part of optionOrder starts
+
+    private QuestionDraw(List<Question> pool, int[] questionIndexes, int size, int[] optionOrder, int[] optionStart) {
+        this.pool = pool;
+        this.questionIndexes = questionIndexes;
+        this.size = size;
+        this.optionOrder = optionOrder;
+        this.optionStart = optionStart;
+    }
+
+    // The draw for one attempt of 'quiz', following its settings
+    public static QuestionDraw of(Quiz quiz, long seed) {
+        return of(quiz.getQuestions(), quiz.getQuestionsPerAttempt(), quiz.isShuffleOptions(), seed);
+    }
+
+    /**
+     * Draws 'count' questions of 'pool' (0, or at least the pool size, = all of them in
+     * their usual order) and shuffles their options if asked to.
+     */
+    public static QuestionDraw of(List<Question> pool, int count, boolean shuffleOptions, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int poolSize = pool.size();
+        int[] questionIndexes = null;
+        int size = poolSize;
+        if (count > 0 && count < poolSize) {
+            questionIndexes = sample(poolSize, count, random);
+            size = count;
+        }
+
+        int[] optionOrder = null;
+        int[] optionStart = null;
+        if (shuffleOptions) {
+            optionStart = new int[size + 1];
+            for (int i = 0; i < size; i++) {
+                int index = questionIndexes != null ? questionIndexes[i] : i;
+                optionStart[i + 1] = optionStart[i] + pool.get(index).getOptions().size();
+            }
+            optionOrder = new int[optionStart[size]];
+            for (int i = 0; i < size; i++) {
+                int start = optionStart[i];
+                int optionCount = optionStart[i + 1] - start;
+                for (int option = 0; option < optionCount; option++) {
+                    optionOrder[start + option] = option;
+                }
+                shuffle(optionOrder, start, optionCount, random);
+            }
+        }
+        return new QuestionDraw(pool, questionIndexes, size, optionOrder, optionStart);
+    }
+
+    // 'count' distinct numbers below 'poolSize' in random order (Floyd, then Fisher-Yates)
+    static int[] sample(int poolSize, int count, SplittableRandom random) {
+        int[] chosen = new int[count];
+        int[] seen = new int[Integer.highestOneBit(Math.max(1, count) * 2) * 2]; // Open addressing, value + 1, 0 = empty
+        int mask = seen.length - 1;
+        int chosenCount = 0;
+        for (int j = poolSize - count; j < poolSize; j++) {
+            int candidate = random.nextInt(j + 1);
+            // Taken already? Then j, which can't be (earlier rounds only picked numbers below it)
+            int pick = insert(seen, mask, candidate) ? candidate : j;
+            if (pick != candidate) {
+                insert(seen, mask, j);
+            }
+            chosen[chosenCount++] = pick;
+        }
+        shuffle(chosen, 0, count, random);
+        return chosen;
+    }
+
+    // Adds 'value' to the set; false if it was already there
+    private static boolean insert(int[] seen, int mask, int value) {
+        int hash = value * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (seen[slot] != 0) {
+            if (seen[slot] == value + 1) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        seen[slot] = value + 1;
+        return true;
+    }
+
+    private static void shuffle(int[] values, int start, int length, SplittableRandom random) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[start + i];
+            values[start + i] = values[start + j];
+            values[start + j] = swap;
+        }
+    }
+
+    // --- Reading the draw ---
+
+    public int size() {
+        return size;
+    }
+
+    // Question number 'i' of this attempt
+    public Question getQuestion(int i) {
+        return pool.get(getQuestionIndex(i));
+    }
+
+    // Where question number 'i' is in the quiz
+    public int getQuestionIndex(int i) {
+        return questionIndexes != null ? questionIndexes[i] : i;
+    }
+
+    // The pool positions asked, in order, or null if the attempt is the whole quiz in order
+    public int[] getQuestionIndexes() {
+        return questionIndexes != null ? questionIndexes.clone() : null;
+    }
+
+    // The option shown at 'position' for question 'i'
+    public String getOption(int i, int position) {
+        return getQuestion(i).getOptions().get(toOriginalOption(i, position));
+    }
+
+    public int toOriginalOption(int i, int position) {
+        return optionOrder != null ? optionOrder[optionStart[i] + position] : position;
+    }
+
+    // Where original option 'option' of question 'i' is shown (NO_ANSWER stays NO_ANSWER)
+    public int toShownOption(int i, int option) {
+        if (optionOrder == null || option < 0) {
+            return option;
+        }
+        for (int position = optionStart[i]; position < optionStart[i + 1]; position++) {
+            if (optionOrder[position] == option) {
+                return position - optionStart[i];
+            }
+        }
+        return QuizGrader.NO_ANSWER;
+    }
+
+    // Maps the picked positions (one per question of the draw) back to the options of the questions
+    public int[] toOriginalAnswers(int[] shownAnswers) {
+        int[] answers = new int[size];
+        for (int i = 0; i < size; i++) {
+            int shown = shownAnswers[i];
+            answers[i] = shown >= 0 ? toOriginalOption(i, shown) : QuizGrader.NO_ANSWER;
+        }
+        return answers;
+    }
+
+    // Number of correct answers; 'answers' as returned by toOriginalAnswers()
+    public int score(int[] answers) {
+        int score = 0;
+        for (int i = 0; i < size; i++) {
+            if (QuizGrader.isCorrect(answers[i], getQuestion(i).getCorrectAnswerIndex())) {
+                score++;
+            }
+        }
+        return score;
+    }
+}
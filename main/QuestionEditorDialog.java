@@ -1,8 +1,6 @@
 package main;
 
 import javax.swing.*;
-import javax.swing.border.EmptyBorder;
-import javax.swing.border.LineBorder;
 import java.awt.*;
 import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
@@ -16,39 +14,31 @@ public class QuestionEditorDialog extends JDialog {
     private JRadioButton[] correctAnswerRadioButtons;
     private ButtonGroup correctAnswerGroup;
     private JLabel questionsAddedLabel;
-    private Color primaryColor, accentColor, textColorWhite, bgColor, textColorDark, borderColor;
+    private DuplicateDetector duplicateDetector; // Warns about questions that already exist (may be null)
 
-    public QuestionEditorDialog(Dialog owner, String title, Quiz quizToEdit,
-                                Color primary, Color accent, Color textWhite, Color bg, Color textDark, Color border) {
+    public QuestionEditorDialog(Dialog owner, String title, Quiz quizToEdit, DuplicateDetector duplicateDetector) {
         super(owner, title, true);
+        long constructionStart = System.nanoTime();
         this.quiz = quizToEdit;
-        this.primaryColor = primary;
-        this.accentColor = accent;
-        this.textColorWhite = textWhite;
-        this.bgColor = bg;
-        this.textColorDark = textDark;
-        this.borderColor = border;
+        this.duplicateDetector = duplicateDetector;
 
         setSize(650, 550);
         setLocationRelativeTo(owner);
         setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
-        getContentPane().setBackground(bgColor);
+        getContentPane().setBackground(Theme.BACKGROUND);
         setLayout(new BorderLayout(10, 10));
 
         JPanel formPanel = new JPanel();
         formPanel.setLayout(new BoxLayout(formPanel, BoxLayout.Y_AXIS));
-        formPanel.setBorder(new EmptyBorder(20, 20, 20, 20));
-        formPanel.setBackground(bgColor);
+        formPanel.setBorder(Theme.padding(20, 20, 20, 20));
+        formPanel.setBackground(Theme.BACKGROUND);
 
         formPanel.add(createStyledLabel("Question Text:"));
         questionTextArea = new JTextArea(4, 30);
         questionTextArea.setLineWrap(true);
         questionTextArea.setWrapStyleWord(true);
-        questionTextArea.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-        questionTextArea.setBorder(BorderFactory.createCompoundBorder(
-            new LineBorder(borderColor, 1 , true),
-            new EmptyBorder(8, 8, 8, 8)
-        ));
+        questionTextArea.setFont(Theme.BODY);
+        questionTextArea.setBorder(Theme.outlined(8, 8, 8, 8));
        
         JScrollPane questionScrollPane = new JScrollPane(questionTextArea);
         questionScrollPane.setBorder(BorderFactory.createEmptyBorder());
@@ -56,19 +46,19 @@ public class QuestionEditorDialog extends JDialog {
         formPanel.add(Box.createRigidArea(new Dimension(0, 10)));
 
         formPanel.add(createStyledLabel("Options (Mark correct answer):"));
-        optionFields = new JTextField[4];
-        correctAnswerRadioButtons = new JRadioButton[4];
+        optionFields = new JTextField[QuestionValidator.MAX_OPTIONS];
+        correctAnswerRadioButtons = new JRadioButton[QuestionValidator.MAX_OPTIONS];
         correctAnswerGroup = new ButtonGroup();
-        JPanel optionsGridPanel = new JPanel(new GridLayout(4, 1, 0, 8)); 
-        optionsGridPanel.setBackground(bgColor);
+        JPanel optionsGridPanel = new JPanel(new GridLayout(QuestionValidator.MAX_OPTIONS, 1, 0, 8)); 
+        optionsGridPanel.setBackground(Theme.BACKGROUND);
 
-        for (int i = 0; i < 4; i++) {
+        for (int i = 0; i < QuestionValidator.MAX_OPTIONS; i++) {
             JPanel optionEntryPanel = new JPanel(new BorderLayout(10,0));
-            optionEntryPanel.setBackground(bgColor);
+            optionEntryPanel.setBackground(Theme.BACKGROUND);
             optionFields[i] = createStyledTextField("Option " + (i + 1));
             correctAnswerRadioButtons[i] = new JRadioButton();
-            correctAnswerRadioButtons[i].setBackground(bgColor);
-            correctAnswerRadioButtons[i].setCursor(new Cursor(Cursor.HAND_CURSOR));
+            correctAnswerRadioButtons[i].setBackground(Theme.BACKGROUND);
+            correctAnswerRadioButtons[i].setCursor(Theme.HAND_CURSOR);
             correctAnswerGroup.add(correctAnswerRadioButtons[i]);
             optionEntryPanel.add(optionFields[i], BorderLayout.CENTER);
             optionEntryPanel.add(correctAnswerRadioButtons[i], BorderLayout.EAST);
@@ -77,7 +67,7 @@ public class QuestionEditorDialog extends JDialog {
         formPanel.add(optionsGridPanel);
         formPanel.add(Box.createRigidArea(new Dimension(0, 20)));
 
-        JButton addQuestionButton = createStyledButton("Add This Question", accentColor, textColorWhite);
+        JButton addQuestionButton = Theme.button("Add This Question", Theme.ACCENT_ADD, Theme.TEXT_WHITE, Theme.padding(10, 20, 10, 20));
         addQuestionButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         addQuestionButton.addActionListener(e -> addQuestionToQuiz());
         formPanel.add(addQuestionButton);
@@ -90,75 +80,58 @@ public class QuestionEditorDialog extends JDialog {
         add(formPanel, BorderLayout.CENTER);
 
         JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-        bottomPanel.setBackground(bgColor);
-        bottomPanel.setBorder(new EmptyBorder(0,0,10,10));
-        JButton finishButton = createStyledButton("Done", primaryColor, textColorWhite);
+        bottomPanel.setBackground(Theme.BACKGROUND);
+        bottomPanel.setBorder(Theme.padding(0, 0, 10, 10));
+        JButton finishButton = Theme.button("Done", Theme.PRIMARY_DARK, Theme.TEXT_WHITE, Theme.padding(10, 20, 10, 20));
         finishButton.addActionListener(e -> dispose());
         bottomPanel.add(finishButton);
         add(bottomPanel, BorderLayout.SOUTH);
+        Metrics.DIALOG_CONSTRUCTION.record(System.nanoTime() - constructionStart);
     }
     
     private JLabel createStyledLabel(String text) {
         JLabel label = new JLabel(text);
-        label.setFont(new Font("Segoe UI", Font.BOLD, 14));
-        label.setForeground(textColorDark);
+        label.setFont(Theme.LABEL);
+        label.setForeground(Theme.TEXT_DARK);
         return label;
     }
 
     private JTextField createStyledTextField(String placeholder) {
         JTextField textField = new JTextField(placeholder);
-        textField.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-        textField.setForeground(Color.GRAY);
-        textField.setBorder(BorderFactory.createCompoundBorder(
-            new LineBorder(borderColor, 1, true),
-            new EmptyBorder(8, 10, 8, 10)
-        ));
+        textField.setFont(Theme.BODY);
+        textField.setForeground(Theme.PLACEHOLDER);
+        textField.setBorder(Theme.outlined(8, 10, 8, 10));
         textField.addFocusListener(new FocusAdapter() {
             @Override
             public void focusGained(FocusEvent e) {
-                if (textField.getText().equals(placeholder) || (textField.getText().startsWith("Option ") && textField.getForeground().equals(Color.GRAY)) ) {
+                if (textField.getText().equals(placeholder) || (textField.getText().startsWith("Option ") && textField.getForeground().equals(Theme.PLACEHOLDER)) ) {
                     textField.setText("");
-                    textField.setForeground(textColorDark);
+                    textField.setForeground(Theme.TEXT_DARK);
                 }
             }
             @Override
             public void focusLost(FocusEvent e) {
                 if (textField.getText().isEmpty()) {
                     textField.setText(placeholder);
-                    textField.setForeground(Color.GRAY);
+                    textField.setForeground(Theme.PLACEHOLDER);
                 }
             }
         });
         return textField;
     }
     
-    private JButton createStyledButton(String text, Color bg, Color fg) {
-        JButton button = new JButton(text);
-        button.setFont(new Font("Segoe UI Semibold", Font.PLAIN, 13));
-        button.setBackground(bg);
-        button.setForeground(fg);
-        button.setFocusPainted(false);
-        button.setBorder(new EmptyBorder(10, 20, 10, 20));
-        button.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        return button;
-    }
     
     
     
 //===================================================================================================
     private void addQuestionToQuiz() {
         String qText = questionTextArea.getText().trim();
-        if (qText.isEmpty()) {
-            showStyledErrorDialog("Question text cannot be empty.");
-            return;
-        }
 
         List<String> options = new ArrayList<>();
         for (int i = 0; i < optionFields.length; i++) {
             String optText = optionFields[i].getText().trim();
-            if (optText.isEmpty() || optText.equals("Option " + (i+1))) {
-                showStyledErrorDialog("Option " + (i + 1) + " cannot be empty.");
-                return;
+            if (optText.equals("Option " + (i+1))) {
+                optText = ""; // Still showing the placeholder
             }
             options.add(optText);
         }
@@ -171,11 +144,21 @@ public class QuestionEditorDialog extends JDialog {
             }
         }
 
-        if (correctIndex == -1) {
-            showStyledErrorDialog("Please select the correct answer.");
+        // Same rules as the bulk importer
+        String problem = QuestionValidator.validate(qText, options, correctIndex);
+        if (problem != null) {
+            showStyledErrorDialog(problem);
             return;
         }
 
+        // Probably a reworded copy of an existing question? Let the author decide.
+        if (duplicateDetector != null) {
+            List<DuplicateDetector.Match> similar = duplicateDetector.findSimilar(qText, options, quiz, DuplicateDetector.DEFAULT_THRESHOLD);
+            if (!similar.isEmpty() && !confirmDespiteDuplicates(similar)) {
+                return;
+            }
+        }
+
         Question newQuestion = new Question(qText, options, correctIndex);
         quiz.addQuestion(newQuestion);
         questionsAddedLabel.setText("Questions added: " + quiz.getNumOfQuestions());
@@ -183,13 +166,25 @@ public class QuestionEditorDialog extends JDialog {
         questionTextArea.setText("");
         for (int i=0; i<optionFields.length; i++) {
             optionFields[i].setText("Option " + (i+1));
-            optionFields[i].setForeground(Color.GRAY);
+            optionFields[i].setForeground(Theme.PLACEHOLDER);
         }
         correctAnswerGroup.clearSelection();
         questionTextArea.requestFocus();
         showStyledInfoDialog("Question added successfully!");
     }
     
+    private boolean confirmDespiteDuplicates(List<DuplicateDetector.Match> similar) {
+        StringBuilder message = new StringBuilder("This question looks like one that already exists:\n");
+        for (DuplicateDetector.Match match : similar) {
+            message.append("\n\"").append(match.getQuestion().getQuestionText()).append("\"\n    in '")
+                .append(match.getQuiz().getQuizName()).append("' (")
+                .append(Math.round(match.getSimilarity() * 100)).append("% similar)");
+        }
+        message.append("\n\nAdd it anyway?");
+        return JOptionPane.showConfirmDialog(this, message.toString(), "Possible Duplicate",
+            JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION;
+    }
+
     private void showStyledErrorDialog(String message) {
         JOptionPane.showMessageDialog(this, message, "Validation Error", JOptionPane.ERROR_MESSAGE);
     }
@@ -197,4 +192,4 @@ public class QuestionEditorDialog extends JDialog {
     private void showStyledInfoDialog(String message) {
         JOptionPane.showMessageDialog(this, message, "Success", JOptionPane.INFORMATION_MESSAGE);
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,343 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * QuestionImporter: reads a question bank file and turns it into quizzes.
+ *
+ * Two formats are understood, one question per line:
+ *   CSV:         quiz,question,option 1,...,option N,correct index (0 = first option, N at most 4)
+ *                (fields may be "quoted"; a first line starting with "quiz," is a header)
+ *   JSON lines:  {"quiz": "...", "question": "...", "options": ["...", ...], "correct": 0}
+ *
+ * The file is read in batches of lines. Worker threads parse and validate the
+ * batches (with the same rules as QuestionEditorDialog), while the reading thread
+ * puts the results together in file order. Only a few batches are in flight at
+ * once, so memory use does not depend on the size of the file.
+ *
+ * Questions for the same quiz must be on consecutive lines. Each finished quiz is
+ * handed to the listener right away and not kept by the importer.
+ */
+public class QuestionImporter {
+
+    public enum Format { CSV, JSON_LINES }
+
+    // Told about the import as it goes; all calls come from the thread running import
+    public interface Listener {
+        void quizImported(Quiz quiz);
+
+        void rowRejected(long lineNumber, String reason);
+
+        void progress(long bytesRead, long totalBytes, long questionsImported, long rowsRejected);
+    }
+
+    private static final int BATCH_LINES = 2048;
+
+    private final QuizRepository repository; // Hands out the ids of the new quizzes
+    private final ExecutorService workers;
+    private final int maxBatchesInFlight;
+    private volatile boolean cancelled = false;
+
+    public QuestionImporter(QuizRepository repository, int workerThreads) {
+        this.repository = repository;
+        this.workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "question-import-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxBatchesInFlight = workerThreads * 2;
+    }
+
+    // Picks the format from the file name (.csv, anything else is JSON lines)
+    public static Format formatOf(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? Format.CSV : Format.JSON_LINES;
+    }
+
+    // Stops a running import after the current batch
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Imports the whole file, calling the listener along the way. Blocks until done,
+     * so call it from a background thread. Returns the number of imported questions.
+     */
+    public long importFile(Path file, Format format, Listener listener) throws IOException {
+        long totalBytes = Files.size(file);
+        AtomicLong bytesRead = new AtomicLong();
+        ArrayDeque<Future<ParsedBatch>> inFlight = new ArrayDeque<>();
+        Assembler assembler = new Assembler(listener);
+
+        try (InputStream raw = Files.newInputStream(file);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(new CountingStream(raw, bytesRead), StandardCharsets.UTF_8), 1 << 16)) {
+
+            long lineNumber = 0;
+            List<String> lines = new ArrayList<>(BATCH_LINES);
+            long firstLine = 1;
+            String line;
+            while (!cancelled && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && format == Format.CSV && line.toLowerCase(Locale.ROOT).startsWith("quiz,")) {
+                    firstLine = 2; // Header
+                    continue;
+                }
+                lines.add(line);
+                if (lines.size() == BATCH_LINES) {
+                    submit(inFlight, lines, firstLine, format);
+                    firstLine = lineNumber + 1;
+                    lines = new ArrayList<>(BATCH_LINES);
+                    // Keep only a few batches in memory: wait for the oldest one.
+                    while (inFlight.size() >= maxBatchesInFlight) {
+                        assembler.add(await(inFlight.removeFirst()));
+                        listener.progress(bytesRead.get(), totalBytes, assembler.questionsImported, assembler.rowsRejected);
+                    }
+                }
+            }
+            if (!lines.isEmpty() && !cancelled) {
+                submit(inFlight, lines, firstLine, format);
+            }
+            while (!inFlight.isEmpty()) {
+                Future<ParsedBatch> next = inFlight.removeFirst();
+                if (cancelled) {
+                    next.cancel(true);
+                } else {
+                    assembler.add(await(next));
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        assembler.finish();
+        listener.progress(bytesRead.get(), totalBytes, assembler.questionsImported, assembler.rowsRejected);
+        return assembler.questionsImported;
+    }
+
+    private void submit(ArrayDeque<Future<ParsedBatch>> inFlight, List<String> lines, long firstLine, Format format) {
+        inFlight.addLast(workers.submit(() -> parseBatch(lines, firstLine, format)));
+    }
+
+    private static ParsedBatch await(Future<ParsedBatch> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    // --- Parsing (runs on the worker threads) ---
+
+    // One parsed batch: for every line either a question or the reason it was rejected
+    private static final class ParsedBatch {
+        final long firstLine;
+        final String[] quizNames;
+        final Question[] questions;
+        final String[] problems;
+
+        ParsedBatch(long firstLine, int size) {
+            this.firstLine = firstLine;
+            this.quizNames = new String[size];
+            this.questions = new Question[size];
+            this.problems = new String[size];
+        }
+    }
+
+    private static ParsedBatch parseBatch(List<String> lines, long firstLine, Format format) {
+        ParsedBatch batch = new ParsedBatch(firstLine, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.trim().isEmpty()) {
+                continue; // Blank lines are neither questions nor errors
+            }
+            try {
+                if (format == Format.CSV) {
+                    parseCsvRow(line, batch, i);
+                } else {
+                    parseJsonRow(line, batch, i);
+                }
+            } catch (RuntimeException e) {
+                batch.problems[i] = e.getMessage() != null ? e.getMessage() : e.toString();
+            }
+        }
+        return batch;
+    }
+
+    private static void parseCsvRow(String line, ParsedBatch batch, int row) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() < 4) {
+            batch.problems[row] = "Expected quiz, question, options and correct index";
+            return;
+        }
+        String correctField = fields.get(fields.size() - 1).trim();
+        int correctIndex;
+        try {
+            correctIndex = Integer.parseInt(correctField);
+        } catch (NumberFormatException e) {
+            batch.problems[row] = "Correct index is not a number: '" + correctField + "'";
+            return;
+        }
+        List<String> options = new ArrayList<>();
+        for (int i = 2; i < fields.size() - 1; i++) {
+            options.add(fields.get(i).trim());
+        }
+        accept(batch, row, fields.get(0).trim(), fields.get(1).trim(), options, correctIndex);
+    }
+
+    private static void parseJsonRow(String line, ParsedBatch batch, int row) {
+        Map<String, Object> object = Json.parseObject(line);
+        Object quiz = object.get("quiz");
+        Object question = object.get("question");
+        Object options = object.get("options");
+        Object correct = object.get("correct");
+        if (!(quiz instanceof String) || !(question instanceof String)) {
+            batch.problems[row] = "\"quiz\" and \"question\" must be strings";
+            return;
+        }
+        if (!(options instanceof List)) {
+            batch.problems[row] = "\"options\" must be a list";
+            return;
+        }
+        if (!(correct instanceof Long)) {
+            batch.problems[row] = "\"correct\" must be a whole number";
+            return;
+        }
+        List<String> optionTexts = new ArrayList<>();
+        for (Object option : (List<?>) options) {
+            optionTexts.add(option instanceof String ? ((String) option).trim() : "");
+        }
+        accept(batch, row, ((String) quiz).trim(), ((String) question).trim(), optionTexts, (int) (long) (Long) correct);
+    }
+
+    private static void accept(ParsedBatch batch, int row, String quizName, String questionText, List<String> options, int correctIndex) {
+        if (quizName.isEmpty()) {
+            batch.problems[row] = "Quiz name cannot be empty.";
+            return;
+        }
+        String problem = QuestionValidator.validate(questionText, options, correctIndex);
+        if (problem != null) {
+            batch.problems[row] = problem;
+            return;
+        }
+        batch.quizNames[row] = quizName;
+        batch.questions[row] = new Question(questionText, options, correctIndex);
+    }
+
+    // Splits one CSV line; "quoted" fields may contain commas and "" for a quote
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // --- Putting the quizzes together (runs on the importing thread, in file order) ---
+
+    private final class Assembler {
+        private final Listener listener;
+        private Quiz currentQuiz;
+        long questionsImported = 0;
+        long rowsRejected = 0;
+
+        Assembler(Listener listener) {
+            this.listener = listener;
+        }
+
+        void add(ParsedBatch batch) {
+            for (int i = 0; i < batch.questions.length; i++) {
+                if (batch.problems[i] != null) {
+                    rowsRejected++;
+                    listener.rowRejected(batch.firstLine + i, batch.problems[i]);
+                    continue;
+                }
+                Question question = batch.questions[i];
+                if (question == null) {
+                    continue; // Blank line
+                }
+                String quizName = batch.quizNames[i];
+                if (currentQuiz == null || !currentQuiz.getQuizName().equals(quizName)) {
+                    finish();
+                    currentQuiz = new Quiz(quizName, repository.newQuizId());
+                }
+                currentQuiz.addQuestion(question);
+                questionsImported++;
+            }
+        }
+
+        void finish() {
+            if (currentQuiz != null) {
+                listener.quizImported(currentQuiz);
+                currentQuiz = null;
+            }
+        }
+    }
+
+    // Counts the bytes read from the file, for the progress bar
+    private static final class CountingStream extends FilterInputStream {
+        private final AtomicLong count;
+
+        CountingStream(InputStream in, AtomicLong count) {
+            super(in);
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count.addAndGet(read);
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package main;
+
+import java.util.List;
+
+/**
+ * QuestionValidator: the rules a question must follow before it is added to a quiz.
+ * Used by QuestionEditorDialog and by QuestionImporter, so both accept the same questions.
+ */
+public final class QuestionValidator {
+
+    // The taking and editing dialogs have this many option buttons, and answers are packed into bytes
+    public static final int MAX_OPTIONS = 4;
+
+    private QuestionValidator() {
+    }
+
+    // Returns what is wrong with the question, or null if it is fine
+    public static String validate(String questionText, List<String> options, int correctIndex) {
+        if (questionText == null || questionText.trim().isEmpty()) {
+            return "Question text cannot be empty.";
+        }
+        if (options == null || options.isEmpty()) {
+            return "A question needs at least one option.";
+        }
+        if (options.size() > MAX_OPTIONS) {
+            return "A question can have at most " + MAX_OPTIONS + " options.";
+        }
+        for (int i = 0; i < options.size(); i++) {
+            String option = options.get(i);
+            if (option == null || option.trim().isEmpty()) {
+                return "Option " + (i + 1) + " cannot be empty.";
+            }
+        }
+        if (correctIndex < 0 || correctIndex >= options.size()) {
+            return "Please select the correct answer.";
+        }
+        return null;
+    }
+}
@@ -1,15 +1,36 @@
 package main;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Quiz {
+
+    // Loads the questions of a quiz that was read from disk without them
+    public interface QuestionSource {
+        List<Question> load(int questionCount);
+    }
+
+    // Told when a question is added to a quiz (e.g. the search index)
+    public interface QuestionListener {
+        void questionAdded(Quiz quiz, Question question);
+    }
+
     public String quizName;
     private int numOfQuestions;
     public final int quizId; // final -> no Inheritance , Must send the values to constructor , can't make override to this method
-    public List<Question> questions;
-    public int userScore = -1;
-    public boolean taken = false;
+    private volatile List<Question> questions; // null while the questions are only on disk
+    private QuestionSource questionSource;     // Where to load them from (null if they only live in memory)
+    private QuestionListener[] questionListeners = NO_LISTENERS; // Copied on change, so firing needs no lock
+
+    // How an attempt is put together (see QuestionDraw)
+    private volatile int questionsPerAttempt; // 0 = every question
+    private volatile boolean shuffleOptions;
+    private volatile boolean adaptive; // Questions picked one by one by AdaptiveTest
+    private volatile int timeLimitSeconds;   // Whole attempt, 0 = no limit
+    private volatile int secondsPerQuestion; // Each question, 0 = no limit
+
+    private static final QuestionListener[] NO_LISTENERS = new QuestionListener[0];
 
         public Quiz(String quizName, int quizId, List<Question> initialQuestions){
         this.quizName = quizName;
@@ -26,43 +47,143 @@ public class Quiz {
   
     }
 
+        // A quiz whose questions stay on disk until getQuestions() is called
+        public Quiz(String quizName, int quizId, int numOfQuestions, QuestionSource questionSource) {
+        this.quizName = quizName;
+        this.quizId = quizId;
+        this.numOfQuestions = numOfQuestions;
+        this.questionSource = questionSource;
+    }
+
     public void addQuestion(Question q) {
-        if (q != null) {
-            this.questions.add(q);
-            this.numOfQuestions = this.questions.size();
+        if (q == null) {
+            return;
+        }
+        QuestionListener[] listeners;
+        synchronized (this) {
+            List<Question> loaded = getQuestions();
+            loaded.add(q);
+            this.numOfQuestions = loaded.size();
+            this.questionSource = null; // The copy on disk is out of date now
+            listeners = questionListeners;
+        }
+        for (QuestionListener listener : listeners) {
+            listener.questionAdded(this, q);
+        }
+    }
+
+    // Returns how many questions the quiz has now: the listener hears about every one added after them
+    public synchronized int addQuestionListener(QuestionListener listener) {
+        QuestionListener[] grown = Arrays.copyOf(questionListeners, questionListeners.length + 1);
+        grown[questionListeners.length] = listener;
+        questionListeners = grown;
+        return numOfQuestions;
+    }
+
+    public synchronized void removeQuestionListener(QuestionListener listener) {
+        for (int i = 0; i < questionListeners.length; i++) {
+            if (questionListeners[i] == listener) {
+                QuestionListener[] shrunk = new QuestionListener[questionListeners.length - 1];
+                System.arraycopy(questionListeners, 0, shrunk, 0, i);
+                System.arraycopy(questionListeners, i + 1, shrunk, i, shrunk.length - i);
+                questionListeners = shrunk;
+                return;
+            }
         }
     }
 
     public List<Question> getQuestions() {
-        return questions;
+        List<Question> loaded = questions;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = questions;
+                if (loaded == null) {
+                    loaded = new ArrayList<>(questionSource.load(numOfQuestions));
+                    questions = loaded;
+                }
+            }
+        }
+        return loaded;
     }
 
-    public int getNumOfQuestions() {
-        return questions.size();
+    // Frees the questions again if they can be re-loaded from disk (e.g. after the quiz was taken)
+    public synchronized void releaseQuestions() {
+        if (questionSource != null) {
+            questions = null;
+        }
     }
-    
-    public String getQuizName() {
-        return quizName;
+
+    // True if the questions are in memory (false while they are only on disk)
+    public boolean areQuestionsLoaded() {
+        return questions != null;
     }
 
-    public int getQuizId() {
-        return quizId;
+    // The disk copy of the questions, or null if the questions only live in memory
+    public synchronized QuestionSource getQuestionSource() {
+        return questionSource;
+    }
+
+    // Questions drawn from the pool for each attempt, 0 = all of them
+    public int getQuestionsPerAttempt() {
+        return questionsPerAttempt;
     }
 
-    public int getUserScore() {
-        return userScore;
+    public boolean isShuffleOptions() {
+        return shuffleOptions;
     }
 
-    public void setUserScore(int userScore) {
-        this.userScore = userScore;
+    // Adaptive attempts ask each student the questions that suit them; questions per attempt is then the most asked
+    public boolean isAdaptive() {
+        return adaptive;
     }
 
-    public boolean isTaken() {
-        return taken;
+    public void setAttemptSettings(int questionsPerAttempt, boolean shuffleOptions, boolean adaptive) {
+        this.questionsPerAttempt = Math.max(0, questionsPerAttempt);
+        this.shuffleOptions = shuffleOptions;
+        this.adaptive = adaptive;
     }
 
-    public void setTaken(boolean taken) {
-        this.taken = taken;
+    // Time for the whole attempt in seconds, 0 = no limit
+    public int getTimeLimitSeconds() {
+        return timeLimitSeconds;
+    }
+
+    // Time for each question in seconds, 0 = no limit
+    public int getSecondsPerQuestion() {
+        return secondsPerQuestion;
+    }
+
+    public void setTimeLimits(int timeLimitSeconds, int secondsPerQuestion) {
+        this.timeLimitSeconds = Math.max(0, timeLimitSeconds);
+        this.secondsPerQuestion = Math.max(0, secondsPerQuestion);
+    }
+
+    public boolean isTimed() {
+        return timeLimitSeconds > 0 || secondsPerQuestion > 0;
+    }
+
+    // True if attempts are not simply every question as written
+    public boolean hasAttemptSettings() {
+        return questionsPerAttempt > 0 || shuffleOptions || adaptive || isTimed();
+    }
+
+    // Number of questions one attempt asks
+    public int getQuestionsInAttempt() {
+        int poolSize = getNumOfQuestions();
+        return questionsPerAttempt > 0 ? Math.min(questionsPerAttempt, poolSize) : poolSize;
+    }
+
+    public int getNumOfQuestions() {
+        List<Question> loaded = questions;
+        return loaded != null ? loaded.size() : numOfQuestions;
+    }
+    
+    public String getQuizName() {
+        return quizName;
+    }
+
+    public int getQuizId() {
+        return quizId;
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
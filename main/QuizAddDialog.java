@@ -1,49 +1,46 @@
 package main;
 
 import javax.swing.*;
-import javax.swing.border.EmptyBorder;
-import javax.swing.border.LineBorder;
 import java.awt.*;
 import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
-import java.util.ArrayList;
+import java.util.function.Consumer;
 
 public class QuizAddDialog extends JDialog {
 
     private JTextField quizNameField; 
     private JLabel quizQuestionsNumLabel;
+    private AttemptSettingsPanel attemptSettingsPanel;
     private Quiz currentWorkingQuiz;
-    private ArrayList<Quiz> quizesListRef;
-    private Runnable updateHomePageQuizesCallback;
-    private Color primaryColor, accentColor, textColorWhite, bgColor, textColorDark, borderColor;
+    private QuizRepository quizesListRef;
+    private QuizStore quizStore; // May be null (nothing is saved then)
+    private DuplicateDetector duplicateDetector; // May be null (no duplicate warnings then)
+    private Consumer<Quiz> updateHomePageQuizesCallback;
 
 
-    public QuizAddDialog(Frame owner, String title, ArrayList<Quiz> quizes, Runnable updateHomePageQuizes,
-                         Color primary, Color accent, Color textWhite, Color bg, Color textDark, Color border) {
+    public QuizAddDialog(Frame owner, String title, QuizRepository quizes, QuizStore store, DuplicateDetector duplicateDetector,
+                         Consumer<Quiz> updateHomePageQuizes) {
         super(owner, title, true);
+        long constructionStart = System.nanoTime();
         this.quizesListRef = quizes;
+        this.quizStore = store;
+        this.duplicateDetector = duplicateDetector;
         this.updateHomePageQuizesCallback = updateHomePageQuizes;
-        this.primaryColor = primary;
-        this.accentColor = accent;
-        this.textColorWhite = textWhite;
-        this.bgColor = bg;
-        this.textColorDark = textDark;
-        this.borderColor = border;
-
-        setSize(550, 350);
+
+        setSize(550, 400);
         setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
         setLocationRelativeTo(owner);
-        getContentPane().setBackground(bgColor);
+        getContentPane().setBackground(Theme.BACKGROUND);
         setLayout(new BorderLayout());
 
         JPanel mainPanel = new JPanel();
         mainPanel.setLayout(new BoxLayout(mainPanel, BoxLayout.Y_AXIS));
-        mainPanel.setBackground(bgColor);
-        mainPanel.setBorder(new EmptyBorder(25, 25, 25, 25));
+        mainPanel.setBackground(Theme.BACKGROUND);
+        mainPanel.setBorder(Theme.padding(25, 25, 25, 25));
 
         JLabel nameLabel = new JLabel("Quiz Title:");
-        nameLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
-        nameLabel.setForeground(textColorDark);
+        nameLabel.setFont(Theme.LABEL);
+        nameLabel.setForeground(Theme.TEXT_DARK);
         nameLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
         mainPanel.add(nameLabel);
 
@@ -53,25 +50,30 @@ public class QuizAddDialog extends JDialog {
         mainPanel.add(Box.createRigidArea(new Dimension(0, 15)));
 
         JLabel numQuestionsDescLabel = new JLabel("Number of Questions:");
-        numQuestionsDescLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
-        numQuestionsDescLabel.setForeground(textColorDark);
+        numQuestionsDescLabel.setFont(Theme.LABEL);
+        numQuestionsDescLabel.setForeground(Theme.TEXT_DARK);
         numQuestionsDescLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
         mainPanel.add(numQuestionsDescLabel);
         
         quizQuestionsNumLabel = new JLabel("0 (Add questions using 'Manage Questions')");
-        quizQuestionsNumLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-        quizQuestionsNumLabel.setForeground(textColorDark.darker());
+        quizQuestionsNumLabel.setFont(Theme.BODY);
+        quizQuestionsNumLabel.setForeground(Theme.TEXT_MUTED);
         quizQuestionsNumLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
         mainPanel.add(quizQuestionsNumLabel);
+        mainPanel.add(Box.createRigidArea(new Dimension(0, 15)));
+
+        attemptSettingsPanel = new AttemptSettingsPanel(currentWorkingQuiz);
+        attemptSettingsPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        mainPanel.add(attemptSettingsPanel);
         mainPanel.add(Box.createRigidArea(new Dimension(0, 30)));
 
         JPanel buttonsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
-        buttonsPanel.setBackground(bgColor);
+        buttonsPanel.setBackground(Theme.BACKGROUND);
 
-        JButton addQuestionsButton = createStyledButton("Manage Questions", primaryColor, textColorWhite);
+        JButton addQuestionsButton = Theme.button("Manage Questions", Theme.PRIMARY_DARK, Theme.TEXT_WHITE, Theme.padding(10, 20, 10, 20));
         addQuestionsButton.addActionListener(e -> openQuestionEditor());
 
-        JButton saveQuizButton = createStyledButton("Save Quiz", accentColor, textColorWhite);
+        JButton saveQuizButton = Theme.button("Save Quiz", Theme.ACCENT_ADD, Theme.TEXT_WHITE, Theme.padding(10, 20, 10, 20));
         saveQuizButton.addActionListener(e -> saveQuiz());
 
         buttonsPanel.add(addQuestionsButton);
@@ -80,16 +82,14 @@ public class QuizAddDialog extends JDialog {
         mainPanel.add(buttonsPanel);
 
         add(mainPanel, BorderLayout.CENTER);
+        Metrics.DIALOG_CONSTRUCTION.record(System.nanoTime() - constructionStart);
     }
 
     private JTextField createStyledTextField(String placeholder) { // to add the place holder
         JTextField textField = new JTextField(placeholder);
-        textField.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-        textField.setForeground(Color.GRAY);
-        textField.setBorder(BorderFactory.createCompoundBorder(
-            new LineBorder(borderColor, 1, true),
-            new EmptyBorder(8, 10, 8, 10)
-        ));
+        textField.setFont(Theme.BODY);
+        textField.setForeground(Theme.PLACEHOLDER);
+        textField.setBorder(Theme.outlined(8, 10, 8, 10));
         textField.setMaximumSize(new Dimension(Integer.MAX_VALUE, textField.getPreferredSize().height));
         textField.addFocusListener(new FocusAdapter() {
            
@@ -97,14 +97,14 @@ public class QuizAddDialog extends JDialog {
             public void focusGained(FocusEvent e) {
                 if (textField.getText().equals(placeholder)) {
                     textField.setText("");
-                    textField.setForeground(textColorDark);
+                    textField.setForeground(Theme.TEXT_DARK);
                 }
             }
             @Override
             public void focusLost(FocusEvent e) {
                 if (textField.getText().isEmpty()) {
                     textField.setText(placeholder);
-                    textField.setForeground(Color.GRAY);
+                    textField.setForeground(Theme.PLACEHOLDER);
                 } else {
                      if (currentWorkingQuiz != null) {
                         currentWorkingQuiz.quizName = textField.getText();
@@ -115,18 +115,6 @@ public class QuizAddDialog extends JDialog {
         return textField;
     }
     
-    private JButton createStyledButton(String text, Color bg, Color fg) {
-        JButton button = new JButton(text);
-        button.setFont(new Font("Segoe UI Semibold", Font.PLAIN, 13));
-        button.setBackground(bg);
-        button.setForeground(fg);
-        button.setFocusPainted(false);
-        button.setBorder(new EmptyBorder(10, 20, 10, 20));
-        button.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        return button;
-    }
-
-
     private void initializeCurrentWorkingQuiz() {
         String name = quizNameField.getText();
         if (name.isEmpty() || name.equals("Enter Quiz Name")) {
@@ -135,7 +123,7 @@ public class QuizAddDialog extends JDialog {
             return;
         }
         if (currentWorkingQuiz == null) {
-        	int newId = quizesListRef.isEmpty() ? 0 : quizesListRef.size();
+        	int newId = quizesListRef.newQuizId(); // Shared counter, never reused after a delete
         	currentWorkingQuiz = new Quiz(name, newId);
             quizQuestionsNumLabel.setText(String.valueOf(currentWorkingQuiz.getNumOfQuestions()) + " (Add questions using 'Manage Questions')");
         } else {
@@ -147,7 +135,7 @@ public class QuizAddDialog extends JDialog {
         initializeCurrentWorkingQuiz();
         if (currentWorkingQuiz == null) return;
 
-        QuestionEditorDialog qed = new QuestionEditorDialog(this, "Edit Questions for: " + currentWorkingQuiz.getQuizName(), currentWorkingQuiz, primaryColor, accentColor, textColorWhite, bgColor, textColorDark, borderColor);
+        QuestionEditorDialog qed = new QuestionEditorDialog(this, "Edit Questions for: " + currentWorkingQuiz.getQuizName(), currentWorkingQuiz, duplicateDetector);
         qed.setVisible(true);
         quizQuestionsNumLabel.setText(String.valueOf(currentWorkingQuiz.getNumOfQuestions()) + (currentWorkingQuiz.getNumOfQuestions() == 1 ? " question" : " questions"));
     }
@@ -166,8 +154,12 @@ public class QuizAddDialog extends JDialog {
             return;
         }
 
+        attemptSettingsPanel.applyTo(currentWorkingQuiz);
         quizesListRef.add(currentWorkingQuiz);
-        updateHomePageQuizesCallback.run();
+        if (quizStore != null) {
+            quizStore.saveQuiz(currentWorkingQuiz); // Written in the background, grouped with other saves
+        }
+        updateHomePageQuizesCallback.accept(currentWorkingQuiz);
         dispose();
     }
     
@@ -5,63 +5,63 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import javax.swing.*;
-import javax.swing.border.EmptyBorder;
 
 public class QuizApp extends JFrame {
 
-    // List to store all quizzes
-    ArrayList<Quiz> quizes = new ArrayList<>();
-    private int nextQuizId = 0; // Used to generate unique quiz IDs
+    private static final int PLACEHOLDER_CARDS = 12; // Shown while the catalog loads: about a screenful
+
+    // All quizzes, indexed by ID (also hands out new quiz IDs)
+    QuizRepository quizes = new QuizRepository();
+    private QuizStore quizStore; // Saves quizzes on disk (null if the store could not be opened)
+    private AttemptStore attemptStore; // Every attempt of every user (only in memory if it could not be opened)
+    private AttemptJournal attemptJournal; // Attempts still being taken, so they can be resumed
+    private ItemStatistics itemStatistics; // How each question performs, fed by the attempt store
+    private Leaderboard leaderboard; // Best score of every taker per quiz, fed by the attempt store
+    private final QuizSearchIndex searchIndex = new QuizSearchIndex(quizes); // Words -> quizzes, for the search box
+    private final DuplicateDetector duplicateDetector = new DuplicateDetector(quizes); // Warns about repeated questions
 
     // UI components
     private JButton addQuizButtonComponent;
     private JPanel northPanel;
     private JLabel homePageHeroLabel;
-    private JPanel quizesContainer;
-
-    // Color constants for UI styling
-    private static final Color PRIMARY_COLOR_DARK = new Color(25, 42, 86);
-    private static final Color PRIMARY_COLOR_LIGHT = new Color(60, 99, 130);
-    private static final Color BACKGROUND_COLOR = new Color(245, 246, 250);
-    private static final Color TEXT_COLOR_DARK = new Color(47, 54, 64);
-    private static final Color TEXT_COLOR_WHITE = Color.WHITE;
-    private static final Color ACCENT_DELETE = new Color(205, 97, 85);
-    private static final Color ACCENT_ADD = new Color(39, 174, 96);
-    private static final Color BORDER_COLOR = new Color(220, 221, 225);
+    private JTextField searchField;
+    private QuizGridPanel quizesContainer;
 
     public QuizApp() {
         super("Quiz Management System");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(1100, 750);
         setLocationRelativeTo(null); // Owner
-        getContentPane().setBackground(BACKGROUND_COLOR);
+        getContentPane().setBackground(Theme.BACKGROUND);
 
-        // Add some sample quizzes to start with
-        initializeSampleQuizzes();
+        // Menu bar with the file actions
+        setJMenuBar(createMenuBar());
 
         // Create and style the top panel (header)
         northPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
-        northPanel.setBackground(PRIMARY_COLOR_DARK);
-        northPanel.setBorder(new EmptyBorder(25, 0, 25, 0));
+        northPanel.setBackground(Theme.PRIMARY_DARK);
+        northPanel.setBorder(Theme.padding(25, 0, 25, 0));
 
         // Add the main title label to the header
         homePageHeroLabel = new JLabel("Quiz Dashboard");
-        homePageHeroLabel.setFont(new Font("Segoe UI Semibold", Font.BOLD, 32));
-        homePageHeroLabel.setForeground(TEXT_COLOR_WHITE);
+        homePageHeroLabel.setFont(Theme.HERO);
+        homePageHeroLabel.setForeground(Theme.TEXT_WHITE);
         northPanel.add(homePageHeroLabel);
+        northPanel.add(Box.createHorizontalStrut(30));
+        northPanel.add(createSearchField());
         add(northPanel, BorderLayout.NORTH);
 
-        // Container for all quiz buttons/cards
-        quizesContainer = new JPanel(new WrapLayout(FlowLayout.LEFT, 25, 25));
-        quizesContainer.setBackground(BACKGROUND_COLOR);
-        quizesContainer.setBorder(new EmptyBorder(25, 25, 25, 25));
-
-        // Add quiz buttons/cards to the container
+        // Container for all quiz buttons/cards (only the visible ones are built)
         initializeQuizesContainerGUI();
+        quizesContainer.setBackground(Theme.BACKGROUND);
+        quizesContainer.setBorder(Theme.padding(25, 25, 25, 25));
 
         // Make the quiz container scrollable
         JScrollPane quizesScrollPane = new JScrollPane(quizesContainer);
@@ -76,8 +76,8 @@ public class QuizApp extends JFrame {
         	
         	@Override
             protected void configureScrollBarColors() {
-                this.thumbColor = PRIMARY_COLOR_LIGHT;
-                this.trackColor = BACKGROUND_COLOR;
+                this.thumbColor = Theme.PRIMARY_LIGHT;
+                this.trackColor = Theme.BACKGROUND;
             }
             @Override
             protected JButton createDecreaseButton(int orientation) {
@@ -101,13 +101,11 @@ public class QuizApp extends JFrame {
         addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent k) {
-                if (k.getKeyCode() == KeyEvent.VK_A) {
+                if (k.getKeyCode() == KeyEvent.VK_A && addQuizButtonComponent.isEnabled()) {
                     // Show the dialog to add a new quiz
                     QuizAddDialog addQuizDialog = new QuizAddDialog(
-                        QuizApp.this, "Create New Quiz", quizes,
-                        QuizApp.this::handleQuizAddedOrUpdated,
-                        PRIMARY_COLOR_DARK, ACCENT_ADD, TEXT_COLOR_WHITE,
-                        BACKGROUND_COLOR, TEXT_COLOR_DARK, BORDER_COLOR
+                        QuizApp.this, "Create New Quiz", quizes, quizStore, duplicateDetector,
+                        QuizApp.this::handleQuizAdded
                     );
                     addQuizDialog.setVisible(true);
                 }
@@ -123,12 +121,448 @@ public class QuizApp extends JFrame {
 
         // Show the window
         setVisible(true);
-    
+
+        // Load the saved quizzes in the background (the sample quizzes on the very first run)
+        loadQuizes();
+
+        // Quiz-taking dialogs are ready before the first click
+        DialogPool.forOwner(this).prewarmWhenIdle();
+    }
+
+    // Search-as-you-type box; usable once the index is built in the background (see startIndexing())
+    private JTextField createSearchField() {
+        searchField = new JTextField(22);
+        searchField.setFont(Theme.SEARCH);
+        searchField.setToolTipText("Search quizzes by name, question or option");
+        searchField.setEnabled(false);
+        searchField.setText("Indexing quizzes...");
+
+        // Wait until typing pauses before searching
+        Timer searchDelay = new Timer(150, e -> applySearch());
+        searchDelay.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                searchDelay.restart();
+            }
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                searchDelay.restart();
+            }
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                searchDelay.restart();
+            }
+        });
+        return searchField;
+    }
+
+    // Builds the search index, then the statistics, in the background once the catalog is loaded
+    private void startIndexing() {
+        TaskPipeline.shared().submit(new TaskPipeline.Task<Void, Void>() {
+            @Override
+            protected Void call() {
+                searchIndex.build();
+                return null;
+            }
+
+            @Override
+            protected void succeeded(Void result) {
+                searchField.setText("");
+                searchField.setEnabled(true);
+            }
+        });
+        TaskPipeline.shared().submit(new TaskPipeline.Task<Void, Void>() {
+            @Override
+            protected Void call() throws IOException {
+                itemStatistics.build();
+                leaderboard.build();
+                duplicateDetector.build(); // Only needed once someone adds a question, so it comes last
+                return null;
+            }
+        });
+    }
+
+    private boolean isSearching() {
+        return searchField != null && searchField.isEnabled() && !searchField.getText().trim().isEmpty();
+    }
+
+    // Show the quizzes matching the search box (or all of them when it is empty).
+    // Searching runs in the background; a newer search cancels the one before.
+    private void applySearch() {
+        if (quizesContainer == null) {
+            return;
+        }
+        if (!isSearching()) {
+            TaskPipeline.shared().cancel("search"); // Its results must not come back over the full list
+            quizesContainer.setQuizes(quizes.view());
+            return;
+        }
+        String query = searchField.getText();
+        TaskPipeline.shared().submit("search", new TaskPipeline.Task<List<Quiz>, Void>() {
+            @Override
+            protected List<Quiz> call() {
+                return searchIndex.search(query);
+            }
+
+            @Override
+            protected void succeeded(List<Quiz> found) {
+                quizesContainer.setQuizes(found);
+            }
+        });
     }
 
     // Generate a new unique quiz ID
     private int generateNewQuizId() {
-        return nextQuizId++;
+        return quizes.newQuizId();
+    }
+
+    /**
+     * Opens the stores and streams the saved quizzes into the dashboard, all in the
+     * background; placeholder cards stand in for them until they are there. Nothing
+     * that creates quizzes is enabled meanwhile, since a new quiz could take the id of
+     * one that is still on its way.
+     */
+    private void loadQuizes() {
+        setCatalogActionsEnabled(false);
+        quizesContainer.setPlaceholderCount(PLACEHOLDER_CARDS);
+        List<String> problems = new ArrayList<>(); // Shown once loading is done
+
+        TaskPipeline.shared().submit(new TaskPipeline.Task<Boolean, Quiz>() {
+            @Override
+            protected Boolean call() {
+                // Scores of every attempt (kept in memory only if the history can't be opened).
+                // Opened first: the cards read it as soon as the first quizzes arrive.
+                try {
+                    attemptStore = new AttemptStore(QuizStore.defaultDirectory());
+                } catch (IOException e) {
+                    attemptStore = new AttemptStore();
+                    problems.add("Could not open the attempt history:\n" + e.getMessage() + "\nScores will not be saved.");
+                }
+                // Attempts left unfinished, e.g. by a crash (kept in memory only if the journal can't be opened)
+                try {
+                    attemptJournal = new AttemptJournal(QuizStore.defaultDirectory());
+                } catch (IOException e) {
+                    attemptJournal = new AttemptJournal();
+                    System.err.println("Could not open the attempt journal: " + e.getMessage());
+                }
+                itemStatistics = new ItemStatistics(quizes, attemptStore); // Filled in the background, see startIndexing()
+                leaderboard = new Leaderboard(quizes, attemptStore);
+
+                boolean firstRun = true;
+                try {
+                    QuizStore store = new QuizStore(QuizStore.defaultDirectory());
+                    List<Quiz> recovered = store.recover();
+                    quizStore = store;
+                    firstRun = store.isNew();
+                    // Added here, not on the EDT: the repository's listeners (search index,
+                    // duplicate detector) index each quiz as it comes in
+                    for (Quiz q : recovered) {
+                        quizes.add(q); // Also makes sure new IDs don't clash with the loaded ones
+                        publish(q);
+                    }
+                } catch (IOException e) {
+                    quizStore = null;
+                    problems.add("Could not open the saved quizzes:\n" + e.getMessage() + "\nChanges will not be saved.");
+                }
+
+                // Write out anything still queued when the app exits
+                QuizStore storeToClose = quizStore;
+                AttemptStore attemptsToClose = attemptStore;
+                AttemptJournal journalToClose = attemptJournal;
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        journalToClose.close();
+                        attemptsToClose.close();
+                        if (storeToClose != null) {
+                            storeToClose.close();
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Could not close the quiz store: " + e.getMessage());
+                    }
+                }));
+                return firstRun;
+            }
+
+            @Override
+            protected void process(List<Quiz> loaded) {
+                refreshQuizesDisplay(); // They are in the repository already
+            }
+
+            @Override
+            protected void succeeded(Boolean firstRun) {
+                if (firstRun) {
+                    initializeSampleQuizzes();
+                    if (quizStore != null) {
+                        for (Quiz q : quizes) {
+                            quizStore.saveQuiz(q);
+                        }
+                    }
+                }
+                quizesContainer.setPlaceholderCount(0);
+                refreshQuizesDisplay();
+                setCatalogActionsEnabled(true);
+                startIndexing();
+                for (String problem : problems) {
+                    JOptionPane.showMessageDialog(QuizApp.this, problem, "Storage Error", JOptionPane.WARNING_MESSAGE);
+                }
+            }
+
+            @Override
+            protected void failed(Throwable error) {
+                quizesContainer.setPlaceholderCount(0);
+                JOptionPane.showMessageDialog(QuizApp.this, "Could not load the quizzes:\n" + error.getMessage(),
+                    "Storage Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
+
+    // The menus and the "Add New Quiz" card (off while the catalog loads)
+    private void setCatalogActionsEnabled(boolean enabled) {
+        JMenuBar menuBar = getJMenuBar();
+        for (int i = 0; i < menuBar.getMenuCount(); i++) {
+            menuBar.getMenu(i).setEnabled(enabled);
+        }
+        addQuizButtonComponent.setEnabled(enabled);
+    }
+
+    // Create the menu bar (File > Import / Export, Tools > Find Duplicates)
+    private JMenuBar createMenuBar() {
+        JMenuBar menuBar = new JMenuBar();
+        JMenu fileMenu = new JMenu("File");
+        JMenuItem importItem = new JMenuItem("Import Questions...");
+        importItem.addActionListener(e -> chooseAndImportQuestions());
+        fileMenu.add(importItem);
+        fileMenu.addSeparator();
+        JMenuItem exportQuestionsItem = new JMenuItem("Export Questions...");
+        exportQuestionsItem.addActionListener(e -> chooseAndExport(false));
+        fileMenu.add(exportQuestionsItem);
+        JMenuItem exportResultsItem = new JMenuItem("Export Results...");
+        exportResultsItem.addActionListener(e -> chooseAndExport(true));
+        fileMenu.add(exportResultsItem);
+        menuBar.add(fileMenu);
+        JMenu toolsMenu = new JMenu("Tools");
+        JMenuItem duplicatesItem = new JMenuItem("Find Duplicate Questions...");
+        duplicatesItem.addActionListener(e -> findDuplicateQuestions());
+        toolsMenu.add(duplicatesItem);
+        menuBar.add(toolsMenu);
+        return menuBar;
+    }
+
+    // Ask for a CSV / JSON lines question bank and import it in the background
+    private void chooseAndImportQuestions() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Questions");
+        chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Question banks (*.csv, *.jsonl)", "csv", "jsonl", "json"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        importQuestions(chooser.getSelectedFile());
+        requestFocusInWindow();
+    }
+
+    private void importQuestions(File file) {
+        Path path = file.toPath();
+        QuestionImporter importer = new QuestionImporter(quizes, Runtime.getRuntime().availableProcessors());
+        ProgressMonitor progressMonitor = new ProgressMonitor(this, "Importing " + file.getName(), "", 0, 1000);
+        progressMonitor.setMillisToDecideToPopup(200);
+        List<String> firstProblems = new ArrayList<>();
+        long[] rejectedRows = new long[1];
+
+        // Parsing runs on the importer's threads; the task saves and adds each quiz
+        // there too (so the repository's listeners index it off the EDT), and only
+        // tells the EDT in chunks to show them.
+        TaskPipeline.shared().submit(new TaskPipeline.Task<Long, Quiz>() {
+            @Override
+            protected Long call() throws Exception {
+                return importer.importFile(path, QuestionImporter.formatOf(path), new QuestionImporter.Listener() {
+                    @Override
+                    public void quizImported(Quiz quiz) {
+                        if (quizStore != null) {
+                            quizStore.saveQuiz(quiz);
+                        }
+                        quizes.add(quiz);
+                        publish(quiz);
+                    }
+
+                    @Override
+                    public void rowRejected(long lineNumber, String reason) {
+                        rejectedRows[0]++;
+                        synchronized (firstProblems) {
+                            if (firstProblems.size() < 10) {
+                                firstProblems.add("Line " + lineNumber + ": " + reason);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void progress(long bytesRead, long totalBytes, long questionsImported, long rowsRejected) {
+                        if (totalBytes > 0) {
+                            int percent = (int) Math.min(100, bytesRead * 100 / totalBytes);
+                            setProgress(percent, percent + "% read");
+                        }
+                        if (progressMonitor.isCanceled() || isCancelled()) {
+                            importer.cancel();
+                        }
+                    }
+                });
+            }
+
+            @Override
+            protected void process(List<Quiz> importedQuizes) {
+                refreshQuizesDisplay();
+            }
+
+            @Override
+            protected void progress(int percent, String note) {
+                progressMonitor.setProgress(percent * 10);
+                progressMonitor.setNote(note);
+            }
+
+            @Override
+            protected void failed(Throwable error) {
+                progressMonitor.close();
+                JOptionPane.showMessageDialog(QuizApp.this, "Import failed:\n" + error.getMessage(),
+                    "Import Error", JOptionPane.ERROR_MESSAGE);
+            }
+
+            @Override
+            protected void succeeded(Long questionsImported) {
+                progressMonitor.close();
+                String summary = questionsImported + " questions imported.";
+                if (rejectedRows[0] > 0) {
+                    summary += "\n" + rejectedRows[0] + " rows were skipped:\n" + String.join("\n", firstProblems);
+                    if (rejectedRows[0] > firstProblems.size()) {
+                        summary += "\n...";
+                    }
+                }
+                JOptionPane.showMessageDialog(QuizApp.this, summary, "Import Finished",
+                    rejectedRows[0] > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+            }
+        });
+    }
+
+    // Ask where to save and export the questions (or the results) in the background
+    private void chooseAndExport(boolean results) {
+        String what = results ? "Results" : "Questions";
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export " + what);
+        chooser.setSelectedFile(new File(results ? "results.csv" : "questions.jsonl"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path path = chooser.getSelectedFile().toPath();
+        QuizExporter.Format format = QuizExporter.formatOf(path);
+        int quizCount = quizes.size();
+        ProgressMonitor progressMonitor = new ProgressMonitor(this, "Exporting " + what.toLowerCase(), "", 0, 100);
+        progressMonitor.setMillisToDecideToPopup(200);
+
+        // The exporter walks a snapshot of the repository, so the dashboard stays usable meanwhile
+        TaskPipeline.shared().submit(new TaskPipeline.Task<Long, Void>() {
+            @Override
+            protected Long call() throws Exception {
+                QuizExporter.ProgressListener listener = (done, total) -> {
+                    // Coalesced by the pipeline, so the exporter may report as often as it likes
+                    setProgress((int) (done * 100L / Math.max(1, total)),
+                        done + " of " + total + (results ? " attempts" : " quizzes"));
+                    return !progressMonitor.isCanceled() && !isCancelled();
+                };
+                return results
+                    ? QuizExporter.exportResults(quizes, attemptStore, path, format, listener)
+                    : QuizExporter.exportQuestions(quizes, quizCount, path, format, listener);
+            }
+
+            @Override
+            protected void progress(int percent, String note) {
+                progressMonitor.setProgress(percent);
+                progressMonitor.setNote(note);
+            }
+
+            @Override
+            protected void succeeded(Long rows) {
+                progressMonitor.close();
+                JOptionPane.showMessageDialog(QuizApp.this,
+                    rows + (results ? " attempts" : " questions") + " exported to " + path.getFileName() + ".",
+                    "Export Finished", JOptionPane.INFORMATION_MESSAGE);
+            }
+
+            @Override
+            protected void failed(Throwable error) {
+                progressMonitor.close();
+                JOptionPane.showMessageDialog(QuizApp.this, "Export failed:\n" + error.getMessage(),
+                    "Export Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        requestFocusInWindow();
+    }
+
+    // How attempts of 'quiz' are put together: questions drawn from the pool, shuffled options, adaptive, time limits
+    private void editAttemptSettings(Quiz quiz) {
+        AttemptSettingsPanel settingsPanel = new AttemptSettingsPanel(quiz);
+        int choice = JOptionPane.showConfirmDialog(this, settingsPanel, "Attempt Settings: " + quiz.getQuizName(),
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice == JOptionPane.OK_OPTION && settingsPanel.applyTo(quiz) && quizStore != null) {
+            quizStore.saveSettings(quiz); // Only the settings: the questions are already on disk
+        }
+    }
+
+    // Check the whole catalog for near-duplicate questions in the background and list them
+    private void findDuplicateQuestions() {
+        List<Quiz> snapshot = new ArrayList<>(quizes.view());
+        ProgressMonitor progressMonitor = new ProgressMonitor(this, "Looking for duplicate questions", "", 0, 1);
+        progressMonitor.setMillisToDecideToPopup(200);
+        // The report is written in the background too: it may load questions from disk
+        TaskPipeline.shared().submit(new TaskPipeline.Task<String, Void>() {
+            @Override
+            protected String call() {
+                List<List<DuplicateDetector.Match>> groups =
+                    DuplicateDetector.findDuplicateGroups(snapshot, DuplicateDetector.DEFAULT_THRESHOLD);
+                return groups.isEmpty() ? null : duplicateReport(groups);
+            }
+
+            @Override
+            protected void failed(Throwable error) {
+                progressMonitor.close();
+                JOptionPane.showMessageDialog(QuizApp.this, "Duplicate check failed:\n" + error.getMessage(),
+                    "Duplicate Questions", JOptionPane.ERROR_MESSAGE);
+            }
+
+            @Override
+            protected void succeeded(String report) {
+                progressMonitor.close();
+                if (report == null) {
+                    JOptionPane.showMessageDialog(QuizApp.this, "No duplicate questions found.",
+                        "Duplicate Questions", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                JTextArea reportArea = new JTextArea(report, 25, 80);
+                reportArea.setEditable(false);
+                reportArea.setFont(Theme.MONOSPACED);
+                reportArea.setCaretPosition(0);
+                JOptionPane.showMessageDialog(QuizApp.this, new JScrollPane(reportArea),
+                    "Duplicate Questions", JOptionPane.WARNING_MESSAGE);
+            }
+        });
+    }
+
+    private static String duplicateReport(List<List<DuplicateDetector.Match>> groups) {
+        final int maxGroupsShown = 500; // A text area with millions of lines helps nobody
+        StringBuilder report = new StringBuilder();
+        report.append(groups.size()).append(groups.size() == 1 ? " group" : " groups").append(" of similar questions");
+        if (groups.size() > maxGroupsShown) {
+            report.append(" (the ").append(maxGroupsShown).append(" biggest are shown)");
+        }
+        report.append(":\n");
+        for (List<DuplicateDetector.Match> group : groups.subList(0, Math.min(maxGroupsShown, groups.size()))) {
+            report.append('\n');
+            for (DuplicateDetector.Match match : group) {
+                report.append(String.format("%4d%%  %s  [%s, question %d]%n",
+                    Math.round(match.getSimilarity() * 100), match.getQuestion().getQuestionText(),
+                    match.getQuiz().getQuizName(), match.getQuestionIndex() + 1));
+            }
+        }
+        return report.toString();
     }
 
     // Add some sample quizzes for demonstration
@@ -152,77 +586,102 @@ public class QuizApp extends JFrame {
     
     }
 
-    // Remove a quiz by its ID and refresh the display
+    // Remove a quiz by its ID and remove its card from the display
     public void deleteHandler(int idToDelete) {
-        quizes.removeIf(q -> q.getQuizId() == idToDelete);
-        refreshQuizesDisplay();
+        int position = quizes.removeById(idToDelete);
+        if (position >= 0) {
+            if (isSearching()) {
+                applySearch();
+            } else {
+                quizesContainer.quizRemoved(position);
+            }
+            // Forgetting its attempts also updates the statistics and the leaderboard,
+            // so the stores are told in the background
+            QuizStore store = quizStore;
+            TaskPipeline.shared().submit(new TaskPipeline.Task<Void, Void>() {
+                @Override
+                protected Void call() {
+                    if (store != null) {
+                        store.deleteQuiz(idToDelete);
+                    }
+                    attemptStore.removeQuiz(idToDelete);
+                    return null;
+                }
+            });
+        }
     }
 
-    // Refresh the quiz display (after add, delete, or update)
+    // Refresh the whole quiz display (add, delete and update have their own cheaper paths)
     public void refreshQuizesDisplay() {
 
-        // Remove all and re-add to update UI
-        quizesContainer.removeAll();
-        initializeQuizesContainerGUI();
-        quizesContainer.revalidate();
-        quizesContainer.repaint();
+        // Re-bind the visible cards to the current list (or search again)
+        if (isSearching()) {
+            applySearch();
+        } else {
+            quizesContainer.refresh();
+        }
     }
 
-    // Called after a quiz is added or updated
-    public void handleQuizAddedOrUpdated() {
-        refreshQuizesDisplay();
+    // Called after a quiz was added to the repository
+    public void handleQuizAdded(Quiz addedQuiz) {
+        if (isSearching()) {
+            applySearch();
+            return;
+        }
+        int position = quizes.positionOf(addedQuiz);
+        if (position >= 0) {
+            quizesContainer.quizInserted(position);
+        }
     }
 
-    // Add all quiz buttons/cards and the "Add New Quiz" button to the container
+    // Create the quiz grid with the "Add New Quiz" button as its last cell.
+    // The grid asks us for new cards only when it needs more to fill the viewport.
     public void initializeQuizesContainerGUI() {
-        for (Quiz q : quizes) {
-            QuizButton quizButton = new QuizButton(
-                q, new DeleteActionListener(q.getQuizId()),
-                PRIMARY_COLOR_LIGHT, ACCENT_DELETE, TEXT_COLOR_WHITE,
-                TEXT_COLOR_DARK, BACKGROUND_COLOR, BORDER_COLOR
-            );
-            quizesContainer.add(quizButton);
-        }
+        DeleteActionListener deleteListener = new DeleteActionListener();
 
         // Create the "+ Add New Quiz" button
         addQuizButtonComponent = new JButton("+ Add New Quiz");
         addQuizButtonComponent.setFocusPainted(false);
-        addQuizButtonComponent.setForeground(PRIMARY_COLOR_DARK);
-        addQuizButtonComponent.setBackground(BACKGROUND_COLOR);
-        addQuizButtonComponent.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        addQuizButtonComponent.setForeground(Theme.PRIMARY_DARK);
+        addQuizButtonComponent.setBackground(Theme.BACKGROUND);
+        addQuizButtonComponent.setCursor(Theme.HAND_CURSOR);
         Dimension buttonSize = new Dimension(280, 230);
         addQuizButtonComponent.setPreferredSize(buttonSize);
         addQuizButtonComponent.setMinimumSize(buttonSize);
         addQuizButtonComponent.setMaximumSize(buttonSize);
-        addQuizButtonComponent.setFont(new Font("Segoe UI", Font.PLAIN, 16));
+        addQuizButtonComponent.setFont(Theme.BODY_LARGE);
         addQuizButtonComponent.setBorder(BorderFactory.createDashedBorder(
-            PRIMARY_COLOR_LIGHT, 1.5f, 5.0f, 2.0f, false
+            Theme.PRIMARY_LIGHT, 1.5f, 5.0f, 2.0f, false
         ));
 
         // Show the add quiz dialog when button is clicked
         addQuizButtonComponent.addActionListener(e -> {
             QuizAddDialog addQuizDialog = new QuizAddDialog(
-                QuizApp.this, "Create New Quiz", quizes,
-                this::handleQuizAddedOrUpdated,
-                PRIMARY_COLOR_DARK, ACCENT_ADD, TEXT_COLOR_WHITE,
-                BACKGROUND_COLOR, TEXT_COLOR_DARK, BORDER_COLOR
+                QuizApp.this, "Create New Quiz", quizes, quizStore, duplicateDetector,
+                this::handleQuizAdded
             );
             addQuizDialog.setVisible(true);
             requestFocusInWindow();
         });
-        quizesContainer.add(addQuizButtonComponent);
+
+        quizesContainer = new QuizGridPanel(
+            quizes.view(),
+            q -> new QuizButton(
+                q, deleteListener, this::editAttemptSettings, attemptStore, attemptJournal, itemStatistics, leaderboard
+            ),
+            addQuizButtonComponent, 280, 230, 25
+        );
     }
 
-    // Handles delete button clicks for quizzes
+    // Handles delete button clicks for quizzes.
+    // Cards are recycled, so the quiz to delete is read from the card that was clicked.
     private class DeleteActionListener implements ActionListener {
-        private final int quizIdToDelete;
-
-        public DeleteActionListener(int quizId) {
-            this.quizIdToDelete = quizId;
-        }
 
         @Override
         public void actionPerformed(ActionEvent e) {
+            QuizButton card = (QuizButton) SwingUtilities.getAncestorOfClass(QuizButton.class, (Component) e.getSource());
+            if (card == null) return;
+            int quizIdToDelete = card.getQuiz().getQuizId();
 
             // Show confirmation dialog before deleting
             int confirmation = JOptionPane.showConfirmDialog(
@@ -237,7 +696,24 @@ public class QuizApp extends JFrame {
     }
 
     // Main entry point: start the application
-    public static void main(String[] args) {
+    // (or grade an answer sheet without any UI: --grade <quizId> <answers.csv>,
+    //  serve the quizzes over HTTP: --server [port],
+    //  or simulate many students: --loadtest [users=N] [seconds=N] [url=...])
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("--grade")) {
+            BatchGrader.runFromCommandLine(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            QuizServer.runFromCommandLine(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--loadtest")) {
+            LoadGenerator.runFromCommandLine(args);
+            return;
+        }
+        Metrics.start(QuizStore.defaultDirectory().resolve("logs"));
+        EdtMonitor.instance().start();
         new QuizApp();
     }
 }
@@ -2,30 +2,35 @@ package main;
 
 import javax.swing.*;
 import javax.swing.border.Border;
-import javax.swing.border.CompoundBorder;
-import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.util.function.Consumer;
 import java.awt.geom.RoundRectangle2D;
 
 public class QuizButton extends JPanel {
 
+    // Every card has the same frame, so they share one
+    private static final Border CARD_BORDER = BorderFactory.createCompoundBorder(
+        BorderFactory.createEtchedBorder(), Theme.padding(20, 20, 15, 20));
+    private static JPopupMenu popupMenu; // Right-click menu, shared as well (see sharedPopupMenu())
+
     private final JLabel quizNameLabel, quizNumQuestionsLabel, quizScoreLabel;
     private final JButton takeQuizButton, deleteQuizButton;
-    private final Quiz quiz;
-
-    private Color primaryColor, accentDeleteColor, textColorWhite, textColorDark, bgColor, borderColor;
-
-    public QuizButton(Quiz q, ActionListener deleteListener,
-                      Color primaryColor, Color accentDeleteColor, Color textColorWhite, Color textColorDark,
-                      Color bgColor, Color borderColor) {
+    private Quiz quiz;
+    private final AttemptStore attemptStore; // Scores of the current user
+    private final AttemptJournal journal; // Attempts left unfinished, offered to resume
+    private final ItemStatistics itemStatistics; // Per-question statistics, shown from the right-click menu
+    private final Leaderboard leaderboard; // For the rank shown after an attempt
+    private final Consumer<Quiz> settingsHandler; // Edits the attempt settings of a quiz (right-click menu)
+
+    public QuizButton(Quiz q, ActionListener deleteListener, Consumer<Quiz> settingsHandler,
+                      AttemptStore attemptStore, AttemptJournal journal, ItemStatistics itemStatistics, Leaderboard leaderboard) {
         this.quiz = q;
-        this.primaryColor = primaryColor;
-        this.accentDeleteColor = accentDeleteColor;
-        this.textColorWhite = textColorWhite;
-        this.textColorDark = textColorDark;
-        this.bgColor = bgColor;
-        this.borderColor = borderColor;
+        this.attemptStore = attemptStore;
+        this.journal = journal;
+        this.itemStatistics = itemStatistics;
+        this.leaderboard = leaderboard;
+        this.settingsHandler = settingsHandler;
 
         setOpaque(false); 
         setLayout(new BorderLayout());
@@ -34,43 +39,56 @@ public class QuizButton extends JPanel {
         };
         
         contentPanel.setLayout(new BoxLayout(contentPanel, BoxLayout.Y_AXIS));
-        contentPanel.setBorder(BorderFactory.createCompoundBorder(BorderFactory.createEtchedBorder(), new EmptyBorder(20, 20, 15, 20)));
+        contentPanel.setBorder(CARD_BORDER);
         contentPanel.setOpaque(false);
 
         quizNameLabel = new JLabel(quiz.getQuizName());
-        quizNameLabel.setFont(new Font("Segoe UI Semibold", Font.BOLD, 18));
-        quizNameLabel.setForeground(textColorDark);
+        quizNameLabel.setFont(Theme.TITLE);
+        quizNameLabel.setForeground(Theme.TEXT_DARK);
         quizNameLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
-        quizNumQuestionsLabel = new JLabel("Questions: " + quiz.getNumOfQuestions());
-        quizNumQuestionsLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-        quizNumQuestionsLabel.setForeground(textColorDark.darker());
+        quizNumQuestionsLabel = new JLabel(getQuestionsText());
+        quizNumQuestionsLabel.setFont(Theme.BODY);
+        quizNumQuestionsLabel.setForeground(Theme.TEXT_MUTED);
         quizNumQuestionsLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
         quizScoreLabel = new JLabel(getScoreText());
-        quizScoreLabel.setFont(new Font("Segoe UI", Font.ITALIC, 14));
-        quizScoreLabel.setForeground(primaryColor);
+        quizScoreLabel.setFont(Theme.BODY_ITALIC);
+        quizScoreLabel.setForeground(Theme.PRIMARY_LIGHT);
         quizScoreLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
         JPanel buttonsContainer = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
         buttonsContainer.setOpaque(false);
 
-        takeQuizButton = createStyledButton(quiz.isTaken() ? "Retake Quiz" : "Take Quiz", primaryColor, textColorWhite);
+        takeQuizButton = createStyledButton(getTakeText(), Theme.PRIMARY_LIGHT);
         takeQuizButton.addActionListener(e -> {
             Frame parentFrame = (Frame) SwingUtilities.getWindowAncestor(this);
-            if (quiz.getQuestions().isEmpty()) {
+            if (quiz.getNumOfQuestions() == 0) {
                  showStyledErrorDialog(parentFrame, "This quiz has no questions. Please add questions first.", "No Questions");
                  return;
             }
-            QuizTakingDialog quizTakingDialog = new QuizTakingDialog(parentFrame, "Taking: " + quiz.getQuizName(), quiz, primaryColor, textColorWhite, bgColor, textColorDark, borderColor);
-            quizTakingDialog.setVisible(true);
-            updateDisplay();
-            if (parentFrame instanceof QuizApp) {
-                ((QuizApp)parentFrame).refreshQuizesDisplay();
+            AttemptJournal.InProgress unfinished = findUnfinished();
+            if (unfinished != null) {
+                int choice = JOptionPane.showConfirmDialog(parentFrame,
+                    "You have an unfinished attempt at this quiz.\nResume it? (No starts over)",
+                    "Resume Quiz", JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
+                if (choice == JOptionPane.CANCEL_OPTION || choice == JOptionPane.CLOSED_OPTION) {
+                    return;
+                }
+                if (choice == JOptionPane.NO_OPTION) {
+                    journal.end(unfinished.getId());
+                    unfinished = null;
+                }
+            }
+            QuizTakingDialog quizTakingDialog = DialogPool.forOwner((JFrame) parentFrame).takingDialog();
+            if (quizTakingDialog.bind(quiz, attemptStore, journal, unfinished, itemStatistics, leaderboard)) {
+                quizTakingDialog.setVisible(true);
             }
+            quiz.releaseQuestions(); // Closed again: let the questions go if they can be re-read from disk
+            updateDisplay(); // Only this card changed, the rest of the dashboard stays as it is
         });
 
-        deleteQuizButton = createStyledButton("Delete", accentDeleteColor, textColorWhite);
+        deleteQuizButton = createStyledButton("Delete", Theme.ACCENT_DELETE);
         if (deleteListener != null) {
             deleteQuizButton.addActionListener(deleteListener);
         }
@@ -88,35 +106,118 @@ public class QuizButton extends JPanel {
         
         add(contentPanel, BorderLayout.CENTER);
 
+        // Right-click: how each question of the quiz did so far
+        setComponentPopupMenu(sharedPopupMenu());
+        contentPanel.setInheritsPopupMenu(true);
+        buttonsContainer.setInheritsPopupMenu(true);
+
         Dimension preferredSize = new Dimension(280, 230);
         setPreferredSize(preferredSize);
         setMinimumSize(preferredSize);
         setMaximumSize(preferredSize);
     }
     
+    public Quiz getQuiz() {
+        return quiz;
+    }
+
+    // Point this card at another quiz (the dashboard grid recycles cards while scrolling)
+    public void bind(Quiz q) {
+        this.quiz = q;
+        updateDisplay();
+    }
+
+    // One menu for every card (on the EDT); it acts on the card it was opened on
+    private static JPopupMenu sharedPopupMenu() {
+        if (popupMenu == null) {
+            popupMenu = new JPopupMenu();
+            JMenuItem statisticsItem = new JMenuItem("Question Statistics...");
+            statisticsItem.addActionListener(e -> invokingCard().showStatistics());
+            popupMenu.add(statisticsItem);
+            JMenuItem settingsItem = new JMenuItem("Attempt Settings...");
+            settingsItem.addActionListener(e -> invokingCard().editSettings());
+            popupMenu.add(settingsItem);
+        }
+        return popupMenu;
+    }
+
+    private static QuizButton invokingCard() {
+        Component invoker = popupMenu.getInvoker();
+        return invoker instanceof QuizButton ? (QuizButton) invoker
+            : (QuizButton) SwingUtilities.getAncestorOfClass(QuizButton.class, invoker);
+    }
+
+    private void editSettings() {
+        settingsHandler.accept(quiz);
+        updateDisplay();
+    }
+
+    private void showStatistics() {
+        QuizStatisticsDialog statisticsDialog = new QuizStatisticsDialog(SwingUtilities.getWindowAncestor(this), quiz, itemStatistics);
+        statisticsDialog.setVisible(true);
+        quiz.releaseQuestions();
+    }
+
+    // "Questions: 20", or "Questions: 20 of 5000" when each attempt draws from a pool
+    private String getQuestionsText() {
+        int pool = quiz.getNumOfQuestions();
+        String text;
+        if (quiz.isAdaptive()) {
+            int most = quiz.getQuestionsPerAttempt() > 0 ? quiz.getQuestionsPerAttempt() : AdaptiveTest.DEFAULT_MAX_QUESTIONS;
+            text = "Questions: up to " + Math.min(most, pool) + " of " + pool + " (adaptive)";
+        } else {
+            int inAttempt = quiz.getQuestionsInAttempt();
+            text = inAttempt < pool ? "Questions: " + inAttempt + " of " + pool : "Questions: " + pool;
+        }
+        if (quiz.getTimeLimitSeconds() > 0) {
+            text += " \u00B7 " + (quiz.getTimeLimitSeconds() + 59) / 60 + " min";
+        }
+        return text;
+    }
+
+    // The current user's unfinished attempt, or null. One the quiz has changed under is dropped.
+    private AttemptJournal.InProgress findUnfinished() {
+        AttemptJournal.InProgress unfinished = journal.findUnfinished(AttemptStore.currentUser(), quiz.getQuizId());
+        if (unfinished != null && !unfinished.matches(quiz)) {
+            journal.end(unfinished.getId()); // The same seed would not give the same questions any more
+            return null;
+        }
+        return unfinished;
+    }
+
+    private String getTakeText() {
+        if (journal.findUnfinished(AttemptStore.currentUser(), quiz.getQuizId()) != null) {
+            return "Resume Quiz";
+        }
+        return isTaken() ? "Retake Quiz" : "Take Quiz";
+    }
+
+    private boolean isTaken() {
+        return attemptStore.getSummary(AttemptStore.currentUser(), quiz.getQuizId()) != null;
+    }
+
+    // Latest score of the current user (and the best one, if it was better)
     private String getScoreText(){
-        if (!quiz.isTaken()) return "Not taken yet";
+        AttemptStore.Summary summary = attemptStore.getSummary(AttemptStore.currentUser(), quiz.getQuizId());
+        if (summary == null) return "Not taken yet";
         if (quiz.getNumOfQuestions() == 0) return "Score: N/A (No questions)";
-        return "Score: " + quiz.getUserScore() + "/" + quiz.getNumOfQuestions();
+        int latest = summary.getLatest().getScore();
+        int best = summary.getBest().getScore();
+        String text = "Score: " + latest + "/" + summary.getLatest().getQuestionCount(); // Attempts may draw fewer questions
+        return best > latest ? text + " (best " + best + ")" : text;
     }
 
 
-    private JButton createStyledButton(String text, Color bgColor, Color fgColor) {
-        JButton button = new JButton(text);
-        button.setFont(new Font("Segoe UI Semibold", Font.PLAIN, 13));
-        button.setBackground(bgColor);
-        button.setForeground(fgColor);
-        button.setFocusPainted(false);
-        button.setBorder(new EmptyBorder(8, 18, 8, 18));
-        button.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        button.setOpaque(true); 
+    private JButton createStyledButton(String text, Color bgColor) {
+        JButton button = Theme.button(text, bgColor, Theme.TEXT_WHITE, Theme.padding(8, 18, 8, 18));
+        button.setOpaque(true);
         return button;
     }
     
     public void updateDisplay() {
-        quizNumQuestionsLabel.setText("Questions: " + quiz.getNumOfQuestions());
+        quizNumQuestionsLabel.setText(getQuestionsText());
         quizScoreLabel.setText(getScoreText());
-        takeQuizButton.setText(quiz.isTaken() ? "Retake Quiz" : "Take Quiz");
+        takeQuizButton.setText(getTakeText());
         quizNameLabel.setText(quiz.getQuizName());
         revalidate();
         repaint();
@@ -0,0 +1,278 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * QuizExporter: writes the quiz catalog or the results to a CSV or JSON lines file.
+ *
+ * Questions are written in the same formats QuestionImporter reads, so an export
+ * can be imported again. One quiz is handled at a time: its rows are encoded
+ * straight into a reused buffer and written through a FileChannel. Questions
+ * that were only on disk are loaded for the quiz being written and released
+ * again right after, so a catalog bigger than the heap can still be exported.
+ */
+public class QuizExporter {
+
+    public enum Format { CSV, JSON_LINES }
+
+    // Called as the export goes on (after every quiz, or every PROGRESS_ATTEMPTS attempts); return false to stop it
+    public interface ProgressListener {
+        boolean exported(long done, long total);
+    }
+
+    private static final int PROGRESS_ATTEMPTS = 1000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Picks the format from the file name (.csv, anything else is JSON lines)
+    public static Format formatOf(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? Format.CSV : Format.JSON_LINES;
+    }
+
+    /**
+     * Writes every question of every quiz, one row per question:
+     *   CSV:         quiz,question,option 1,...,option N,correct
+     *   JSON lines:  {"quizId": 1, "quiz": "...", "question": "...", "options": [...], "correct": 0}
+     * Returns the number of questions written.
+     */
+    public static long exportQuestions(Iterable<Quiz> quizes, int quizCount, Path file, Format format,
+                                       ProgressListener listener) throws IOException {
+        long rows = 0;
+        int done = 0;
+        try (RowWriter out = new RowWriter(file)) {
+            if (format == Format.CSV) {
+                out.row().append("quiz,question,options...,correct");
+                out.endRow();
+            }
+            for (Quiz quiz : quizes) {
+                boolean wasLoaded = quiz.areQuestionsLoaded();
+                List<Question> questions = quiz.getQuestions();
+                for (Question question : questions) {
+                    StringBuilder row = out.row();
+                    if (format == Format.CSV) {
+                        appendCsv(row, quiz.getQuizName()).append(',');
+                        appendCsv(row, question.getQuestionText()).append(',');
+                        for (String option : question.getOptions()) {
+                            appendCsv(row, option).append(',');
+                        }
+                        row.append(question.getCorrectAnswerIndex());
+                    } else {
+                        row.append("{\"quizId\":").append(quiz.getQuizId()).append(",\"quiz\":");
+                        Json.appendString(row, quiz.getQuizName()).append(",\"question\":");
+                        Json.appendString(row, question.getQuestionText()).append(",\"options\":[");
+                        List<String> options = question.getOptions();
+                        for (int i = 0; i < options.size(); i++) {
+                            if (i > 0) {
+                                row.append(',');
+                            }
+                            Json.appendString(row, options.get(i));
+                        }
+                        row.append("],\"correct\":").append(question.getCorrectAnswerIndex()).append('}');
+                    }
+                    out.endRow();
+                    rows++;
+                }
+                if (!wasLoaded) {
+                    quiz.releaseQuestions(); // Don't keep what was only loaded for the export
+                }
+                if (listener != null && !listener.exported(++done, quizCount)) {
+                    break;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Writes every recorded attempt of the quizzes in 'quizes', in the order they were
+     * recorded (streamed from the attempt history, so it never is in memory at once):
+     *   CSV:         quizId,quiz,user,timestamp,score,questions,answers,asked (lists separated by ';')
+     *   JSON lines:  {"quizId": 1, "quiz": "...", "user": "...", "timestamp": 0, "score": 7, "questions": 10, "answers": [...]}
+     *                plus "asked": [...] for drawn attempts
+     * A skipped question has the answer -1. "asked" lists the quiz questions (counted from 0)
+     * an attempt that drew from the pool was given; it is empty / missing if the attempt
+     * was every question in order. Returns the number of attempts written.
+     */
+    public static long exportResults(Iterable<Quiz> quizes, AttemptStore attempts, Path file,
+                                     Format format, ProgressListener listener) throws IOException {
+        Map<Integer, Quiz> quizesById = new HashMap<>();
+        long total = 0;
+        for (Quiz quiz : quizes) {
+            quizesById.put(quiz.getQuizId(), quiz);
+            total += attempts.getAttemptCount(quiz.getQuizId());
+        }
+        long attemptTotal = total;
+        long[] rows = {0};
+        try (RowWriter out = new RowWriter(file)) {
+            if (format == Format.CSV) {
+                out.row().append("quizId,quiz,user,timestamp,score,questions,answers,asked,ability");
+                out.endRow();
+            }
+            attempts.forEachAttempt(attempt -> {
+                Quiz quiz = quizesById.get(attempt.getQuizId());
+                if (quiz == null) {
+                    return true; // Deleted after the export started
+                }
+                StringBuilder row = out.row();
+                if (format == Format.CSV) {
+                    row.append(quiz.getQuizId()).append(',');
+                    appendCsv(row, quiz.getQuizName()).append(',');
+                    appendCsv(row, attempt.getUser()).append(',')
+                        .append(attempt.getTimestamp()).append(',')
+                        .append(attempt.getScore()).append(',')
+                        .append(attempt.getQuestionCount()).append(',');
+                    for (int i = 0; i < attempt.getQuestionCount(); i++) {
+                        if (i > 0) {
+                            row.append(';');
+                        }
+                        row.append(attempt.getAnswer(i));
+                    }
+                    row.append(',');
+                    for (int i = 0; attempt.isDrawn() && i < attempt.getQuestionCount(); i++) {
+                        if (i > 0) {
+                            row.append(';');
+                        }
+                        row.append(attempt.getQuestionIndex(i));
+                    }
+                    row.append(',');
+                    if (attempt.isAdaptive()) {
+                        row.append(rounded(attempt.getAbility()));
+                    }
+                } else {
+                    row.append("{\"quizId\":").append(quiz.getQuizId()).append(",\"quiz\":");
+                    Json.appendString(row, quiz.getQuizName()).append(",\"user\":");
+                    Json.appendString(row, attempt.getUser())
+                        .append(",\"timestamp\":").append(attempt.getTimestamp())
+                        .append(",\"score\":").append(attempt.getScore())
+                        .append(",\"questions\":").append(attempt.getQuestionCount())
+                        .append(",\"answers\":[");
+                    for (int i = 0; i < attempt.getQuestionCount(); i++) {
+                        if (i > 0) {
+                            row.append(',');
+                        }
+                        row.append(attempt.getAnswer(i));
+                    }
+                    row.append(']');
+                    if (attempt.isDrawn()) {
+                        row.append(",\"asked\":[");
+                        for (int i = 0; i < attempt.getQuestionCount(); i++) {
+                            if (i > 0) {
+                                row.append(',');
+                            }
+                            row.append(attempt.getQuestionIndex(i));
+                        }
+                        row.append(']');
+                    }
+                    if (attempt.isAdaptive()) {
+                        row.append(",\"ability\":").append(rounded(attempt.getAbility()))
+                            .append(",\"abilityError\":").append(rounded(attempt.getStandardError()));
+                    }
+                    row.append('}');
+                }
+                out.endRow();
+                rows[0]++;
+                return listener == null || rows[0] % PROGRESS_ATTEMPTS != 0
+                    || listener.exported(rows[0], Math.max(rows[0], attemptTotal));
+            });
+            if (listener != null) {
+                listener.exported(rows[0], Math.max(rows[0], attemptTotal));
+            }
+        }
+        return rows[0];
+    }
+
+    // Three decimals are plenty for an ability estimate
+    private static double rounded(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    // Quotes a CSV field if it needs it
+    private static StringBuilder appendCsv(StringBuilder out, String value) {
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            return out.append(value);
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c == '\n' || c == '\r' ? ' ' : c); // One row per line, also inside quotes
+        }
+        return out.append('"');
+    }
+
+    /**
+     * Encodes rows into one direct buffer and writes it to the file when it is full.
+     * The row builder and the buffer are reused, so writing a row allocates nothing.
+     */
+    private static final class RowWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final StringBuilder row = new StringBuilder(256);
+
+        RowWriter(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                       StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        // The builder for the next row (empty)
+        StringBuilder row() {
+            row.setLength(0);
+            return row;
+        }
+
+        void endRow() throws IOException {
+            row.append('\n');
+            CharBuffer chars = CharBuffer.wrap(row);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (result.isOverflow()) {
+                    flush();
+                } else if (result.isUnderflow()) {
+                    break;
+                } else {
+                    result.throwException();
+                }
+            }
+            encoder.reset();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package main;
+
+import java.util.List;
+
+/**
+ * QuizGrader: the scoring rules, in one place.
+ * Used by QuizTakingDialog for a single attempt and by BatchGrader for many.
+ */
+public final class QuizGrader {
+
+    // Marks a question that was left without an answer
+    public static final int NO_ANSWER = -1;
+
+    private QuizGrader() {
+    }
+
+    // One point when the chosen option is the correct one
+    public static boolean isCorrect(int answer, int correctAnswerIndex) {
+        return answer == correctAnswerIndex;
+    }
+
+    // Number of questions answered correctly; userAnswers[i] belongs to questions.get(i)
+    public static int score(List<Question> questions, int[] userAnswers) {
+        int score = 0;
+        for (int i = 0; i < questions.size(); i++) {
+            if (isCorrect(userAnswers[i], questions.get(i).getCorrectAnswerIndex())) {
+                score++;
+            }
+        }
+        return score;
+    }
+}
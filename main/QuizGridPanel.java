@@ -0,0 +1,293 @@
+package main;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import javax.swing.*;
+import javax.swing.event.ChangeListener;
+
+/**
+ * QuizGridPanel: the dashboard grid of quiz cards.
+ * Instead of building a QuizButton for every quiz, it only keeps enough cards
+ * to fill the visible part of the JScrollPane and re-binds them to other
+ * quizzes while the user scrolls. The number of components stays the same
+ * no matter how many quizzes there are.
+ *
+ * While the catalog is still loading, grey placeholder cells stand in for the
+ * quizzes that haven't arrived yet (see setPlaceholderCount()). They are only
+ * painted, never components.
+ */
+public class QuizGridPanel extends JPanel implements Scrollable {
+
+    private List<Quiz> quizes;                            // The quizzes to show (not copied)
+    private final Function<Quiz, QuizButton> cardFactory;  // Builds a new card when the pool is too small
+    private final JComponent addCard;                      // The "+ Add New Quiz" cell, always the last one
+    private final int cellWidth, cellHeight, gap;
+
+    // Recycled cards. A cell always goes to slot (cell % pool size),
+    // so scrolling by one row only re-binds the cards of that row.
+    private final List<QuizButton> cardPool = new ArrayList<>();
+    private int[] boundCells = new int[0]; // Which cell each pooled card is showing (-1 = none)
+    private int columns = 1;
+    private int laidOutCellCount = -1; // Cell count used for the current preferred height
+    private int placeholderCount;      // Placeholder cells between the quizzes and the "Add" cell
+    private final ChangeListener viewportListener = e -> layoutVisibleCards();
+    private JViewport listenedViewport; // The one viewportListener is on, while we are displayed
+
+    public QuizGridPanel(List<Quiz> quizes, Function<Quiz, QuizButton> cardFactory, JComponent addCard,
+                         int cellWidth, int cellHeight, int gap) {
+        super(null); // We place the cards ourselves
+        this.quizes = quizes;
+        this.cardFactory = cardFactory;
+        this.addCard = addCard;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.gap = gap;
+        add(addCard);
+    }
+
+    // Call after the whole list was replaced; every visible card re-reads its quiz
+    public void refresh() {
+        Arrays.fill(boundCells, -1);
+        revalidate();
+        layoutVisibleCards();
+        repaint();
+    }
+
+    // Show another list of quizzes (e.g. search results) instead of the current one
+    public void setQuizes(List<Quiz> quizes) {
+        this.quizes = quizes;
+        refresh();
+    }
+
+    // Shows 'count' placeholder cells after the quizzes while more are on their way (0 = done)
+    public void setPlaceholderCount(int count) {
+        if (count == placeholderCount) {
+            return;
+        }
+        placeholderCount = count;
+        revalidate();
+        layoutVisibleCards();
+        repaint();
+    }
+
+    // A quiz was inserted into the list at 'index'
+    public void quizInserted(int index) {
+        cellsChangedFrom(index);
+    }
+
+    // The quiz that was at 'index' was removed from the list
+    public void quizRemoved(int index) {
+        cellsChangedFrom(index);
+    }
+
+    // Every cell from 'index' on moved by one. Only the pooled cards showing one of
+    // those cells have to be re-bound; the rest of the catalog is never touched.
+    private void cellsChangedFrom(int index) {
+        for (int slot = 0; slot < boundCells.length; slot++) {
+            if (boundCells[slot] >= index) {
+                boundCells[slot] = -1;
+            }
+        }
+        int rows = (getCellCount() + columns - 1) / columns;
+        int oldRows = (laidOutCellCount + columns - 1) / columns;
+        if (rows != oldRows) {
+            revalidate(); // Our height changed
+        }
+        layoutVisibleCards();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        // The viewport only moves us when scrolling, so listen to it to swap cards in and out.
+        // removeNotify() takes it off again, so adding the panel anew never stacks listeners.
+        if (listenedViewport == null && getParent() instanceof JViewport) {
+            listenedViewport = (JViewport) getParent();
+            listenedViewport.addChangeListener(viewportListener);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (listenedViewport != null) {
+            listenedViewport.removeChangeListener(viewportListener);
+            listenedViewport = null;
+        }
+        super.removeNotify();
+    }
+
+    @Override
+    public void doLayout() {
+        layoutVisibleCards();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        Insets insets = getInsets();
+        int width = getWidth();
+        if (width == 0 && getParent() instanceof JViewport) {
+            width = getParent().getWidth();
+        }
+        int cols = width > 0 ? columnsFor(width) : 3;
+        int rows = (getCellCount() + cols - 1) / cols;
+        int prefWidth = insets.left + insets.right + cols * cellWidth + (cols - 1) * gap;
+        int prefHeight = insets.top + insets.bottom + rows * cellHeight + (rows - 1) * gap;
+        return new Dimension(prefWidth, prefHeight);
+    }
+
+    // How many cards fit next to each other in the given width
+    private int columnsFor(int width) {
+        Insets insets = getInsets();
+        int usableWidth = width - insets.left - insets.right;
+        return Math.max(1, (usableWidth + gap) / (cellWidth + gap));
+    }
+
+    // All quizzes, the placeholders and the "Add" cell
+    private int getCellCount() {
+        return quizes.size() + placeholderCount + 1;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (placeholderCount == 0) {
+            return;
+        }
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        Insets insets = getInsets();
+        Rectangle clip = g.getClipBounds();
+        int first = quizes.size();
+        for (int cell = first; cell < first + placeholderCount; cell++) {
+            int x = insets.left + (cell % columns) * (cellWidth + gap);
+            int y = insets.top + (cell / columns) * (cellHeight + gap);
+            if (clip != null && !clip.intersects(x, y, cellWidth, cellHeight)) {
+                continue;
+            }
+            // The outline of a card: a title bar and a couple of text lines
+            g2.setColor(Color.WHITE);
+            g2.fillRoundRect(x, y, cellWidth, cellHeight, 12, 12);
+            g2.setColor(Theme.BORDER);
+            g2.drawRoundRect(x, y, cellWidth - 1, cellHeight - 1, 12, 12);
+            g2.fillRoundRect(x + 20, y + 25, cellWidth * 2 / 3, 18, 6, 6);
+            g2.fillRoundRect(x + 20, y + 60, cellWidth / 2, 12, 6, 6);
+            g2.fillRoundRect(x + 20, y + 82, cellWidth / 3, 12, 6, 6);
+            g2.fillRoundRect(x + 20, y + cellHeight - 55, cellWidth - 40, 32, 6, 6);
+        }
+        g2.dispose();
+    }
+
+    // Put cards only on the cells that are currently visible in the viewport (timed as Metrics.DASHBOARD_REFRESH)
+    private void layoutVisibleCards() {
+        int width = getWidth();
+        if (width == 0) {
+            return; // Not shown yet
+        }
+        long start = System.nanoTime();
+        int newColumns = columnsFor(width);
+        if (newColumns != columns) {
+            // The number of rows changed, so our preferred height changed too.
+            columns = newColumns;
+            Arrays.fill(boundCells, -1);
+            revalidate();
+        }
+
+        Insets insets = getInsets();
+        Rectangle visible = getVisibleRect();
+        int rowHeight = cellHeight + gap;
+        int cellCount = getCellCount();
+        laidOutCellCount = cellCount;
+
+        int firstRow = Math.max(0, (visible.y - insets.top) / rowHeight);
+        int lastRow = Math.max(firstRow, (visible.y + visible.height - insets.top) / rowHeight);
+        int firstCell = Math.min(firstRow * columns, cellCount);
+        int lastCell = Math.min(cellCount - 1, (lastRow + 1) * columns - 1);
+
+        // Enough cards for every visible row plus one partly visible row.
+        ensurePoolSize((lastRow - firstRow + 2) * columns);
+        int poolSize = cardPool.size();
+        boolean[] slotUsed = new boolean[poolSize];
+        boolean addCardShown = false;
+
+        for (int cell = firstCell; cell <= lastCell; cell++) {
+            int x = insets.left + (cell % columns) * (cellWidth + gap);
+            int y = insets.top + (cell / columns) * rowHeight;
+
+            if (cell >= quizes.size()) {
+                if (cell == cellCount - 1) {
+                    addCard.setBounds(x, y, cellWidth, cellHeight);
+                    addCardShown = true;
+                }
+                continue; // A placeholder: painted, not a card
+            }
+
+            int slot = cell % poolSize;
+            QuizButton card = cardPool.get(slot);
+            Quiz quiz = quizes.get(cell);
+            if (boundCells[slot] != cell || card.getQuiz() != quiz) {
+                card.bind(quiz);
+                boundCells[slot] = cell;
+            }
+            card.setBounds(x, y, cellWidth, cellHeight);
+            card.setVisible(true);
+            slotUsed[slot] = true;
+        }
+
+        // Hide the cards that are not needed right now (they stay in the pool).
+        for (int slot = 0; slot < poolSize; slot++) {
+            if (!slotUsed[slot]) {
+                cardPool.get(slot).setVisible(false);
+            }
+        }
+        addCard.setVisible(addCardShown);
+        Metrics.DASHBOARD_REFRESH.record(System.nanoTime() - start);
+    }
+
+    private void ensurePoolSize(int size) {
+        if (cardPool.size() >= size || quizes.isEmpty()) {
+            return;
+        }
+        while (cardPool.size() < size) {
+            QuizButton card = cardFactory.apply(quizes.get(0));
+            card.setVisible(false);
+            cardPool.add(card);
+            add(card);
+        }
+        // Cell-to-slot mapping changed, so every card has to be re-bound.
+        boundCells = new int[cardPool.size()];
+        Arrays.fill(boundCells, -1);
+    }
+
+    // --- Scrollable: fill the viewport width and scroll vertically ---
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return 16;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
@@ -0,0 +1,367 @@
+package main;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * QuizRepository: all quizzes of the app, in the order they were added.
+ *
+ * - Finding, replacing and deleting a quiz by its id is O(1): ids are kept in
+ *   an int-to-int hash table (no boxing) that points at the quiz's slot.
+ * - Deleting only empties the slot; the slots are packed again once half of
+ *   them are empty, so deletes stay cheap on average.
+ * - The dashboard needs "the quiz at position i". A Fenwick tree counts the
+ *   filled slots, which answers that (and "position of a quiz") in O(log n).
+ * - New ids come from one atomic counter shared by everything that creates quizzes.
+ */
+public class QuizRepository implements Iterable<Quiz> {
+
+    // Told about quizzes coming and going (called after the change, outside the lock)
+    public interface Listener {
+        void quizAdded(Quiz quiz);
+
+        void quizRemoved(Quiz quiz);
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger nextQuizId = new AtomicInteger();
+
+    // Quizzes by slot, in insertion order; null = deleted (guarded by 'this')
+    private Quiz[] slots = new Quiz[16];
+    private int usedSlots = 0;  // Slots handed out so far (filled or emptied)
+    private int quizCount = 0;  // Filled slots
+
+    // Fenwick tree over the slots: 1 for a filled slot, 0 for an empty one
+    private int[] filledTree = new int[slots.length + 1];
+
+    // Open-addressing hash table: quiz id -> slot (linear probing, backward-shift deletes)
+    private int[] indexKeys = new int[32];
+    private int[] indexSlots = newEmptyIndex(32);
+    private int indexCount = 0;
+
+    private final List<Quiz> view = new AbstractList<Quiz>() {
+        @Override
+        public Quiz get(int position) {
+            return QuizRepository.this.get(position);
+        }
+
+        @Override
+        public int size() {
+            return QuizRepository.this.size();
+        }
+    };
+
+    // --- Ids ---
+
+    // A new id that no other quiz has or will get
+    public int newQuizId() {
+        return nextQuizId.getAndIncrement();
+    }
+
+    // Makes sure new ids come after 'quizId' (used for quizzes loaded from disk)
+    public void reserveId(int quizId) {
+        nextQuizId.accumulateAndGet(quizId + 1, Math::max);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // --- Changes ---
+
+    // Adds a quiz at the end. Returns false if a quiz with the same id is already there.
+    public boolean add(Quiz quiz) {
+        synchronized (this) {
+            if (findSlot(quiz.getQuizId()) >= 0) {
+                return false;
+            }
+            reserveId(quiz.getQuizId());
+            if (usedSlots == slots.length) {
+                makeRoom();
+            }
+            int slot = usedSlots++;
+            slots[slot] = quiz;
+            treeAdd(slot, 1);
+            indexPut(quiz.getQuizId(), slot);
+            quizCount++;
+        }
+        for (Listener listener : listeners) {
+            listener.quizAdded(quiz);
+        }
+        return true;
+    }
+
+    // Puts 'quiz' in the place of the quiz with the same id. Returns false if there is none.
+    public boolean replace(Quiz quiz) {
+        Quiz old;
+        synchronized (this) {
+            int slot = findSlot(quiz.getQuizId());
+            if (slot < 0) {
+                return false;
+            }
+            old = slots[slot];
+            slots[slot] = quiz;
+        }
+        for (Listener listener : listeners) {
+            listener.quizRemoved(old);
+            listener.quizAdded(quiz);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the quiz with this id and returns the position it had
+     * (what get() would have returned it for), or -1 if there was none.
+     */
+    public int removeById(int quizId) {
+        Quiz removed;
+        int position;
+        synchronized (this) {
+            int slot = indexRemove(quizId);
+            if (slot < 0) {
+                return -1;
+            }
+            position = treePrefixSum(slot) - 1;
+            removed = slots[slot];
+            slots[slot] = null;
+            treeAdd(slot, -1);
+            quizCount--;
+        }
+        for (Listener listener : listeners) {
+            listener.quizRemoved(removed);
+        }
+        return position;
+    }
+
+    // --- Lookups ---
+
+    public synchronized Quiz findById(int quizId) {
+        int slot = findSlot(quizId);
+        return slot >= 0 ? slots[slot] : null;
+    }
+
+    // Position of the quiz in the ordered list, or -1
+    public synchronized int positionOf(Quiz quiz) {
+        int slot = findSlot(quiz.getQuizId());
+        if (slot < 0 || slots[slot] != quiz) {
+            return -1;
+        }
+        return treePrefixSum(slot) - 1;
+    }
+
+    // The quiz at 'position' (0 = oldest)
+    public synchronized Quiz get(int position) {
+        if (position < 0 || position >= quizCount) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size " + quizCount);
+        }
+        return slots[treeFindSlot(position + 1)];
+    }
+
+    public synchronized int size() {
+        return quizCount;
+    }
+
+    public synchronized boolean isEmpty() {
+        return quizCount == 0;
+    }
+
+    // A read-only List view in dashboard order (get() is O(log n))
+    public List<Quiz> view() {
+        return view;
+    }
+
+    /**
+     * Goes over the quizzes in order. The iterator sees the repository as it was when
+     * it started; quizzes deleted later are skipped, quizzes added later are not seen.
+     */
+    @Override
+    public Iterator<Quiz> iterator() {
+        Quiz[] snapshot;
+        int end;
+        synchronized (this) {
+            snapshot = slots;
+            end = usedSlots;
+        }
+        return new Iterator<Quiz>() {
+            private int slot = advance(0);
+
+            private int advance(int from) {
+                while (from < end && snapshot[from] == null) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < end;
+            }
+
+            @Override
+            public Quiz next() {
+                if (slot >= end) {
+                    throw new NoSuchElementException();
+                }
+                Quiz quiz = snapshot[slot];
+                slot = advance(slot + 1);
+                return quiz;
+            }
+        };
+    }
+
+    // --- Slot storage ---
+
+    // Out of slots: pack the quizzes if at least half the slots are empty, grow otherwise.
+    // Always builds a new array, so running iterators keep their old one.
+    private void makeRoom() {
+        int capacity = quizCount * 2 >= slots.length ? slots.length * 2 : slots.length;
+        Quiz[] packed = new Quiz[capacity];
+        int filled = 0;
+        for (int slot = 0; slot < usedSlots; slot++) {
+            if (slots[slot] != null) {
+                packed[filled++] = slots[slot];
+            }
+        }
+        slots = packed;
+        usedSlots = filled;
+
+        // Rebuild the tree and the index for the new slot numbers.
+        filledTree = new int[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            if (i <= filled) {
+                filledTree[i] += 1;
+            }
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                filledTree[parent] += filledTree[i];
+            }
+        }
+        int indexCapacity = Integer.highestOneBit(Math.max(16, capacity) * 2);
+        indexKeys = new int[indexCapacity];
+        indexSlots = newEmptyIndex(indexCapacity);
+        indexCount = 0;
+        for (int slot = 0; slot < filled; slot++) {
+            indexPut(slots[slot].getQuizId(), slot);
+        }
+    }
+
+    // --- Fenwick tree (1-based inside) ---
+
+    private void treeAdd(int slot, int delta) {
+        for (int i = slot + 1; i < filledTree.length; i += i & -i) {
+            filledTree[i] += delta;
+        }
+    }
+
+    // Number of filled slots in 0..slot
+    private int treePrefixSum(int slot) {
+        int sum = 0;
+        for (int i = slot + 1; i > 0; i -= i & -i) {
+            sum += filledTree[i];
+        }
+        return sum;
+    }
+
+    // The slot holding the 'count'-th filled slot (count starts at 1)
+    private int treeFindSlot(int count) {
+        int position = 0;
+        for (int step = Integer.highestOneBit(filledTree.length - 1); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < filledTree.length && filledTree[next] < count) {
+                position = next;
+                count -= filledTree[next];
+            }
+        }
+        return position; // 1-based 'position + 1' is the slot, so 0-based it is 'position'
+    }
+
+    // --- Int hash index ---
+
+    private static int[] newEmptyIndex(int capacity) {
+        int[] empty = new int[capacity];
+        Arrays.fill(empty, -1);
+        return empty;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9; // Spread sequential ids over the table
+        return h ^ (h >>> 16);
+    }
+
+    private int findSlot(int quizId) {
+        int mask = indexKeys.length - 1;
+        for (int i = hash(quizId) & mask; indexSlots[i] >= 0; i = (i + 1) & mask) {
+            if (indexKeys[i] == quizId) {
+                return indexSlots[i];
+            }
+        }
+        return -1;
+    }
+
+    private void indexPut(int quizId, int slot) {
+        if ((indexCount + 1) * 2 > indexKeys.length) {
+            growIndex();
+        }
+        int mask = indexKeys.length - 1;
+        int i = hash(quizId) & mask;
+        while (indexSlots[i] >= 0 && indexKeys[i] != quizId) {
+            i = (i + 1) & mask;
+        }
+        if (indexSlots[i] < 0) {
+            indexCount++;
+        }
+        indexKeys[i] = quizId;
+        indexSlots[i] = slot;
+    }
+
+    // Removes the id and returns its slot, or -1
+    private int indexRemove(int quizId) {
+        int mask = indexKeys.length - 1;
+        int i = hash(quizId) & mask;
+        while (indexSlots[i] >= 0 && indexKeys[i] != quizId) {
+            i = (i + 1) & mask;
+        }
+        if (indexSlots[i] < 0) {
+            return -1;
+        }
+        int removedSlot = indexSlots[i];
+        indexCount--;
+
+        // Backward-shift: move later entries of the same probe run into the gap.
+        int gap = i;
+        for (int j = (gap + 1) & mask; indexSlots[j] >= 0; j = (j + 1) & mask) {
+            int home = hash(indexKeys[j]) & mask;
+            boolean canMove = gap <= j ? (home <= gap || home > j) : (home <= gap && home > j);
+            if (canMove) {
+                indexKeys[gap] = indexKeys[j];
+                indexSlots[gap] = indexSlots[j];
+                gap = j;
+            }
+        }
+        indexSlots[gap] = -1;
+        return removedSlot;
+    }
+
+    private void growIndex() {
+        int[] oldKeys = indexKeys;
+        int[] oldSlots = indexSlots;
+        indexKeys = new int[oldKeys.length * 2];
+        indexSlots = newEmptyIndex(oldKeys.length * 2);
+        indexCount = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldSlots[i] >= 0) {
+                indexPut(oldKeys[i], oldSlots[i]);
+            }
+        }
+    }
+}
@@ -1,58 +1,70 @@
 package main;
 
 import javax.swing.*;
-import javax.swing.border.EmptyBorder;
 import java.awt.*;
 
 public class QuizResultDialog extends JDialog {
 
-    public QuizResultDialog(Frame owner, String title, Quiz quiz, int score,
-                            Color primaryColor, Color textColorWhite, Color bgColor, Color textColorDark) {
-        super(owner, title, true);
-        setSize(450, 280);
-        setLocationRelativeTo(owner);
-        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
-        getContentPane().setBackground(bgColor);
+    private final JLabel quizNameLabel, scoreLabel, percentageLabel, rankLabel;
+    // What the statistics button shows
+    private Quiz quiz;
+    private ItemStatistics itemStatistics;
+
+    /**
+     * Builds the dialog without a result; bind() fills it in. Kept and reused for one
+     * result after the other (see DialogPool), so closing only hides it.
+     */
+    public QuizResultDialog(Frame owner) {
+        super(owner, "", true);
+        long constructionStart = System.nanoTime();
+        setSize(450, 310);
+        setDefaultCloseOperation(JDialog.HIDE_ON_CLOSE);
+        getContentPane().setBackground(Theme.BACKGROUND);
         setLayout(new BorderLayout(10, 10));
 
         JPanel contentPanel = new JPanel();
         contentPanel.setLayout(new BoxLayout(contentPanel, BoxLayout.Y_AXIS));
-        contentPanel.setBorder(new EmptyBorder(25, 25, 25, 25));
-        contentPanel.setBackground(bgColor);
+        contentPanel.setBorder(Theme.padding(25, 25, 25, 25));
+        contentPanel.setBackground(Theme.BACKGROUND);
 
-        JLabel quizNameLabel = new JLabel(quiz.getQuizName());
-        quizNameLabel.setFont(new Font("Segoe UI Semibold", Font.BOLD, 20));
-        quizNameLabel.setForeground(textColorDark);
+        quizNameLabel = new JLabel();
+        quizNameLabel.setFont(Theme.HEADING);
+        quizNameLabel.setForeground(Theme.TEXT_DARK);
         quizNameLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
         JLabel scoreInfoLabel = new JLabel("Your Score:");
-        scoreInfoLabel.setFont(new Font("Segoe UI", Font.PLAIN, 16));
-        scoreInfoLabel.setForeground(textColorDark.darker());
+        scoreInfoLabel.setFont(Theme.BODY_LARGE);
+        scoreInfoLabel.setForeground(Theme.TEXT_MUTED);
         scoreInfoLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
-        JLabel scoreLabel = new JLabel(score + " / " + quiz.getNumOfQuestions());
-        scoreLabel.setFont(new Font("Segoe UI Black", Font.BOLD, 36));
-        scoreLabel.setForeground(primaryColor);
+        scoreLabel = new JLabel();
+        scoreLabel.setFont(Theme.SCORE);
+        scoreLabel.setForeground(Theme.PRIMARY_LIGHT);
         scoreLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-        
-        float percentage = 0;
-        if (quiz.getNumOfQuestions() > 0) {
-            percentage = ((float)score / quiz.getNumOfQuestions()) * 100; // to Get the percentage
-        }
-        JLabel percentageLabel = new JLabel(String.format("Percentage: %.1f%%", percentage)); // one Fraction after Point
-        percentageLabel.setFont(new Font("Segoe UI", Font.PLAIN, 16));
-        percentageLabel.setForeground(textColorDark.darker());
+
+        percentageLabel = new JLabel();
+        percentageLabel.setFont(Theme.BODY_LARGE);
+        percentageLabel.setForeground(Theme.TEXT_MUTED);
         percentageLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
-        JButton closeButton = new JButton("Close");
-        closeButton.setFont(new Font("Segoe UI Semibold", Font.PLAIN, 13));
-        closeButton.setBackground(primaryColor);
-        closeButton.setForeground(textColorWhite);
-        closeButton.setFocusPainted(false);
-        closeButton.setBorder(new EmptyBorder(10, 25, 10, 25));
-        closeButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        closeButton.setAlignmentX(Component.CENTER_ALIGNMENT);
-        closeButton.addActionListener(e -> dispose());
+        // Where the taker stands among everybody who took this quiz (by best score)
+        rankLabel = new JLabel();
+        rankLabel.setFont(Theme.BODY);
+        rankLabel.setForeground(Theme.PRIMARY_LIGHT);
+        rankLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+        JButton closeButton = Theme.button("Close", Theme.PRIMARY_LIGHT, Theme.TEXT_WHITE, Theme.padding(10, 25, 10, 25));
+        closeButton.addActionListener(e -> setVisible(false));
+
+        // How everybody did on each question, this attempt included
+        JButton statisticsButton = Theme.button("Question Statistics", Theme.BACKGROUND, Theme.PRIMARY_LIGHT, Theme.padding(10, 25, 10, 25));
+        statisticsButton.addActionListener(e -> new QuizStatisticsDialog(this, quiz, itemStatistics).setVisible(true));
+
+        JPanel buttonsPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+        buttonsPanel.setOpaque(false);
+        buttonsPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        buttonsPanel.add(statisticsButton);
+        buttonsPanel.add(closeButton);
 
         contentPanel.add(quizNameLabel);
         contentPanel.add(Box.createRigidArea(new Dimension(0, 15)));
@@ -60,9 +72,49 @@ public class QuizResultDialog extends JDialog {
         contentPanel.add(scoreLabel);
         contentPanel.add(Box.createRigidArea(new Dimension(0, 5)));
         contentPanel.add(percentageLabel);
+        contentPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+        contentPanel.add(rankLabel);
         contentPanel.add(Box.createVerticalStrut(25));
-        contentPanel.add(closeButton);
+        contentPanel.add(buttonsPanel);
 
         add(contentPanel, BorderLayout.CENTER);
+        Metrics.DIALOG_CONSTRUCTION.record(System.nanoTime() - constructionStart);
+    }
+
+    // Shows 'attempt' of 'quiz' next time the dialog is made visible (on the EDT)
+    public void bind(String title, Quiz quiz, Attempt attempt, ItemStatistics itemStatistics, Leaderboard leaderboard) {
+        this.quiz = quiz;
+        this.itemStatistics = itemStatistics;
+        int score = attempt.getScore();
+        int questionCount = attempt.getQuestionCount();
+        setTitle(title);
+        setLocationRelativeTo(getOwner());
+        quizNameLabel.setText(quiz.getQuizName());
+        scoreLabel.setText(score + " / " + questionCount);
+
+        float percentage = 0;
+        if (questionCount > 0) {
+            percentage = ((float)score / questionCount) * 100; // to Get the percentage
+        }
+        if (attempt.isAdaptive()) {
+            // Adaptive questions get harder as you do well, so the level says more than the percentage
+            percentageLabel.setText(String.format("Estimated level: %+.2f (\u00B1 %.2f)", attempt.getAbility(), attempt.getStandardError()));
+            percentageLabel.setToolTipText("0 is the average student; +1 is better than about 84% of them");
+        } else {
+            percentageLabel.setText(String.format("Percentage: %.1f%%", percentage)); // one Fraction after Point
+            percentageLabel.setToolTipText(null);
+        }
+        rankLabel.setText(rankText(quiz, score, leaderboard));
+    }
+
+    private static String rankText(Quiz quiz, int score, Leaderboard leaderboard) {
+        String user = AttemptStore.currentUser();
+        long rank = leaderboard.getRank(quiz.getQuizId(), user);
+        if (rank == 0) {
+            return " "; // Still reading the history in the background
+        }
+        String text = String.format("Rank %,d of %,d", rank, leaderboard.getTakerCount(quiz.getQuizId()));
+        Leaderboard.Entry best = leaderboard.getBest(quiz.getQuizId(), user);
+        return best.getScore() > score ? text + " (with your best score, " + best.getScore() + ")" : text;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
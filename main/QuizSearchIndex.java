@@ -0,0 +1,317 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * QuizSearchIndex: finds quizzes by the words in their name, questions and options.
+ *
+ * An inverted index: for every word, the ids of the quizzes that contain it
+ * (a sorted int array). The words are kept sorted, so the last word of a query
+ * also matches longer words that start with it ("jav" finds "java"), which is
+ * what search-as-you-type needs (from two letters on; a single letter would match
+ * most of the index). A query looks up each word and intersects the results in a
+ * BitSet, so it never looks at the quizzes themselves.
+ *
+ * The index follows the repository (quizzes added, replaced and deleted) and every
+ * indexed quiz (questions added). Indexing a quiz that lives in a bank file loads
+ * its questions once and releases them again. Each indexed quiz keeps the postings
+ * it is in, so removing it needs neither its questions nor the disk.
+ */
+public class QuizSearchIndex implements QuizRepository.Listener, Quiz.QuestionListener {
+
+    // The last word of a query is only matched as a prefix from this length on
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private final QuizRepository quizes;
+
+    // Word -> ids of the quizzes that contain it (guarded by 'this').
+    // The hash map is for looking words up, the sorted one for finding words by prefix.
+    private final HashMap<String, Posting> postings = new HashMap<>();
+    private final TreeMap<String, Posting> sortedPostings = new TreeMap<>();
+    private final HashMap<Integer, IndexedQuiz> indexedQuizes = new HashMap<>();
+    private int maxQuizId = 0;
+
+    // Quiz ids containing one word, sorted and without duplicates
+    private static final class Posting {
+        final String word;
+        int[] quizIds = new int[2];
+        int size = 0;
+
+        Posting(String word) {
+            this.word = word;
+        }
+
+        // False if the quiz was there already
+        boolean add(int quizId) {
+            if (size > 0 && quizIds[size - 1] >= quizId) {
+                int at = Arrays.binarySearch(quizIds, 0, size, quizId);
+                if (at >= 0) {
+                    return false; // The usual case: another question of the same quiz
+                }
+                insertAt(-at - 1, quizId);
+                return true;
+            }
+            insertAt(size, quizId);
+            return true;
+        }
+
+        private void insertAt(int at, int quizId) {
+            if (size == quizIds.length) {
+                quizIds = Arrays.copyOf(quizIds, size * 2);
+            }
+            System.arraycopy(quizIds, at, quizIds, at + 1, size - at);
+            quizIds[at] = quizId;
+            size++;
+        }
+
+        void remove(int quizId) {
+            int at = Arrays.binarySearch(quizIds, 0, size, quizId);
+            if (at >= 0) {
+                System.arraycopy(quizIds, at + 1, quizIds, at, size - at - 1);
+                size--;
+            }
+        }
+
+        void addTo(BitSet matches) {
+            for (int i = 0; i < size; i++) {
+                matches.set(quizIds[i]);
+            }
+        }
+    }
+
+    // A quiz in the index and the postings that hold its id
+    private static final class IndexedQuiz {
+        final Quiz quiz;
+        Posting[] postings = new Posting[16];
+        int size = 0;
+
+        IndexedQuiz(Quiz quiz) {
+            this.quiz = quiz;
+        }
+
+        void add(Posting posting) {
+            if (size == postings.length) {
+                postings = Arrays.copyOf(postings, size * 2);
+            }
+            postings[size++] = posting;
+        }
+    }
+
+    public QuizSearchIndex(QuizRepository quizes) {
+        this.quizes = quizes;
+    }
+
+    /**
+     * Indexes the quizzes already in the repository and starts following it.
+     * With many questions on disk this takes a while, so call it off the EDT.
+     * The listener may meanwhile report the same quizzes again, or remove some:
+     * postings are only changed under the lock and for the quiz the repository
+     * holds at that moment, so neither leaves anything wrong behind.
+     */
+    public void build() {
+        quizes.addListener(this);
+        for (Quiz quiz : quizes) {
+            quizAdded(quiz);
+        }
+    }
+
+    // --- Following the repository ---
+
+    @Override
+    public void quizAdded(Quiz quiz) {
+        if (quizes.findById(quiz.getQuizId()) != quiz) {
+            return; // build() came across it after it was removed or replaced
+        }
+        synchronized (this) {
+            IndexedQuiz indexed = indexedQuizes.get(quiz.getQuizId());
+            if (indexed != null && indexed.quiz == quiz) {
+                return; // build() and the listener both got here
+            }
+        }
+        quiz.addQuestionListener(this);
+        Set<String> words = loadedWordsOf(quiz);
+        synchronized (this) {
+            if (quizes.findById(quiz.getQuizId()) != quiz) {
+                quiz.removeQuestionListener(this); // Removed meanwhile; quizRemoved() may have run already
+                return;
+            }
+            indexWords(quiz, words);
+        }
+    }
+
+    @Override
+    public void quizRemoved(Quiz quiz) {
+        quiz.removeQuestionListener(this);
+        synchronized (this) {
+            IndexedQuiz indexed = indexedQuizes.get(quiz.getQuizId());
+            if (indexed != null && indexed.quiz == quiz) {
+                indexedQuizes.remove(quiz.getQuizId());
+                unindex(indexed);
+            } // Otherwise never indexed, or replaced by a newer version that took over its postings
+        }
+    }
+
+    @Override
+    public void questionAdded(Quiz quiz, Question question) {
+        Set<String> words = new HashSet<>();
+        addWords(question, words);
+        synchronized (this) {
+            if (quizes.findById(quiz.getQuizId()) != quiz) {
+                return;
+            }
+            indexWords(quiz, words);
+        }
+    }
+
+    // Puts 'words' under the quiz (the one the repository holds), replacing an older version of it
+    private void indexWords(Quiz quiz, Set<String> words) {
+        IndexedQuiz indexed = indexedQuizes.get(quiz.getQuizId());
+        if (indexed == null || indexed.quiz != quiz) {
+            if (indexed != null) {
+                unindex(indexed); // Replaced, and its quizRemoved() hasn't come yet
+            }
+            indexed = new IndexedQuiz(quiz);
+            indexedQuizes.put(quiz.getQuizId(), indexed);
+        }
+        maxQuizId = Math.max(maxQuizId, quiz.getQuizId());
+        for (String word : words) {
+            Posting posting = postingFor(word);
+            if (posting.add(quiz.getQuizId())) {
+                indexed.add(posting);
+            }
+        }
+    }
+
+    private void unindex(IndexedQuiz indexed) {
+        for (int i = 0; i < indexed.size; i++) {
+            Posting posting = indexed.postings[i];
+            posting.remove(indexed.quiz.getQuizId());
+            if (posting.size == 0) {
+                postings.remove(posting.word);
+                sortedPostings.remove(posting.word);
+            }
+        }
+        indexed.size = 0;
+    }
+
+    private Posting postingFor(String word) {
+        Posting posting = postings.get(word);
+        if (posting == null) {
+            posting = new Posting(word);
+            postings.put(word, posting);
+            sortedPostings.put(word, posting);
+        }
+        return posting;
+    }
+
+    // --- Searching ---
+
+    /**
+     * The quizzes that contain every word of 'query', in dashboard order.
+     * The last word may be the start of a longer word. An empty query matches nothing.
+     */
+    public List<Quiz> search(String query) {
+        List<String> words = new ArrayList<>();
+        tokenize(query, words);
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        BitSet matches = null;
+        synchronized (this) {
+            for (int i = 0; i < words.size(); i++) {
+                BitSet wordMatches = new BitSet(maxQuizId + 1);
+                String word = words.get(i);
+                if (i == words.size() - 1 && lastIsPrefix && word.length() >= MIN_PREFIX_LENGTH) {
+                    SortedMap<String, Posting> startingWith = sortedPostings.subMap(word, word + Character.MAX_VALUE);
+                    for (Posting posting : startingWith.values()) {
+                        posting.addTo(wordMatches);
+                    }
+                } else {
+                    Posting posting = postings.get(word);
+                    if (posting != null) {
+                        posting.addTo(wordMatches);
+                    }
+                }
+                if (matches == null) {
+                    matches = wordMatches;
+                } else {
+                    matches.and(wordMatches);
+                }
+                if (matches.isEmpty()) {
+                    break;
+                }
+            }
+        }
+
+        // Quiz ids grow with every new quiz, so id order is the order of the dashboard.
+        List<Quiz> found = new ArrayList<>(matches.cardinality());
+        for (int quizId = matches.nextSetBit(0); quizId >= 0; quizId = matches.nextSetBit(quizId + 1)) {
+            Quiz quiz = quizes.findById(quizId);
+            if (quiz != null) {
+                found.add(quiz);
+            }
+        }
+        return found;
+    }
+
+    public synchronized int getWordCount() {
+        return postings.size();
+    }
+
+    // --- Words ---
+
+    // wordsOf(quiz), without keeping questions loaded that were only on disk
+    private static Set<String> loadedWordsOf(Quiz quiz) {
+        boolean wasLoaded = quiz.areQuestionsLoaded();
+        Set<String> words = wordsOf(quiz);
+        if (!wasLoaded) {
+            quiz.releaseQuestions();
+        }
+        return words;
+    }
+
+    private static Set<String> wordsOf(Quiz quiz) {
+        Set<String> words = new HashSet<>();
+        tokenize(quiz.getQuizName(), words);
+        for (Question question : quiz.getQuestions()) {
+            addWords(question, words);
+        }
+        return words;
+    }
+
+    private static void addWords(Question question, Collection<String> words) {
+        tokenize(question.getQuestionText(), words);
+        for (String option : question.getOptions()) {
+            tokenize(option, words);
+        }
+    }
+
+    // Splits text into lower-case words of letters and digits
+    static void tokenize(String text, Collection<String> words) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean partOfWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (partOfWord && start < 0) {
+                start = i;
+            } else if (!partOfWord && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT)); // Not Turkish rules: "QUIZ" must find "quiz"
+                start = -1;
+            }
+        }
+    }
+}
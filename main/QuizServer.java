@@ -0,0 +1,513 @@
+package main;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * QuizServer: lets students take the quizzes over HTTP, without any UI.
+ *
+ *   GET  /quizzes                      -> [{"id": 1, "name": "...", "questions": 10, "seconds": 0}, ...]
+ *                                         ("seconds": the time limit, 0 = none)
+ *   GET  /quizzes/{id}                 -> {"id": 1, "name": "...", "questions": [{"question": "...", "options": [...]}, ...]}
+ *   POST /quizzes/{id}/attempts        <- {"user": "...", "answers": [0, 2, -1, ...]}
+ *                                         (timed quizzes: {"session": "...", "answers": [...]})
+ *                                      -> {"score": 7, "questions": 10, "rank": 3, "takers": 120}
+ *   POST /quizzes/{id}/sessions        <- {"user": "..."}
+ *                                      -> {"session": "...", "seconds": 600}
+ *   POST /quizzes/{id}/sessions/{session}
+ *                                      <- {"answers": [0, 2, -1, ...]}   (answers so far)
+ *                                      -> {"secondsLeft": 412}
+ *   GET  /quizzes/{id}/leaderboard?limit=10
+ *                                      -> [{"rank": 1, "user": "...", "score": 10}, ...]
+ *
+ * Correct answers are never sent. Attempts are graded with QuizGrader and
+ * recorded in the AttemptStore, like attempts taken in the app. The rank is the
+ * taker's best score among everybody's (see Leaderboard).
+ *
+ * A quiz with a time limit is taken in a session: its deadline is armed on the
+ * shared TimerWheel (one thread for all sessions), and when it passes the session
+ * is graded with the answers saved so far. Submitting after that gets a 409.
+ * Time per question is up to the client.
+ *
+ * Requests run on virtual threads when the JDK has them (Java 21+), otherwise on
+ * a pool of platform threads. The JSON of a quiz and its answer key are built once
+ * and cached, so fetching and grading don't touch the Quiz objects again; questions
+ * that were only on disk are released once that is done, and a quiz's entry goes
+ * when the quiz leaves the repository.
+ */
+public class QuizServer implements Closeable {
+
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    static {
+        // The JDK server writes headers and body separately; without TCP_NODELAY every
+        // small response waits ~40 ms for the client's delayed ACK. Read once, so set it early.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final QuizRepository quizes;
+    private final AttemptStore attemptStore;
+    private final Leaderboard leaderboard;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // Built once per quiz (and again when the quiz changed)
+    private static final class CachedQuiz {
+        final Quiz quiz;
+        final int questionCount;
+        final byte[] json;
+        final byte[] correctAnswers;
+
+        CachedQuiz(Quiz quiz) {
+            this.quiz = quiz;
+            boolean wasLoaded = quiz.areQuestionsLoaded();
+            List<Question> questions = quiz.getQuestions();
+            this.questionCount = questions.size();
+            this.correctAnswers = new byte[questionCount];
+
+            StringBuilder out = new StringBuilder(128 + questionCount * 128);
+            out.append("{\"id\":").append(quiz.getQuizId()).append(",\"name\":");
+            Json.appendString(out, quiz.getQuizName()).append(",\"questions\":[");
+            for (int i = 0; i < questionCount; i++) {
+                Question question = questions.get(i);
+                correctAnswers[i] = (byte) question.getCorrectAnswerIndex();
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append("{\"question\":");
+                Json.appendString(out, question.getQuestionText()).append(",\"options\":[");
+                List<String> options = question.getOptions();
+                for (int j = 0; j < options.size(); j++) {
+                    if (j > 0) {
+                        out.append(',');
+                    }
+                    Json.appendString(out, options.get(j));
+                }
+                out.append("]}");
+            }
+            out.append("]}");
+            this.json = out.toString().getBytes(StandardCharsets.UTF_8);
+            if (!wasLoaded) {
+                quiz.releaseQuestions(); // Everything needed is in 'json' and 'correctAnswers' now
+            }
+        }
+
+        boolean isFor(Quiz current) {
+            return current == quiz && current.getNumOfQuestions() == questionCount;
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, CachedQuiz> cache = new ConcurrentHashMap<>();
+
+    // Drops the cached copy of quizzes that are removed or replaced
+    private final QuizRepository.Listener cacheEviction = new QuizRepository.Listener() {
+        @Override
+        public void quizAdded(Quiz quiz) {
+        }
+
+        @Override
+        public void quizRemoved(Quiz quiz) {
+            cache.remove(quiz.getQuizId());
+        }
+    };
+
+    // Slack past a session's time limit for the submission to arrive
+    private static final long GRACE_MILLIS = 2_000;
+
+    // A timed attempt in progress; ends once, by submission or by its deadline
+    private static final class Session {
+        final String id;
+        final String user;
+        final Quiz quiz;
+        final CachedQuiz cachedQuiz;
+        final long deadlineMillis;
+        final AtomicBoolean finished = new AtomicBoolean();
+        volatile int[] answers; // Saved so far
+        volatile TimerWheel.Timeout timeout;
+
+        Session(String id, String user, Quiz quiz, CachedQuiz cachedQuiz, long deadlineMillis) {
+            this.id = id;
+            this.user = user;
+            this.quiz = quiz;
+            this.cachedQuiz = cachedQuiz;
+            this.deadlineMillis = deadlineMillis;
+            this.answers = new int[cachedQuiz.questionCount];
+            Arrays.fill(answers, QuizGrader.NO_ANSWER);
+        }
+    }
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    public QuizServer(QuizRepository quizes, AttemptStore attemptStore, int port) throws IOException {
+        this.quizes = quizes;
+        this.attemptStore = attemptStore;
+        this.leaderboard = new Leaderboard(quizes, attemptStore);
+        leaderboard.build();
+        quizes.addListener(cacheEviction);
+        this.executor = newRequestExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/quizzes", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        quizes.removeListener(cacheEviction);
+        for (Session session : sessions.values()) {
+            session.timeout.cancel();
+        }
+    }
+
+    // One virtual thread per request on Java 21+, a fixed pool of platform threads before that
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            int threads = Math.max(32, Runtime.getRuntime().availableProcessors() * 8);
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "quiz-server-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // --- Routing ---
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] parts = exchange.getRequestURI().getPath().split("/");
+            // "/quizzes" -> ["", "quizzes"], "/quizzes/3/attempts" -> ["", "quizzes", "3", "attempts"]
+            String method = exchange.getRequestMethod();
+            if (parts.length == 2) {
+                if (!method.equals("GET")) {
+                    send(exchange, 405, error("Use GET"));
+                } else {
+                    listQuizes(exchange);
+                }
+                return;
+            }
+            Quiz quiz = parts.length <= 5 ? findQuiz(parts[2]) : null;
+            if (quiz == null) {
+                send(exchange, 404, error("No such quiz"));
+            } else if (parts.length == 3) {
+                if (!method.equals("GET")) {
+                    send(exchange, 405, error("Use GET"));
+                } else {
+                    send(exchange, 200, cached(quiz).json);
+                }
+            } else if (parts[3].equals("sessions")) {
+                if (!method.equals("POST")) {
+                    send(exchange, 405, error("Use POST"));
+                } else if (parts.length == 4) {
+                    startSession(exchange, quiz);
+                } else {
+                    saveProgress(exchange, quiz, parts[4]);
+                }
+            } else if (parts.length == 5) {
+                send(exchange, 404, error("Not found"));
+            } else if (parts[3].equals("attempts")) {
+                if (!method.equals("POST")) {
+                    send(exchange, 405, error("Use POST"));
+                } else {
+                    submitAttempt(exchange, quiz);
+                }
+            } else if (parts[3].equals("leaderboard")) {
+                if (!method.equals("GET")) {
+                    send(exchange, 405, error("Use GET"));
+                } else {
+                    sendLeaderboard(exchange, quiz);
+                }
+            } else {
+                send(exchange, 404, error("Not found"));
+            }
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            send(exchange, 500, error("Internal error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Quiz findQuiz(String idText) {
+        try {
+            return quizes.findById(Integer.parseInt(idText));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private CachedQuiz cached(Quiz quiz) {
+        CachedQuiz cachedQuiz = cache.get(quiz.getQuizId());
+        if (cachedQuiz == null || !cachedQuiz.isFor(quiz)) {
+            cachedQuiz = new CachedQuiz(quiz);
+            cache.put(quiz.getQuizId(), cachedQuiz);
+            if (quizes.findById(quiz.getQuizId()) != quiz) {
+                cache.remove(quiz.getQuizId(), cachedQuiz); // Removed while it was being built
+            }
+        }
+        return cachedQuiz;
+    }
+
+    // --- Endpoints ---
+
+    private void listQuizes(HttpExchange exchange) throws IOException {
+        StringBuilder out = new StringBuilder(64 * quizes.size() + 2);
+        out.append('[');
+        boolean first = true;
+        for (Quiz quiz : quizes) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            out.append("{\"id\":").append(quiz.getQuizId()).append(",\"name\":");
+            Json.appendString(out, quiz.getQuizName()).append(",\"questions\":").append(quiz.getNumOfQuestions())
+                .append(",\"seconds\":").append(quiz.getTimeLimitSeconds()).append('}');
+        }
+        out.append(']');
+        send(exchange, 200, out.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void submitAttempt(HttpExchange exchange, Quiz quiz) throws IOException {
+        Map<String, Object> body = Json.parseObject(readBody(exchange));
+        Object sessionId = body.get("session");
+        List<?> answerList = answerList(body);
+
+        String user;
+        CachedQuiz cachedQuiz;
+        if (sessionId != null) {
+            Session session = sessions.get(sessionId);
+            if (session == null || session.quiz != quiz || !finish(session)) {
+                send(exchange, 409, error("No such session; if time ran out, the answers saved by then were submitted"));
+                return;
+            }
+            user = session.user;
+            cachedQuiz = session.cachedQuiz;
+        } else {
+            if (quiz.getTimeLimitSeconds() > 0) {
+                throw new IllegalArgumentException("This quiz has a time limit: start a session first");
+            }
+            user = userOf(body);
+            cachedQuiz = cached(quiz);
+        }
+        int score = recordAttempt(quiz, cachedQuiz, user, parseAnswers(cachedQuiz, answerList));
+
+        String result = "{\"score\":" + score + ",\"questions\":" + cachedQuiz.questionCount
+            + ",\"rank\":" + leaderboard.getRank(quiz.getQuizId(), user)
+            + ",\"takers\":" + leaderboard.getTakerCount(quiz.getQuizId()) + "}";
+        send(exchange, 200, result.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Starts the clock of a timed quiz for one user
+    private void startSession(HttpExchange exchange, Quiz quiz) throws IOException {
+        String user = userOf(Json.parseObject(readBody(exchange)));
+        int seconds = quiz.getTimeLimitSeconds();
+        if (seconds == 0) {
+            throw new IllegalArgumentException("This quiz has no time limit: just post the attempt");
+        }
+        Session session = new Session(UUID.randomUUID().toString(), user, quiz, cached(quiz),
+            System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds));
+        session.timeout = TimerWheel.shared().schedule(() -> expire(session),
+            TimeUnit.SECONDS.toMillis(seconds) + GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        sessions.put(session.id, session);
+
+        StringBuilder out = new StringBuilder("{\"session\":");
+        Json.appendString(out, session.id).append(",\"seconds\":").append(seconds).append('}');
+        send(exchange, 200, out.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Keeps the answers given so far, so they count if time runs out
+    private void saveProgress(HttpExchange exchange, Quiz quiz, String sessionId) throws IOException {
+        List<?> answerList = answerList(Json.parseObject(readBody(exchange)));
+        Session session = sessions.get(sessionId);
+        if (session == null || session.quiz != quiz) {
+            send(exchange, 409, error("No such session; if time ran out, the answers saved by then were submitted"));
+            return;
+        }
+        session.answers = parseAnswers(session.cachedQuiz, answerList);
+        long secondsLeft = Math.max(0, (session.deadlineMillis - System.currentTimeMillis() + 999) / 1000);
+        send(exchange, 200, ("{\"secondsLeft\":" + secondsLeft + "}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    // On the timer's thread: time is up, so the session is graded as it stands. Only ending
+    // it happens here; grading and recording go to the pipeline, so the timer can get on
+    // with every other session's deadline.
+    private void expire(Session session) {
+        if (finish(session)) {
+            int[] answers = session.answers;
+            TaskPipeline.shared().execute(() -> recordAttempt(session.quiz, session.cachedQuiz, session.user, answers));
+        }
+    }
+
+    // True for the one caller that gets to end the session
+    private boolean finish(Session session) {
+        if (!session.finished.compareAndSet(false, true)) {
+            return false;
+        }
+        sessions.remove(session.id);
+        session.timeout.cancel();
+        return true;
+    }
+
+    private int recordAttempt(Quiz quiz, CachedQuiz cachedQuiz, String user, int[] answers) {
+        long start = System.nanoTime();
+        int score = 0;
+        for (int i = 0; i < answers.length; i++) {
+            if (QuizGrader.isCorrect(answers[i], cachedQuiz.correctAnswers[i])) {
+                score++;
+            }
+        }
+        Metrics.GRADING.record(System.nanoTime() - start);
+        attemptStore.record(new Attempt(user, quiz.getQuizId(), answers, score, System.currentTimeMillis()));
+        return score;
+    }
+
+    private static String userOf(Map<String, Object> body) {
+        Object user = body.get("user");
+        if (!(user instanceof String) || ((String) user).isEmpty()) {
+            throw new IllegalArgumentException("\"user\" must be a non-empty string");
+        }
+        return (String) user;
+    }
+
+    private static List<?> answerList(Map<String, Object> body) {
+        Object answers = body.get("answers");
+        if (!(answers instanceof List)) {
+            throw new IllegalArgumentException("\"answers\" must be a list");
+        }
+        return (List<?>) answers;
+    }
+
+    // One answer per question of the quiz; anything that isn't an option number counts as skipped
+    private static int[] parseAnswers(CachedQuiz cachedQuiz, List<?> answerList) {
+        int[] answers = new int[cachedQuiz.questionCount];
+        for (int i = 0; i < answers.length; i++) {
+            Object answer = i < answerList.size() ? answerList.get(i) : null;
+            long value = answer instanceof Long ? (Long) answer : QuizGrader.NO_ANSWER;
+            answers[i] = value >= 0 && value <= Byte.MAX_VALUE ? (int) value : QuizGrader.NO_ANSWER;
+        }
+        return answers;
+    }
+
+    private void sendLeaderboard(HttpExchange exchange, Quiz quiz) throws IOException {
+        int limit = 10;
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null && query.startsWith("limit=")) {
+            try {
+                limit = Integer.parseInt(query.substring("limit=".length()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("\"limit\" must be a number");
+            }
+        }
+        List<Leaderboard.Entry> top = leaderboard.getTop(quiz.getQuizId(), limit);
+        StringBuilder out = new StringBuilder(48 * top.size() + 2);
+        out.append('[');
+        long rank = 0;
+        int previousScore = -1;
+        for (int i = 0; i < top.size(); i++) {
+            Leaderboard.Entry entry = top.get(i);
+            if (entry.getScore() != previousScore) {
+                rank = i + 1; // Ties share a rank
+                previousScore = entry.getScore();
+            }
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("{\"rank\":").append(rank).append(",\"user\":");
+            Json.appendString(out, entry.getUser()).append(",\"score\":").append(entry.getScore()).append('}');
+        }
+        out.append(']');
+        send(exchange, 200, out.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // --- Helpers ---
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        byte[] buffer = new byte[4096];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                bytes.write(buffer, 0, read);
+                if (bytes.size() > MAX_BODY_BYTES) {
+                    throw new IllegalArgumentException("Request body is too big");
+                }
+            }
+        }
+        return bytes.toString("UTF-8");
+    }
+
+    private static byte[] error(String message) {
+        StringBuilder out = new StringBuilder("{\"error\":");
+        Json.appendString(out, message).append('}');
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Command line: QuizApp --server [port]
+     * Serves the saved quizzes until the process is stopped.
+     */
+    public static void runFromCommandLine(String[] args) throws IOException {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+
+        QuizStore store = new QuizStore(QuizStore.defaultDirectory());
+        AttemptStore attempts = new AttemptStore(QuizStore.defaultDirectory());
+        QuizRepository repository = new QuizRepository();
+        for (Quiz quiz : store.recover()) {
+            repository.add(quiz);
+        }
+
+        QuizServer server = new QuizServer(repository, attempts, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                attempts.close();
+                store.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the stores: " + e.getMessage());
+            }
+        }));
+        server.start();
+        Metrics.start(QuizStore.defaultDirectory().resolve("logs"));
+        System.out.println("Serving " + repository.size() + " quizzes on http://localhost:" + server.getPort() + "/quizzes");
+    }
+}
@@ -0,0 +1,128 @@
+package main;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * QuizStatisticsDialog: the item analysis of one quiz (see ItemStatistics),
+ * one row per question. Questions that hardly separate strong from weak
+ * students are shown in the warning color.
+ */
+public class QuizStatisticsDialog extends JDialog {
+
+    // Below this the question deserves a second look
+    private static final double WEAK_DISCRIMINATION = 0.2;
+
+    public QuizStatisticsDialog(Window owner, Quiz quiz, ItemStatistics statistics) {
+        super(owner, "Statistics: " + quiz.getQuizName(), ModalityType.APPLICATION_MODAL);
+        long constructionStart = System.nanoTime();
+        setSize(850, 450);
+        setLocationRelativeTo(owner);
+        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        getContentPane().setBackground(Theme.BACKGROUND);
+        setLayout(new BorderLayout(10, 10));
+
+        List<Question> questions = quiz.getQuestions();
+        List<ItemStatistics.QuestionStats> stats = statistics.getQuestionStats(quiz.getQuizId());
+
+        JLabel headerLabel = new JLabel(stats.isEmpty()
+            ? "Nobody has taken this quiz yet."
+            : "Per question: share answered correctly, discrimination and the options chosen.");
+        headerLabel.setFont(Theme.BODY);
+        headerLabel.setForeground(Theme.TEXT_DARK);
+        headerLabel.setBorder(Theme.padding(15, 20, 0, 20));
+
+        JTable table = new JTable(new StatisticsTableModel(questions, stats));
+        table.setFont(Theme.BODY_SMALL);
+        table.setRowHeight(24);
+        table.getTableHeader().setFont(Theme.TABLE_HEADER);
+        table.getColumnModel().getColumn(0).setPreferredWidth(30);
+        table.getColumnModel().getColumn(1).setPreferredWidth(300);
+        table.getColumnModel().getColumn(5).setPreferredWidth(300);
+        table.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable t, Object value, boolean selected, boolean focused, int row, int column) {
+                Component cell = super.getTableCellRendererComponent(t, value, selected, focused, row, column);
+                if (!selected) {
+                    double discrimination = row < stats.size() ? stats.get(row).getDiscrimination() : Double.NaN;
+                    cell.setForeground(discrimination < WEAK_DISCRIMINATION ? Theme.ACCENT_DELETE : Theme.TEXT_DARK);
+                }
+                return cell;
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(BorderFactory.createCompoundBorder(Theme.padding(0, 20, 0, 20), scrollPane.getBorder()));
+
+        JButton closeButton = Theme.button("Close", Theme.PRIMARY_LIGHT, Theme.TEXT_WHITE, Theme.padding(10, 25, 10, 25));
+        closeButton.addActionListener(e -> dispose());
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        buttonPanel.setBackground(Theme.BACKGROUND);
+        buttonPanel.setBorder(Theme.padding(0, 0, 10, 0));
+        buttonPanel.add(closeButton);
+
+        add(headerLabel, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
+        add(buttonPanel, BorderLayout.SOUTH);
+        Metrics.DIALOG_CONSTRUCTION.record(System.nanoTime() - constructionStart);
+    }
+
+    private static final class StatisticsTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"#", "Question", "Attempts", "Correct", "Discrimination", "Options chosen"};
+
+        private final List<Question> questions;
+        private final List<ItemStatistics.QuestionStats> stats;
+
+        StatisticsTableModel(List<Question> questions, List<ItemStatistics.QuestionStats> stats) {
+            this.questions = questions;
+            this.stats = stats;
+        }
+
+        @Override
+        public int getRowCount() {
+            return questions.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            ItemStatistics.QuestionStats questionStats = row < stats.size() ? stats.get(row) : null;
+            switch (column) {
+                case 0: return row + 1;
+                case 1: return questions.get(row).getQuestionText();
+                case 2: return questionStats != null ? questionStats.getAttemptCount() : 0;
+                case 3: return questionStats == null || Double.isNaN(questionStats.getDifficulty())
+                    ? "-" : String.format("%.0f%%", questionStats.getDifficulty() * 100);
+                case 4: return questionStats == null || Double.isNaN(questionStats.getDiscrimination())
+                    ? "-" : String.format("%.2f", questionStats.getDiscrimination());
+                default: return questionStats != null ? optionsText(questionStats, questions.get(row)) : "";
+            }
+        }
+
+        // "A 40%  B 35%* ..." with the correct option starred
+        private static String optionsText(ItemStatistics.QuestionStats questionStats, Question question) {
+            long total = Math.max(1, questionStats.getAttemptCount());
+            StringBuilder text = new StringBuilder();
+            for (int option = 0; option < questionStats.getOptionCount(); option++) {
+                text.append((char) ('A' + option)).append(' ')
+                    .append(Math.round(questionStats.getOptionCount(option) * 100.0 / total)).append('%');
+                text.append(option == question.getCorrectAnswerIndex() ? "*  " : "  ");
+            }
+            if (questionStats.getSkippedCount() > 0) {
+                text.append("skipped ").append(Math.round(questionStats.getSkippedCount() * 100.0 / total)).append('%');
+            }
+            return text.toString().trim();
+        }
+    }
+}
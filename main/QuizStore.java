@@ -0,0 +1,293 @@
+package main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * QuizStore: keeps the quiz catalog on disk so it survives a restart.
+ *
+ * Every change (a saved quiz, a deleted quiz) is appended to "quizzes.log".
+ * Once the log gets big, the whole catalog is written to a new question bank
+ * ("quizzes-N.bank", see QuestionBankFile) and the log is emptied. On startup
+ * only the headers of the newest bank are read, then the log is replayed on
+ * top of them; questions are loaded when a quiz is opened. Replaying is safe
+ * to repeat: a saved quiz simply replaces the one with the same id, so a
+ * crash in the middle of writing a bank never loses anything.
+ *
+ * Older versions kept a "quizzes.snapshot" instead; it is still read if no
+ * bank exists and is removed after the first bank is written.
+ */
+public class QuizStore implements Closeable {
+
+    // Record types in the log (and in the old snapshot file)
+    private static final byte PUT_QUIZ = 1;
+    private static final byte DELETE_QUIZ = 2;
+    private static final byte QUIZ_SETTINGS = 3; // id, questions per attempt, flags (1 = shuffle options, 2 = adaptive), time limits
+
+    // Write a new bank once the log is bigger than this
+    private static final long COMPACT_LOG_BYTES = 8L * 1024 * 1024;
+
+    private static final String BANK_PREFIX = "quizzes-";
+    private static final String BANK_SUFFIX = ".bank";
+
+    private final Path directory;
+    private final Path snapshotFile; // Old format, only read
+    private final AppendLog log;
+    private final boolean isNew;
+
+    // Banks that quizzes may still load their questions from (closed with the store)
+    private final List<QuestionBankFile> openBanks = new ArrayList<>();
+    private long bankGeneration = 0;
+
+    // The catalog as the log describes it, in the order quizzes were first saved (guarded by 'this')
+    private final Map<Integer, Quiz> liveQuizes = new LinkedHashMap<>();
+
+    // Where the quizzes are kept: -Dquizapp.dataDir=... or ~/.quizapp
+    public static Path defaultDirectory() {
+        String directory = System.getProperty("quizapp.dataDir");
+        if (directory != null) {
+            return Paths.get(directory);
+        }
+        return Paths.get(System.getProperty("user.home"), ".quizapp");
+    }
+
+    public QuizStore(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.snapshotFile = directory.resolve("quizzes.snapshot");
+        Path logFile = directory.resolve("quizzes.log");
+        this.isNew = listBankGenerations().isEmpty() && !Files.exists(snapshotFile)
+                     && (!Files.exists(logFile) || Files.size(logFile) == 0);
+        this.log = new AppendLog(logFile, "quiz-store-writer", true, this::compactIfNeeded);
+    }
+
+    // True if nothing was ever saved in this directory
+    public boolean isNew() {
+        return isNew;
+    }
+
+    /**
+     * Reads the newest bank (headers only) and then the log, and returns the saved
+     * quizzes in order. Call this once, before saving anything.
+     */
+    public synchronized List<Quiz> recover() throws IOException {
+        liveQuizes.clear();
+        List<Long> generations = listBankGenerations();
+        if (!generations.isEmpty()) {
+            bankGeneration = generations.get(generations.size() - 1);
+            List<Quiz> banked = new ArrayList<>();
+            openBanks.add(QuestionBankFile.open(bankFile(bankGeneration), banked));
+            for (Quiz quiz : banked) {
+                liveQuizes.put(quiz.getQuizId(), quiz);
+            }
+            deleteOldFiles(); // Left over if the last run could not delete them
+        } else if (Files.exists(snapshotFile)) {
+            try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+                AppendLog.readRecords(channel, channel.size(), this::applyRecord);
+            }
+        }
+        log.replay(this::applyRecord);
+        return new ArrayList<>(liveQuizes.values());
+    }
+
+    // Saves a new or changed quiz. The future completes when it is safely on disk.
+    public synchronized CompletableFuture<Void> saveQuiz(Quiz quiz) {
+        liveQuizes.put(quiz.getQuizId(), quiz);
+        CompletableFuture<Void> saved = log.append(PUT_QUIZ, encodeQuiz(quiz));
+        return quiz.hasAttemptSettings() ? saveSettings(quiz) : saved;
+    }
+
+    // Saves only the attempt settings of a quiz, without writing its questions again
+    public synchronized CompletableFuture<Void> saveSettings(Quiz quiz) {
+        ByteBuffer settings = ByteBuffer.allocate(17)
+            .putInt(quiz.getQuizId())
+            .putInt(quiz.getQuestionsPerAttempt())
+            .put((byte) ((quiz.isShuffleOptions() ? 1 : 0) | (quiz.isAdaptive() ? 2 : 0)))
+            .putInt(quiz.getTimeLimitSeconds())
+            .putInt(quiz.getSecondsPerQuestion());
+        return log.append(QUIZ_SETTINGS, settings.array());
+    }
+
+    public synchronized CompletableFuture<Void> deleteQuiz(int quizId) {
+        liveQuizes.remove(quizId);
+        return log.append(DELETE_QUIZ, ByteBuffer.allocate(4).putInt(quizId).array());
+    }
+
+    // Writes everything that is still queued and closes the files
+    @Override
+    public void close() throws IOException {
+        log.close();
+        synchronized (this) {
+            for (QuestionBankFile bank : openBanks) {
+                bank.close();
+            }
+            openBanks.clear();
+        }
+    }
+
+    private void applyRecord(byte type, ByteBuffer payload) {
+        if (type == PUT_QUIZ) {
+            Quiz quiz = decodeQuiz(payload);
+            liveQuizes.put(quiz.getQuizId(), quiz);
+        } else if (type == DELETE_QUIZ) {
+            liveQuizes.remove(payload.getInt());
+        } else if (type == QUIZ_SETTINGS) {
+            Quiz quiz = liveQuizes.get(payload.getInt());
+            if (quiz != null) {
+                int questionsPerAttempt = payload.getInt();
+                byte flags = payload.get();
+                quiz.setAttemptSettings(questionsPerAttempt, (flags & 1) != 0, (flags & 2) != 0);
+                if (payload.remaining() >= 8) { // Older records end here
+                    quiz.setTimeLimits(payload.getInt(), payload.getInt());
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs on the log's writer thread after every group of writes. When the log is
+     * big enough, the catalog is written to a new bank and the log is emptied.
+     * Changes that come in meanwhile just wait in the log's queue.
+     */
+    private void compactIfNeeded(AppendLog appendLog) throws IOException {
+        if (appendLog.size() < COMPACT_LOG_BYTES) {
+            return;
+        }
+        List<Quiz> quizesToSave;
+        long generation;
+        synchronized (this) {
+            quizesToSave = new ArrayList<>(liveQuizes.values());
+            generation = bankGeneration + 1;
+        }
+
+        // Write under a temporary name, so a half-written bank is never picked up.
+        Path newBank = bankFile(generation);
+        Path temporaryFile = newBank.resolveSibling(newBank.getFileName() + ".tmp");
+        Files.deleteIfExists(temporaryFile);
+        QuestionBankFile.write(temporaryFile, quizesToSave);
+        Files.move(temporaryFile, newBank, StandardCopyOption.ATOMIC_MOVE);
+        appendLog.truncate();
+
+        synchronized (this) {
+            bankGeneration = generation;
+        }
+        deleteOldFiles();
+    }
+
+    private Path bankFile(long generation) {
+        return directory.resolve(String.format("%s%06d%s", BANK_PREFIX, generation, BANK_SUFFIX));
+    }
+
+    // Generations of the complete bank files in the directory, oldest first
+    private List<Long> listBankGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, BANK_PREFIX + "*" + BANK_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring(BANK_PREFIX.length(), name.length() - BANK_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        generations.sort(null);
+        return generations;
+    }
+
+    // Removes banks older than the current one and the old snapshot file.
+    // Quizzes may still read from an old bank; where the OS refuses to delete
+    // an open file, it is simply tried again on the next start.
+    private void deleteOldFiles() throws IOException {
+        long current;
+        synchronized (this) {
+            current = bankGeneration;
+        }
+        for (long generation : listBankGenerations()) {
+            if (generation < current) {
+                deleteQuietly(bankFile(generation));
+            }
+        }
+        deleteQuietly(snapshotFile);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Still in use, try again later
+        }
+    }
+
+    // --- Binary format of one quiz: id, name, questions (text, options, correct index) ---
+
+    static byte[] encodeQuiz(Quiz quiz) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(quiz.getQuizId());
+            writeString(out, quiz.getQuizName());
+            List<Question> questions = quiz.getQuestions();
+            out.writeInt(questions.size());
+            for (Question question : questions) {
+                writeString(out, question.getQuestionText());
+                List<String> options = question.getOptions();
+                out.writeInt(options.size());
+                for (String option : options) {
+                    writeString(out, option);
+                }
+                out.writeInt(question.getCorrectAnswerIndex());
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Can't happen when writing to memory
+        }
+    }
+
+    static Quiz decodeQuiz(ByteBuffer in) {
+        int quizId = in.getInt();
+        String quizName = readString(in);
+        int questionCount = in.getInt();
+        List<Question> questions = new ArrayList<>(questionCount);
+        for (int i = 0; i < questionCount; i++) {
+            String questionText = readString(in);
+            int optionCount = in.getInt();
+            List<String> options = new ArrayList<>(optionCount);
+            for (int j = 0; j < optionCount; j++) {
+                options.add(readString(in));
+            }
+            questions.add(new Question(questionText, options, in.getInt()));
+        }
+        return new Quiz(quizName, quizId, questions);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -1,92 +1,109 @@
 package main;
 
 import javax.swing.*;
-import javax.swing.border.EmptyBorder;
-import javax.swing.border.LineBorder;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.Arrays;
-import java.util.List;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class QuizTakingDialog extends JDialog {
     private Quiz quiz;
-    private List<Question> questions;
+    private AttemptStore attemptStore; // Where the finished attempt is recorded
+    private AttemptJournal journal; // Every pick and move, so the attempt can be resumed after a crash
+    private long journalId;
+    private ItemStatistics itemStatistics; // For the statistics button of the result dialog
+    private Leaderboard leaderboard; // For the rank shown in the result dialog
+    private QuestionDraw draw; // The questions of this attempt and how their options are ordered
+    private AdaptiveTest adaptiveTest; // Picks the questions one by one for adaptive quizzes (null otherwise)
     private int currentQuestionIndex;
+    // Picked position on screen per question of the draw. Adaptive: per question asked,
+    // the option itself once answered (the draw then only holds the question on screen)
     private int[] userAnswers;
 
+    // Time limits run on the shared TimerWheel. When the attempt's time is up, the wheel's
+    // thread ends it and takes its answers (see finish()), so they are kept under answersLock
+    // and each pick is saved right away. Grading itself runs on the TaskPipeline.
+    private final Object answersLock = new Object();
+    private final AtomicBoolean finished = new AtomicBoolean(); // Submitted, timed out or closed
+    private volatile int attemptNumber; // Counts the attempts this dialog was bound to
+    private boolean grading; // Submitted and being graded in the background (EDT only)
+    private volatile long attemptDeadline;  // System.nanoTime() when time is up, 0 = no limit
+    private volatile long questionDeadline; // Same for the question on screen
+    private volatile TimerWheel.Timeout attemptTimeout, questionTimeout, countdownTimeout;
+    private JLabel timeLeftLabel;
+
     private JLabel questionNumberLabel;
     private JTextArea questionTextDisplay;
     private JRadioButton[] optionRadioButtons;
     private ButtonGroup optionsGroup;
     private JButton prevButton, nextButton, submitButton;
-    private Color primaryColor, textColorWhite, bgColor, textColorDark, borderColor;
-
-    public QuizTakingDialog(Frame owner, String title, Quiz quizToTake,
-                            Color primary, Color textWhite, Color bg, Color textDark, Color border) {
-        super(owner, title, true);
-        this.quiz = quizToTake;
-        this.questions = quiz.getQuestions();
-        this.userAnswers = new int[questions.size()];
-        Arrays.fill(userAnswers, -1);
-        this.primaryColor = primary;
-        this.textColorWhite = textWhite;
-        this.bgColor = bg;
-        this.textColorDark = textDark;
-        this.borderColor = border;
-
-        if (questions.isEmpty()) {
-            SwingUtilities.invokeLater(() -> {
-                showStyledErrorDialog("This quiz has no questions!", "Error");
-                dispose();
-            });
-            return;
-        }
-        currentQuestionIndex = 0;
 
+    /**
+     * Builds the dialog without an attempt; bind() starts one. Dialogs are kept and
+     * reused for attempt after attempt (see DialogPool), so closing only hides them.
+     */
+    public QuizTakingDialog(Frame owner) {
+        super(owner, "", true);
+        long constructionStart = System.nanoTime();
         setSize(700, 550);
-        setLocationRelativeTo(owner);
-        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
-        getContentPane().setBackground(bgColor);
+        setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                if (!grading) { // The result is on its way
+                    close(); // Kept for the next attempt; the journal keeps this one to resume
+                }
+            }
+        });
+        getContentPane().setBackground(Theme.BACKGROUND);
         setLayout(new BorderLayout(10, 10));
-        ((JPanel)getContentPane()).setBorder(new EmptyBorder(20,20,20,20));
+        ((JPanel)getContentPane()).setBorder(Theme.padding(20, 20, 20, 20));
 
         JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
-        topPanel.setBackground(bgColor);
+        topPanel.setBackground(Theme.BACKGROUND);
         questionNumberLabel = new JLabel();
-        questionNumberLabel.setFont(new Font("Segoe UI Semibold", Font.BOLD, 18));
-        questionNumberLabel.setForeground(textColorDark);
+        questionNumberLabel.setFont(Theme.TITLE);
+        questionNumberLabel.setForeground(Theme.TEXT_DARK);
         topPanel.add(questionNumberLabel);
+        timeLeftLabel = new JLabel(); // Only shown for timed quizzes
+        timeLeftLabel.setFont(Theme.BODY);
+        timeLeftLabel.setForeground(Theme.PRIMARY_LIGHT);
+        timeLeftLabel.setBorder(Theme.padding(0, 20, 0, 0));
+        topPanel.add(timeLeftLabel);
         add(topPanel, BorderLayout.NORTH);
 
         JPanel centerPanel = new JPanel();
         centerPanel.setLayout(new BoxLayout(centerPanel, BoxLayout.Y_AXIS));
-        centerPanel.setBackground(bgColor);
+        centerPanel.setBackground(Theme.BACKGROUND);
 
         questionTextDisplay = new JTextArea(6, 30);
         questionTextDisplay.setWrapStyleWord(true);
         questionTextDisplay.setLineWrap(true);
         questionTextDisplay.setEditable(false);
-        questionTextDisplay.setFont(new Font("Segoe UI", Font.PLAIN, 16));
-        questionTextDisplay.setForeground(textColorDark);
-        questionTextDisplay.setBackground(bgColor);
-        questionTextDisplay.setBorder(BorderFactory.createCompoundBorder(
-            new LineBorder(borderColor, 1, true),
-            new EmptyBorder(10,10,10,10)
-        ));
+        questionTextDisplay.setFont(Theme.BODY_LARGE);
+        questionTextDisplay.setForeground(Theme.TEXT_DARK);
+        questionTextDisplay.setBackground(Theme.BACKGROUND);
+        questionTextDisplay.setBorder(Theme.outlined(10, 10, 10, 10));
         JScrollPane questionScrollPane = new JScrollPane(questionTextDisplay);
         questionScrollPane.setBorder(BorderFactory.createEmptyBorder());
         centerPanel.add(questionScrollPane);
         centerPanel.add(Box.createRigidArea(new Dimension(0, 20)));
 
         optionsGroup = new ButtonGroup();
-        optionRadioButtons = new JRadioButton[4];
+        optionRadioButtons = new JRadioButton[QuestionValidator.MAX_OPTIONS];
         JPanel optionsPanel = new JPanel(new GridLayout(0, 1, 0, 10));
-        optionsPanel.setBackground(bgColor);
-        for (int i = 0; i < 4; i++) {
+        optionsPanel.setBackground(Theme.BACKGROUND);
+        for (int i = 0; i < optionRadioButtons.length; i++) {
             optionRadioButtons[i] = new JRadioButton();
-            optionRadioButtons[i].setFont(new Font("Segoe UI", Font.PLAIN, 14));
-            optionRadioButtons[i].setBackground(bgColor);
-            optionRadioButtons[i].setForeground(textColorDark);
-            optionRadioButtons[i].setCursor(new Cursor(Cursor.HAND_CURSOR));
+            optionRadioButtons[i].setFont(Theme.BODY);
+            optionRadioButtons[i].setBackground(Theme.BACKGROUND);
+            optionRadioButtons[i].setForeground(Theme.TEXT_DARK);
+            optionRadioButtons[i].setCursor(Theme.HAND_CURSOR);
+            optionRadioButtons[i].addActionListener(e -> saveCurrentAnswer());
             optionsGroup.add(optionRadioButtons[i]);
             optionsPanel.add(optionRadioButtons[i]);
         }
@@ -94,7 +111,7 @@ public class QuizTakingDialog extends JDialog {
         add(centerPanel, BorderLayout.CENTER);
 
         JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 0));
-        bottomPanel.setBackground(bgColor);
+        bottomPanel.setBackground(Theme.BACKGROUND);
         prevButton = createStyledNavButton("Previous");
         prevButton.addActionListener(e -> navigate(-1));
 
@@ -102,56 +119,190 @@ public class QuizTakingDialog extends JDialog {
         nextButton.addActionListener(e -> navigate(1));
         
         submitButton = createStyledNavButton("Submit Quiz");
-        submitButton.setBackground(new Color(39, 174, 96)); 
+        submitButton.setBackground(Theme.ACCENT_ADD);
         submitButton.addActionListener(e -> submitQuiz());
 
         bottomPanel.add(prevButton);
         bottomPanel.add(nextButton);
         bottomPanel.add(submitButton);
         add(bottomPanel, BorderLayout.SOUTH);
+        Metrics.DIALOG_CONSTRUCTION.record(System.nanoTime() - constructionStart);
+    }
 
+    /**
+     * Starts an attempt of 'quizToTake'; 'resumeFrom' is an unfinished attempt of it to go on
+     * with (see AttemptJournal), or null for a new one. Call on the EDT, then setVisible(true).
+     * False (after telling the user) if there is nothing to ask.
+     */
+    public boolean bind(Quiz quizToTake, AttemptStore attemptStore, AttemptJournal journal,
+                        AttemptJournal.InProgress resumeFrom, ItemStatistics itemStatistics, Leaderboard leaderboard) {
+        attemptNumber++; // Deadlines of the attempt before no longer apply
+        // The same seed draws the same questions in the same order again
+        long seed = resumeFrom != null ? resumeFrom.getSeed() : ThreadLocalRandom.current().nextLong();
+        AdaptiveTest newAdaptiveTest = quizToTake.isAdaptive() ? AdaptiveTest.of(quizToTake, itemStatistics, seed) : null;
+        QuestionDraw newDraw = newAdaptiveTest == null ? QuestionDraw.of(quizToTake, seed) : null;
+        int questionCount = newAdaptiveTest != null
+            ? (newAdaptiveTest.isFinished() ? 0 : newAdaptiveTest.getMaxQuestions()) : newDraw.size();
+        if (questionCount == 0) {
+            showStyledErrorDialog("This quiz has no questions!", "Error");
+            return false;
+        }
+        // Under the lock: a deadline of the attempt before may be grading right now
+        synchronized (answersLock) {
+            this.quiz = quizToTake;
+            this.attemptStore = attemptStore;
+            this.journal = journal;
+            this.itemStatistics = itemStatistics;
+            this.leaderboard = leaderboard;
+            this.adaptiveTest = newAdaptiveTest;
+            this.draw = newDraw;
+            if (userAnswers == null || userAnswers.length != questionCount) {
+                userAnswers = new int[questionCount];
+            }
+            Arrays.fill(userAnswers, QuizGrader.NO_ANSWER);
+            currentQuestionIndex = 0;
+            if (resumeFrom != null) {
+                resume(resumeFrom);
+            }
+        }
+        setTitle("Taking: " + quiz.getQuizName());
+        setLocationRelativeTo(getOwner());
+        timeLeftLabel.setText("");
+        timeLeftLabel.setVisible(quiz.isTimed());
+        finished.set(false);
+        attemptDeadline = 0;
+        questionDeadline = 0;
+        attemptTimeout = questionTimeout = countdownTimeout = null;
+        setNavigationEnabled(true); // loadQuestion() narrows it down
+
+        // A resumed attempt keeps the deadline it started with, so the time away counts
+        long deadlineMillis = 0;
+        if (quiz.getTimeLimitSeconds() > 0) {
+            deadlineMillis = resumeFrom != null && resumeFrom.getDeadlineMillis() != 0 ? resumeFrom.getDeadlineMillis()
+                : System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(quiz.getTimeLimitSeconds());
+        }
+        // In the journal before the deadline is armed: one already past fires right away
+        journalId = resumeFrom != null ? resumeFrom.getId()
+            : journal.begin(AttemptStore.currentUser(), quiz, seed, deadlineMillis);
+        if (deadlineMillis != 0) {
+            long millisLeft = Math.max(0, deadlineMillis - System.currentTimeMillis());
+            attemptDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millisLeft);
+            attemptTimeout = TimerWheel.shared().schedule(timeUpTask(), millisLeft, TimeUnit.MILLISECONDS);
+        }
+
+        if (adaptiveTest != null && adaptiveTest.nextQuestion() < 0) {
+            // Left right after the last answer: nothing more to ask
+            SwingUtilities.invokeLater(forThisAttempt(this::submitQuiz));
+            return true;
+        }
         loadQuestion(currentQuestionIndex);
+        if (quiz.isTimed()) {
+            refreshTimeLeft();
+        }
+        return true;
     }
-    
+
+    // 'task', unless this dialog has gone on to another attempt by the time it runs
+    private Runnable forThisAttempt(Runnable task) {
+        int attempt = attemptNumber;
+        return () -> {
+            if (attemptNumber == attempt) {
+                task.run();
+            }
+        };
+    }
+
+    // Puts back the picks of an unfinished attempt and goes to where it was left
+    private void resume(AttemptJournal.InProgress resumeFrom) {
+        int[] answers = resumeFrom.getAnswers();
+        if (adaptiveTest != null) {
+            // Replayed in order, so the ability estimate is where it was
+            int[] asked = resumeFrom.getAskedQuestions();
+            for (int i = 0; i < asked.length && i < userAnswers.length && !adaptiveTest.isFinished(); i++) {
+                userAnswers[i] = answers[i];
+                adaptiveTest.replay(asked[i], QuizGrader.isCorrect(answers[i], quiz.getQuestions().get(asked[i]).getCorrectAnswerIndex()));
+            }
+            currentQuestionIndex = adaptiveTest.getAskedCount();
+            return;
+        }
+        System.arraycopy(answers, 0, userAnswers, 0, Math.min(answers.length, userAnswers.length));
+        currentQuestionIndex = Math.max(0, Math.min(resumeFrom.getCurrentQuestionIndex(), userAnswers.length - 1));
+    }
+
     private JButton createStyledNavButton(String text) {
-        JButton button = new JButton(text);
-        button.setFont(new Font("Segoe UI Semibold", Font.PLAIN, 13));
-        button.setBackground(primaryColor);
-        button.setForeground(textColorWhite);
-        button.setFocusPainted(false);
-        button.setBorder(new EmptyBorder(10, 22, 10, 22));
-        button.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        return button;
+        return Theme.button(text, Theme.PRIMARY_LIGHT, Theme.TEXT_WHITE, Theme.padding(10, 22, 10, 22));
     }
 
     private void loadQuestion(int index) {
-        Question q = questions.get(index);
-        questionNumberLabel.setText("Question " + (index + 1) + " of " + questions.size());
+        if (adaptiveTest != null) {
+            loadAdaptiveQuestion(index);
+            return;
+        }
+        questionNumberLabel.setText("Question " + (index + 1) + " of " + draw.size());
+        showQuestion(index, userAnswers[index]);
+
+        prevButton.setEnabled(index > 0);
+        prevButton.setVisible(quiz.getSecondsPerQuestion() == 0); // Going back would restart the question's clock
+        nextButton.setEnabled(index < draw.size() - 1);
+        submitButton.setVisible(index == draw.size() - 1);
+        armQuestionDeadline(index, index == draw.size() - 1);
+        journal.moveTo(journalId, index);
+    }
+
+    // The question the adaptive test picked; there is no going back, and it ends by itself
+    private void loadAdaptiveQuestion(int index) {
+        Question q = quiz.getQuestions().get(adaptiveTest.nextQuestion());
+        synchronized (answersLock) {
+            draw = QuestionDraw.of(Collections.singletonList(q), 0, quiz.isShuffleOptions(), ThreadLocalRandom.current().nextLong());
+        }
+        questionNumberLabel.setText("Question " + (index + 1) + " (adaptive)");
+        showQuestion(0, userAnswers[index]);
+
+        prevButton.setVisible(false);
+        nextButton.setEnabled(true);
+        submitButton.setVisible(false);
+        armQuestionDeadline(index, false);
+    }
+
+    // Back, next and submit all at once (off while the attempt is being graded)
+    private void setNavigationEnabled(boolean enabled) {
+        prevButton.setEnabled(enabled);
+        nextButton.setEnabled(enabled);
+        submitButton.setEnabled(enabled);
+    }
+
+    // Shows question 'drawIndex' of the draw with the option at position 'selected' picked
+    private void showQuestion(int drawIndex, int selected) {
+        Question q = draw.getQuestion(drawIndex);
         questionTextDisplay.setText(q.getQuestionText());
 
-        List<String> options = q.getOptions();
+        int optionCount = q.getOptions().size();
         optionsGroup.clearSelection();
         for (int i = 0; i < optionRadioButtons.length; i++) {
-            if (i < options.size()) {
-                optionRadioButtons[i].setText(options.get(i));
+            if (i < optionCount) {
+                optionRadioButtons[i].setText(draw.getOption(drawIndex, i));
                 optionRadioButtons[i].setVisible(true);
-                if (userAnswers[index] == i) {
+                if (selected == i) {
                     optionRadioButtons[i].setSelected(true);
                 }
             } else {
                 optionRadioButtons[i].setVisible(false);
             }
         }
-
-        prevButton.setEnabled(index > 0);
-        nextButton.setEnabled(index < questions.size() - 1);
-        submitButton.setVisible(index == questions.size() - 1);
     }
 
     private void saveCurrentAnswer() {
         for (int i = 0; i < optionRadioButtons.length; i++) {
             if (optionRadioButtons[i].isSelected()) {
-                userAnswers[currentQuestionIndex] = i;
+                boolean changed;
+                synchronized (answersLock) {
+                    changed = userAnswers[currentQuestionIndex] != i;
+                    userAnswers[currentQuestionIndex] = i;
+                }
+                // Adaptive picks are journaled once graded, by the option itself (see answerAdaptiveQuestion)
+                if (changed && adaptiveTest == null) {
+                    journal.answer(journalId, currentQuestionIndex, i);
+                }
                 return;
             }
         }
@@ -159,28 +310,246 @@ public class QuizTakingDialog extends JDialog {
 
     private void navigate(int direction) {
         saveCurrentAnswer();
+        if (adaptiveTest != null) {
+            answerAdaptiveQuestion();
+            return;
+        }
         currentQuestionIndex += direction;
         loadQuestion(currentQuestionIndex);
     }
 
+    // Grades the adaptive question on screen, then shows the next one or ends the attempt
+    private void answerAdaptiveQuestion() {
+        boolean over;
+        synchronized (answersLock) {
+            int shown = userAnswers[currentQuestionIndex];
+            int answer = shown >= 0 ? draw.toOriginalOption(0, shown) : QuizGrader.NO_ANSWER;
+            userAnswers[currentQuestionIndex] = answer;
+            int questionIndex = adaptiveTest.nextQuestion(); // The one on screen, until answered
+            adaptiveTest.answer(QuizGrader.isCorrect(answer, draw.getQuestion(0).getCorrectAnswerIndex()));
+            journal.adaptiveAnswer(journalId, questionIndex, answer);
+            over = adaptiveTest.nextQuestion() < 0;
+        }
+        if (over) {
+            submitQuiz();
+            return;
+        }
+        currentQuestionIndex++;
+        loadQuestion(currentQuestionIndex);
+    }
+
     private void submitQuiz() {
-        saveCurrentAnswer();
+        if (adaptiveTest == null) {
+            saveCurrentAnswer();
+        }
+        AnswerSheet sheet = finish(attemptNumber);
+        if (sheet == null) {
+            return; // Time ran out just now; the timer is grading it
+        }
+        cancelDeadlines();
+        grading = true;
+        setNavigationEnabled(false);
+        grade(sheet, "Quiz Result");
+    }
+
+    // The task the attempt's deadline runs (on the timer's thread)
+    private Runnable timeUpTask() {
+        int attempt = attemptNumber;
+        return () -> timeUp(attempt);
+    }
+
+    // On the timer's thread: the attempt's time is up, so it is graded as it stands. The timer
+    // only ends it here; grading and recording (with every store listener) go to the pipeline.
+    private void timeUp(int attempt) {
+        AnswerSheet sheet = finish(attempt);
+        if (sheet == null) {
+            return;
+        }
+        cancelDeadlines();
+        grade(sheet, "Time's Up");
+    }
+
+    /**
+     * Ends attempt number 'attempt' and takes its answers, in one step under the lock, so
+     * neither close() nor the next bind() can pull the draw away from under the grading.
+     * Null if it was over already (submitted, timed out, closed) or is not the current one.
+     */
+    private AnswerSheet finish(int attempt) {
+        synchronized (answersLock) {
+            if (attemptNumber != attempt || (draw == null && adaptiveTest == null) || !finished.compareAndSet(false, true)) {
+                return null;
+            }
+            return new AnswerSheet(attempt, quiz, attemptStore, journal, journalId, draw, adaptiveTest, userAnswers);
+        }
+    }
+
+    // Grades and records 'sheet' off the EDT and the timer, then shows the result
+    private void grade(AnswerSheet sheet, String title) {
+        TaskPipeline.shared().submit(new TaskPipeline.Task<Attempt, Void>() {
+            @Override
+            protected Attempt call() {
+                Attempt attempt = sheet.grade();
+                sheet.attemptStore.record(attempt);
+                sheet.journal.end(sheet.journalId);
+                return attempt;
+            }
+
+            @Override
+            protected void succeeded(Attempt attempt) {
+                grading = false;
+                if (attemptNumber == sheet.attemptNumber) { // Not if the dialog has gone on to another attempt
+                    showResult(attempt, title);
+                }
+            }
+
+            @Override
+            protected void failed(Throwable error) {
+                grading = false;
+                if (attemptNumber == sheet.attemptNumber) {
+                    showStyledErrorDialog("Could not grade the quiz:\n" + error.getMessage(), "Grading Error");
+                    close(); // Still in the journal, so it can be resumed and submitted again
+                }
+            }
+        });
+    }
+
+    // What grading an attempt needs, taken from the dialog when it ends (see finish())
+    private static final class AnswerSheet {
+        final int attemptNumber;
+        final Quiz quiz;
+        final AttemptStore attemptStore;
+        final AttemptJournal journal;
+        final long journalId;
+        final QuestionDraw draw;   // Null for adaptive quizzes
+        final int[] answers;       // Positions on screen, or the options themselves when adaptive
+        final int[] asked;         // Adaptive only: the questions asked, in order
+        final double ability;
+        final double standardError;
+
+        AnswerSheet(int attemptNumber, Quiz quiz, AttemptStore attemptStore, AttemptJournal journal, long journalId,
+                    QuestionDraw draw, AdaptiveTest adaptiveTest, int[] userAnswers) {
+            this.attemptNumber = attemptNumber;
+            this.quiz = quiz;
+            this.attemptStore = attemptStore;
+            this.journal = journal;
+            this.journalId = journalId;
+            if (adaptiveTest != null) {
+                this.draw = null;
+                this.asked = adaptiveTest.getAskedQuestions();
+                this.answers = Arrays.copyOf(userAnswers, asked.length);
+                this.ability = adaptiveTest.getAbility();
+                this.standardError = adaptiveTest.getStandardError();
+            } else {
+                this.draw = draw;
+                this.asked = null;
+                this.answers = userAnswers.clone();
+                this.ability = 0;
+                this.standardError = 0;
+            }
+        }
 
-        int score = 0;
-        for (int i = 0; i < questions.size(); i++) {
-            if (userAnswers[i] == questions.get(i).getCorrectAnswerIndex()) {
-                score++;
+        // The attempt as answered (any thread); the time it takes goes to Metrics.GRADING
+        Attempt grade() {
+            long start = System.nanoTime();
+            try {
+                if (asked != null) {
+                    // Answered one by one already; the score is only what was asked
+                    int score = 0;
+                    for (int i = 0; i < asked.length; i++) {
+                        if (QuizGrader.isCorrect(answers[i], quiz.getQuestions().get(asked[i]).getCorrectAnswerIndex())) {
+                            score++;
+                        }
+                    }
+                    return new Attempt(AttemptStore.currentUser(), quiz.getQuizId(), asked, answers, score,
+                        ability, standardError, System.currentTimeMillis());
+                }
+                // Graded and recorded by the options' own numbers, not where they were on screen
+                int[] originalAnswers = draw.toOriginalAnswers(answers);
+                int score = draw.score(originalAnswers);
+                return new Attempt(AttemptStore.currentUser(), quiz.getQuizId(), draw.getQuestionIndexes(),
+                    originalAnswers, score, System.currentTimeMillis());
+            } finally {
+                Metrics.GRADING.record(System.nanoTime() - start);
             }
         }
-        quiz.setUserScore(score);
-        quiz.setTaken(true);
+    }
 
-        QuizResultDialog resultDialog = new QuizResultDialog((Frame) getOwner(), "Quiz Result", quiz, score, primaryColor, textColorWhite, bgColor, textColorDark);
+    private void showResult(Attempt attempt, String title) {
+        QuizResultDialog resultDialog = DialogPool.forOwner((JFrame) getOwner()).resultDialog();
+        resultDialog.bind(title, quiz, attempt, itemStatistics, leaderboard);
         resultDialog.setVisible(true);
-        dispose();
+        close();
+    }
+
+    // --- Time limits ---
+
+    // Gives question 'index' its own time; on the last one running out means the attempt is over
+    private void armQuestionDeadline(int index, boolean last) {
+        if (quiz.getSecondsPerQuestion() == 0) {
+            return;
+        }
+        if (questionTimeout != null) {
+            questionTimeout.cancel();
+        }
+        questionDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(quiz.getSecondsPerQuestion());
+        Runnable onTimeout = last ? timeUpTask() : forThisAttempt(() -> SwingUtilities.invokeLater(forThisAttempt(() -> {
+            if (!finished.get() && currentQuestionIndex == index) { // Not if the student moved on meanwhile
+                navigate(1);
+            }
+        })));
+        questionTimeout = TimerWheel.shared().schedule(onTimeout, quiz.getSecondsPerQuestion(), TimeUnit.SECONDS);
+    }
+
+    // Shows the time left, then again every second until the attempt is over (on the timer's thread)
+    private void refreshTimeLeft() {
+        if (finished.get()) {
+            return;
+        }
+        long now = System.nanoTime();
+        StringBuilder text = new StringBuilder();
+        if (attemptDeadline != 0) {
+            text.append("Time left ").append(formatTime(attemptDeadline - now));
+        }
+        if (questionDeadline != 0) {
+            text.append(text.length() > 0 ? "  \u00B7  " : "").append("this question ").append(formatTime(questionDeadline - now));
+        }
+        SwingUtilities.invokeLater(forThisAttempt(() -> timeLeftLabel.setText(text.toString())));
+        countdownTimeout = TimerWheel.shared().schedule(forThisAttempt(this::refreshTimeLeft), 1, TimeUnit.SECONDS);
+    }
+
+    // "m:ss", rounded up so 0:00 only shows when the time is up
+    private static String formatTime(long nanos) {
+        long seconds = Math.max(0, (TimeUnit.NANOSECONDS.toMillis(nanos) + 999) / 1000);
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    private void cancelDeadlines() {
+        for (TimerWheel.Timeout timeout : new TimerWheel.Timeout[] {attemptTimeout, questionTimeout, countdownTimeout}) {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+
+    // Hides the dialog until its next attempt; one closed without submitting can be resumed later
+    public void close() {
+        finished.set(true); // The deadlines have nothing left to do
+        cancelDeadlines();
+        synchronized (answersLock) {
+            draw = null; // Holds the quiz's questions, which QuizButton lets go of after the attempt
+            adaptiveTest = null;
+        }
+        setVisible(false);
+    }
+
+    @Override
+    public void dispose() {
+        finished.set(true);
+        cancelDeadlines();
+        super.dispose();
     }
     
     private void showStyledErrorDialog(String message, String title) {
         JOptionPane.showMessageDialog(this, message, title, JOptionPane.ERROR_MESSAGE);
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
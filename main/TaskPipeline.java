@@ -0,0 +1,221 @@
+package main;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * TaskPipeline: runs the app's slow work (loading the catalog, importing, grading,
+ * searching) on a few background threads and hands the results back to the EDT.
+ *
+ * A Task works like a SwingWorker: call() runs in the background and may publish()
+ * partial results and setProgress(); process(), progress() and then succeeded(),
+ * failed() or cancelled() run on the EDT. Whatever a task publishes while the EDT
+ * is busy is coalesced: there is never more than one pending hand-over per task,
+ * which delivers all the chunks published so far and only the latest progress. So a
+ * task that streams 100 000 quizzes costs the EDT a few big batches, not 100 000
+ * events.
+ *
+ * Tasks submitted under a key replace each other: the one before is cancelled, so
+ * only the latest search of the search box ever shows up.
+ */
+public final class TaskPipeline {
+
+    /**
+     * One piece of background work; T is its result, P what it publishes on the way.
+     * Cancelling is cooperative: call() should look at isCancelled() now and then.
+     * The thread is not interrupted, as that would close any FileChannel it is using
+     * (the quiz store's, for one).
+     */
+    public abstract static class Task<T, P> {
+        private volatile boolean cancelled;
+        private List<P> chunks = new ArrayList<>(); // Published, not yet processed (guarded by this)
+        private int percent = -1;                   // Latest progress not yet shown, -1 = none (guarded by this)
+        private String note;
+        private boolean handOverPending;            // An invokeLater is on its way (guarded by this)
+
+        // The work itself, in the background
+        protected abstract T call() throws Exception;
+
+        // --- From call() ---
+
+        // Hands 'chunk' to process() on the EDT, together with whatever else is waiting
+        protected final void publish(P chunk) {
+            synchronized (this) {
+                chunks.add(chunk);
+            }
+            scheduleHandOver();
+        }
+
+        // Shown by progress() on the EDT; only the latest call counts if the EDT is behind
+        protected final void setProgress(int percent, String note) {
+            synchronized (this) {
+                this.percent = Math.max(0, Math.min(100, percent));
+                this.note = note;
+            }
+            scheduleHandOver();
+        }
+
+        public final boolean isCancelled() {
+            return cancelled;
+        }
+
+        // Nothing but cancelled() reaches the EDT from now on (any thread)
+        public final void cancel() {
+            cancelled = true;
+        }
+
+        // --- On the EDT ---
+
+        protected void process(List<P> chunks) {
+        }
+
+        protected void progress(int percent, String note) {
+        }
+
+        protected void succeeded(T result) {
+        }
+
+        // Tasks whose failure the user has to see show it here; the rest only end up in the log
+        protected void failed(Throwable error) {
+            Metrics.log.log(Level.WARNING, "Background task failed", error);
+        }
+
+        protected void cancelled() {
+        }
+
+        // --- Running it ---
+
+        private void run() {
+            T result = null;
+            Throwable error = null;
+            try {
+                if (!cancelled) {
+                    result = call();
+                }
+            } catch (Throwable e) {
+                error = e;
+            }
+            T finalResult = result;
+            Throwable finalError = error;
+            // Queued after every earlier hand-over, so the chunks always come before the outcome
+            SwingUtilities.invokeLater(() -> {
+                handOver();
+                if (cancelled) {
+                    cancelled();
+                } else if (finalError != null) {
+                    failed(finalError);
+                } else {
+                    succeeded(finalResult);
+                }
+            });
+        }
+
+        private void scheduleHandOver() {
+            synchronized (this) {
+                if (handOverPending) {
+                    return; // The one on its way takes this along
+                }
+                handOverPending = true;
+            }
+            SwingUtilities.invokeLater(this::handOver);
+        }
+
+        private void handOver() {
+            List<P> ready;
+            int readyPercent;
+            String readyNote;
+            synchronized (this) {
+                handOverPending = false;
+                ready = chunks;
+                chunks = new ArrayList<>();
+                readyPercent = percent;
+                readyNote = note;
+                percent = -1;
+            }
+            if (cancelled) {
+                return;
+            }
+            if (!ready.isEmpty()) {
+                process(ready);
+            }
+            if (readyPercent >= 0) {
+                progress(readyPercent, readyNote);
+            }
+        }
+    }
+
+    private static final class Holder {
+        static final TaskPipeline SHARED = new TaskPipeline("background-task",
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    }
+
+    private final ExecutorService executor;
+    private final Map<String, Task<?, ?>> latestByKey = new ConcurrentHashMap<>();
+
+    public TaskPipeline(String threadName, int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, threadName + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    // The pipeline shared by the whole dashboard
+    public static TaskPipeline shared() {
+        return Holder.SHARED;
+    }
+
+    // Runs 'task' in the background; tasks start in the order they are submitted
+    public <T extends Task<?, ?>> T submit(T task) {
+        Task<?, ?> toRun = task;
+        executor.execute(toRun::run);
+        return task;
+    }
+
+    // Runs 'work' in the background with nothing to hand back to the EDT (so also without a UI)
+    public void execute(Runnable work) {
+        executor.execute(() -> {
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                Metrics.log.log(Level.WARNING, "Background task failed", e);
+            }
+        });
+    }
+
+    // Same as submit(task), but first cancels the last task submitted under 'key' if it is still going
+    public <T extends Task<?, ?>> T submit(String key, T task) {
+        Task<?, ?> toRun = task;
+        Task<?, ?> previous = latestByKey.put(key, toRun);
+        if (previous != null) {
+            previous.cancel();
+        }
+        executor.execute(() -> {
+            try {
+                toRun.run();
+            } finally {
+                latestByKey.remove(key, toRun);
+            }
+        });
+        return task;
+    }
+
+    // Cancels the last task submitted under 'key', if any
+    public void cancel(String key) {
+        Task<?, ?> task = latestByKey.remove(key);
+        if (task != null) {
+            task.cancel();
+        }
+    }
+}
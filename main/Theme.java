@@ -0,0 +1,92 @@
+package main;
+
+import javax.swing.*;
+import javax.swing.border.Border;
+import javax.swing.border.EmptyBorder;
+import javax.swing.border.LineBorder;
+import java.awt.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Theme: the colors, fonts, borders and cursor of the whole app, in one place.
+ *
+ * Every component used to get its colors passed in and make its own fonts and
+ * borders, so each card built for the dashboard meant a handful of new Font objects
+ * (and font lookups the first time each was measured). All of these are immutable
+ * and Swing lets components share them, so they are made once here: the common ones
+ * as constants, the rest through font(), padding() and outlined(), which hand out
+ * the same instance for the same arguments.
+ */
+public final class Theme {
+
+    // Made first: the constants below come from them
+    private static final Map<String, Font> fonts = new ConcurrentHashMap<>();
+    private static final Map<Long, Border> paddings = new ConcurrentHashMap<>();
+    private static final Map<Long, Border> outlines = new ConcurrentHashMap<>();
+
+    // --- Colors ---
+    public static final Color PRIMARY_DARK = new Color(25, 42, 86);    // Header, create-quiz buttons
+    public static final Color PRIMARY_LIGHT = new Color(60, 99, 130);  // Cards and everything opened from them
+    public static final Color BACKGROUND = new Color(245, 246, 250);
+    public static final Color TEXT_DARK = new Color(47, 54, 64);
+    public static final Color TEXT_MUTED = TEXT_DARK.darker();         // Secondary lines
+    public static final Color TEXT_WHITE = Color.WHITE;
+    public static final Color PLACEHOLDER = Color.GRAY;                // Hint text in empty fields
+    public static final Color ACCENT_DELETE = new Color(205, 97, 85);  // Also the warning color
+    public static final Color ACCENT_ADD = new Color(39, 174, 96);     // Save, add and submit
+    public static final Color BORDER = new Color(220, 221, 225);
+
+    // --- Fonts ---
+    public static final Font HERO = font("Segoe UI Semibold", Font.BOLD, 32);
+    public static final Font HEADING = font("Segoe UI Semibold", Font.BOLD, 20);
+    public static final Font TITLE = font("Segoe UI Semibold", Font.BOLD, 18);
+    public static final Font BUTTON = font("Segoe UI Semibold", Font.PLAIN, 13);
+    public static final Font TABLE_HEADER = font("Segoe UI Semibold", Font.BOLD, 13);
+    public static final Font SCORE = font("Segoe UI Black", Font.BOLD, 36);
+    public static final Font LABEL = font("Segoe UI", Font.BOLD, 14);
+    public static final Font BODY = font("Segoe UI", Font.PLAIN, 14);
+    public static final Font BODY_ITALIC = font("Segoe UI", Font.ITALIC, 14);
+    public static final Font BODY_SMALL = font("Segoe UI", Font.PLAIN, 13);
+    public static final Font BODY_LARGE = font("Segoe UI", Font.PLAIN, 16);
+    public static final Font SEARCH = font("Segoe UI", Font.PLAIN, 15);
+    public static final Font MONOSPACED = font(Font.MONOSPACED, Font.PLAIN, 12);
+
+    // --- Cursor ---
+    public static final Cursor HAND_CURSOR = Cursor.getPredefinedCursor(Cursor.HAND_CURSOR);
+
+    private Theme() {
+    }
+
+    // The shared font with this name, style and size
+    public static Font font(String name, int style, int size) {
+        return fonts.computeIfAbsent(name + '/' + style + '/' + size, key -> new Font(name, style, size));
+    }
+
+    // Empty space around a component (shared per size)
+    public static Border padding(int top, int left, int bottom, int right) {
+        return paddings.computeIfAbsent(key(top, left, bottom, right), key -> new EmptyBorder(top, left, bottom, right));
+    }
+
+    // The thin rounded outline of text fields and question boxes, with this much space inside
+    public static Border outlined(int top, int left, int bottom, int right) {
+        return outlines.computeIfAbsent(key(top, left, bottom, right), key ->
+            BorderFactory.createCompoundBorder(new LineBorder(BORDER, 1, true), padding(top, left, bottom, right)));
+    }
+
+    // A flat button in the app's style; 'padding' sets its size
+    public static JButton button(String text, Color background, Color foreground, Border padding) {
+        JButton button = new JButton(text);
+        button.setFont(BUTTON);
+        button.setBackground(background);
+        button.setForeground(foreground);
+        button.setFocusPainted(false);
+        button.setBorder(padding);
+        button.setCursor(HAND_CURSOR);
+        return button;
+    }
+
+    private static long key(int top, int left, int bottom, int right) {
+        return (long) (top & 0xFFFF) << 48 | (long) (left & 0xFFFF) << 32 | (long) (bottom & 0xFFFF) << 16 | (right & 0xFFFF);
+    }
+}
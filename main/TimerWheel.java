@@ -0,0 +1,258 @@
+package main;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+/**
+ * TimerWheel: deadlines for many sessions at once (quiz time limits, see
+ * QuizTakingDialog and QuizServer), all served by one thread.
+ *
+ * A hierarchical timing wheel: LEVELS wheels of SLOTS slots each. The first wheel
+ * has one slot per tick, the next one slot per SLOTS ticks, and so on, so four
+ * wheels of 64 slots cover two days at 10 ms ticks. A deadline goes into the slot
+ * of the coarsest wheel it fits; when a finer wheel comes round, the slot of the
+ * next coarser one is spread over it ("cascading"). Each slot is a doubly linked
+ * list of its timeouts, so arming and cancelling are O(1) whatever the number of
+ * pending deadlines, and a tick only looks at one slot.
+ *
+ * Expired tasks run on the wheel's thread, one after the other, so they must be
+ * short: end the session and hand grading and recording to the TaskPipeline. A task that throws doesn't stop
+ * the wheel. Deadlines are met to within about a tick.
+ */
+public final class TimerWheel implements Closeable {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_TICKS = 1L << (SLOT_BITS * LEVELS); // Further deadlines wait in the last wheel
+
+    public static final long DEFAULT_TICK_MILLIS = 10;
+
+    // A deadline that was armed; cancel() it when the session ends in time
+    public static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final TimerWheel wheel;
+        private final Runnable task;
+        private final long deadlineTick;
+        private int state = PENDING; // Guarded by the wheel
+        private int slot = -1;       // Level * SLOTS + slot while in a list
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(TimerWheel wheel, Runnable task, long deadlineTick) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Makes sure the task won't run. True if that is thanks to this call; false if
+         * it ran (or is running) already, or was cancelled before.
+         */
+        public boolean cancel() {
+            synchronized (wheel) {
+                if (state != PENDING) {
+                    return false;
+                }
+                state = CANCELLED;
+                wheel.unlink(this);
+                wheel.pending--;
+                return true;
+            }
+        }
+
+        public boolean isExpired() {
+            synchronized (wheel) {
+                return state == EXPIRED;
+            }
+        }
+    }
+
+    private static final class Holder {
+        static final TimerWheel SHARED = new TimerWheel("timer-wheel", DEFAULT_TICK_MILLIS);
+    }
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Timeout[] heads = new Timeout[LEVELS * SLOTS]; // Guarded by this
+    private long currentTick;  // First tick not processed yet (guarded by this)
+    private int pending;       // Armed and neither run nor cancelled (guarded by this)
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public TimerWheel(String threadName, long tickMillis) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        this.startNanos = System.nanoTime();
+        this.thread = new Thread(this::run, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // The wheel shared by every dialog and server session of this process
+    public static TimerWheel shared() {
+        return Holder.SHARED;
+    }
+
+    // Runs 'task' on the wheel's thread once 'delay' has passed
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        // Rounded up, plus the part of the current tick that has passed already: never early
+        long delayTicks = (unit.toNanos(Math.max(0, delay)) + tickNanos - 1) / tickNanos + 1;
+        boolean wake;
+        Timeout timeout;
+        synchronized (this) {
+            long now = elapsedTicks();
+            if (pending == 0) {
+                currentTick = Math.max(currentTick, now); // The wheel is empty: it may skip ahead
+            }
+            timeout = new Timeout(this, task, Math.max(currentTick, now) + delayTicks);
+            insert(timeout);
+            wake = pending++ == 0;
+        }
+        if (wake) {
+            LockSupport.unpark(thread); // It sleeps without a deadline while there is nothing to do
+        }
+        return timeout;
+    }
+
+    // Deadlines armed and not yet run or cancelled
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    // Stops the wheel; pending tasks never run
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    // --- The wheels (all under the lock) ---
+
+    private void insert(Timeout timeout) {
+        long deadline = Math.max(timeout.deadlineTick, currentTick);
+        long ticksAhead = Math.min(deadline - currentTick, MAX_TICKS - 1);
+        if (ticksAhead == MAX_TICKS - 1) {
+            deadline = currentTick + ticksAhead; // Comes back round to the last wheel until it fits
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && ticksAhead >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = level * SLOTS + (int) ((deadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+        timeout.slot = slot;
+        timeout.previous = null;
+        timeout.next = heads[slot];
+        if (heads[slot] != null) {
+            heads[slot].previous = timeout;
+        }
+        heads[slot] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            heads[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.slot = -1;
+    }
+
+    // Spreads one slot of wheel 'level' over the finer wheels
+    private void cascade(int level, int index) {
+        int slot = level * SLOTS + index;
+        Timeout timeout = heads[slot];
+        heads[slot] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            insert(timeout);
+            timeout = next;
+        }
+    }
+
+    // Processes 'currentTick' and collects what expires in it
+    private void advance(List<Timeout> expired) {
+        long tick = currentTick;
+        // Coming round at slot 0 of a wheel means the next coarser wheel moves on by one
+        for (int level = 1; level < LEVELS; level++) {
+            if (((tick >>> (SLOT_BITS * (level - 1))) & SLOT_MASK) != 0) {
+                break;
+            }
+            cascade(level, (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK));
+        }
+        int slot = (int) (tick & SLOT_MASK);
+        Timeout timeout = heads[slot];
+        heads[slot] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.slot = -1;
+            if (timeout.deadlineTick <= tick) {
+                timeout.state = Timeout.EXPIRED;
+                pending--;
+                expired.add(timeout);
+            } else {
+                insert(timeout); // Was parked at the far end of the last wheel
+            }
+            timeout = next;
+        }
+        currentTick = tick + 1;
+    }
+
+    private long elapsedTicks() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    // --- The wheel's thread ---
+
+    private void run() {
+        List<Timeout> expired = new ArrayList<>();
+        while (running) {
+            synchronized (this) {
+                long now = elapsedTicks();
+                if (pending == 0) {
+                    currentTick = Math.max(currentTick, now); // Nothing to catch up on
+                }
+                while (currentTick <= now && pending > 0) {
+                    advance(expired);
+                }
+                if (pending == 0) {
+                    currentTick = Math.max(currentTick, now + 1);
+                }
+            }
+            for (Timeout timeout : expired) {
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    Metrics.log.log(Level.WARNING, "Timer task failed", e);
+                }
+            }
+            expired.clear();
+
+            boolean idle;
+            long sleepNanos;
+            synchronized (this) {
+                idle = pending == 0;
+                sleepNanos = startNanos + currentTick * tickNanos - System.nanoTime();
+            }
+            if (idle) {
+                LockSupport.park(this);
+            } else if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+        }
+    }
+}